@@ -0,0 +1,48 @@
+package com.login.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Jackson setup shared by the JSON mapper and the binary formats. Clients that send
+ * Accept: application/x-jackson-smile or application/cbor get the same documents in a smaller,
+ * faster-to-parse encoding; JSON stays the default because its converter is registered first.
+ */
+@Configuration
+public class JacksonConfig implements WebMvcConfigurer {
+
+    /**
+     * Apply the application's settings (Java time types as ISO strings) to a mapper of any format.
+     * Field projections are opt-in per response, so by default every filter passes all fields.
+     */
+    public static ObjectMapper configure(ObjectMapper mapper) {
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+        return mapper;
+    }
+
+    /**
+     * Spring registers default Smile/CBOR converters when the dataformat jars are present; swap
+     * them for ones that share the JSON mapper's settings
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+            || converter instanceof MappingJackson2CborHttpMessageConverter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(configure(new ObjectMapper(new SmileFactory()))));
+        converters.add(new MappingJackson2CborHttpMessageConverter(configure(new ObjectMapper(new CBORFactory()))));
+    }
+}
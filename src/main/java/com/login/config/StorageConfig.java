@@ -0,0 +1,44 @@
+package com.login.config;
+
+import com.login.service.BillDataService;
+import com.login.service.PdfAttachmentIndex;
+import com.login.service.StorageMaintenanceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+@EnableScheduling
+public class StorageConfig {
+
+    @Value("${storage.maintenance.grace-days:7}")
+    private int graceDays;
+
+    @Value("${storage.maintenance.scrub-batch-size:200}")
+    private int scrubBatchSize;
+
+    @Bean
+    public ApplicationRunner attachmentIndexInitializer() {
+        return args -> {
+            // One scan of the pdfs directory per startup; requests then resolve attachments from the index
+            PdfAttachmentIndex.getInstance().rebuildIfNeeded(new BillDataService("system").getAllBillRecords());
+        };
+    }
+
+    /**
+     * Sweep orphaned PDFs and scrub the next batch of attachments
+     */
+    @Scheduled(initialDelayString = "${storage.maintenance.initial-delay-ms:600000}",
+               fixedDelayString = "${storage.maintenance.interval-ms:3600000}")
+    public void runStorageMaintenance() {
+        try {
+            StorageMaintenanceService.getInstance()
+                .run(new BillDataService("system").getAllBillRecords(), graceDays, scrubBatchSize, false);
+        } catch (Exception e) {
+            System.err.println("ERROR: Storage maintenance failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.login.controller;
 
+import com.login.model.BillRecord;
 import com.login.model.User;
 import com.login.model.UserRole;
+import com.login.service.BillDataService;
+import com.login.service.PdfStorageMigrator;
+import com.login.service.StorageMaintenanceService;
 import com.login.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -141,4 +145,91 @@ public class AdminController {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
+    
+    /**
+     * Latest storage maintenance report: orphaned files, checksum mismatches, dangling
+     * references and cumulative counters (admin only)
+     */
+    @GetMapping("/storage/report")
+    public ResponseEntity<?> getStorageReport(HttpSession session) {
+        User currentUser = (User) session.getAttribute("user");
+        if (currentUser == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        if (!currentUser.isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        StorageMaintenanceService.Report report = StorageMaintenanceService.getInstance().getLastReport();
+        if (report == null) {
+            return ResponseEntity.ok(Map.of("message", "Storage maintenance has not run yet"));
+        }
+        return ResponseEntity.ok(report);
+    }
+    
+    /**
+     * Run storage maintenance now; with dryRun=true orphans are reported but not deleted (admin only)
+     */
+    @PostMapping("/storage/maintenance")
+    public ResponseEntity<?> runStorageMaintenance(@RequestParam(defaultValue = "true") boolean dryRun,
+                                                   @RequestParam(defaultValue = "7") int graceDays,
+                                                   @RequestParam(defaultValue = "200") int scrubBatchSize,
+                                                   HttpSession session) {
+        User currentUser = (User) session.getAttribute("user");
+        if (currentUser == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        if (!currentUser.isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        try {
+            List<BillRecord> bills = new BillDataService(currentUser.getUsername()).getAllBillRecords();
+            return ResponseEntity.ok(StorageMaintenanceService.getInstance().run(bills, graceDays, scrubBatchSize, dryRun));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Start moving attachments from pdfs/shared into the sharded blob store in the background (admin only)
+     */
+    @PostMapping("/storage/migrate")
+    public ResponseEntity<?> startStorageMigration(@RequestParam(defaultValue = "50") int batchSize,
+                                                   @RequestParam(defaultValue = "200") long pauseMillis,
+                                                   HttpSession session) {
+        User currentUser = (User) session.getAttribute("user");
+        if (currentUser == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        if (!currentUser.isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        PdfStorageMigrator migrator = PdfStorageMigrator.getInstance();
+        if (!migrator.start(batchSize, pauseMillis)) {
+            return ResponseEntity.status(409).body(Map.of("error", "A migration is already running", "status", migrator.getStatus()));
+        }
+        return ResponseEntity.accepted().body(migrator.getStatus());
+    }
+    
+    /**
+     * Progress of the storage migration (admin only)
+     */
+    @GetMapping("/storage/migrate")
+    public ResponseEntity<?> getStorageMigrationStatus(HttpSession session) {
+        User currentUser = (User) session.getAttribute("user");
+        if (currentUser == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        if (!currentUser.isAdmin()) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin access required"));
+        }
+        
+        return ResponseEntity.ok(PdfStorageMigrator.getInstance().getStatus());
+    }
 }
@@ -0,0 +1,98 @@
+package com.login.controller;
+
+import com.login.model.BillRecord;
+import com.login.model.User;
+import com.login.service.BillDataService;
+import com.login.service.BillingGapDetector;
+import com.login.service.FiscalCalendar;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+    
+    private static final int MAX_TOP_N = 1000;
+    
+    /**
+     * Top N most expensive bills per vendor/network/location for a fiscal year
+     */
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopBills(@RequestParam(defaultValue = "20") int n,
+                                         @RequestParam(defaultValue = "vendor") String groupBy,
+                                         @RequestParam(required = false) Integer fiscalYear,
+                                         @RequestParam(defaultValue = "false") boolean allYears,
+                                         @RequestParam(required = false) String network,
+                                         HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        if (n <= 0 || n > MAX_TOP_N) {
+            return ResponseEntity.badRequest().body(Map.of("error", "n must be between 1 and " + MAX_TOP_N));
+        }
+        
+        try {
+            Integer year = allYears ? null : (fiscalYear != null ? fiscalYear : FiscalCalendar.currentFiscalYear());
+            BillDataService billService = new BillDataService(user.getUsername());
+            Map<String, List<BillRecord>> groups = billService.getTopBillsByGroup(groupBy, n, year, network);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("n", n);
+            response.put("groupBy", groupBy);
+            response.put("fiscalYear", year != null ? "FY" + year : "All Years");
+            response.put("groups", groups);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Bills expected but not received for a fiscal period, e.g. ?period=Q2-FY2025&network=BSNL.
+     * Without a quarter ("FY2025") every configured quarter of the year is checked.
+     */
+    @GetMapping("/missing-bills")
+    public ResponseEntity<?> getMissingBills(@RequestParam String period,
+                                             @RequestParam(required = false) String network,
+                                             HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        int fiscalYear;
+        Integer quarter = null;
+        int[] parsed = FiscalCalendar.parsePeriod(period);
+        if (parsed != null) {
+            fiscalYear = parsed[0];
+            quarter = parsed[1];
+        } else if (period.trim().toUpperCase().matches("FY\\d{4}")) {
+            fiscalYear = Integer.parseInt(period.trim().substring(2));
+        } else {
+            return ResponseEntity.badRequest().body(Map.of("error", "period must look like Q2-FY2025 or FY2025"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            List<BillingGapDetector.MissingBill> missing = billService.findMissingBills(network, fiscalYear, quarter);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("period", period);
+            response.put("network", network != null ? network : "All Networks");
+            response.put("count", missing.size());
+            response.put("missingBills", missing);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
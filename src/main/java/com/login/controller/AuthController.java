@@ -189,12 +189,7 @@ public class AuthController {
         User user = (User) session.getAttribute("user");
         if (user != null) {
             System.out.println("DEBUG: Found user in session: " + user.getUsername());
-            return ResponseEntity.ok(Map.of(
-                "username", user.getUsername(),
-                "role", user.getRole().toString(),
-                "fullName", user.getFullName() != null ? user.getFullName() : "",
-                "isAdmin", user.isAdmin()
-            ));
+            return ResponseEntity.ok(profileOf(user));
         } else {
             System.out.println("DEBUG: No user found in session - returning 401");
             return ResponseEntity.status(401).body(Map.of(
@@ -204,6 +199,18 @@ public class AuthController {
         }
     }
     
+    /**
+     * The signed-in user as the web client sees it
+     */
+    static Map<String, Object> profileOf(User user) {
+        return Map.of(
+            "username", user.getUsername(),
+            "role", user.getRole().toString(),
+            "fullName", user.getFullName() != null ? user.getFullName() : "",
+            "isAdmin", user.isAdmin()
+        );
+    }
+    
     @GetMapping("/check")
     public ResponseEntity<?> checkAuth(HttpSession session) {
         System.out.println("DEBUG: Auth check endpoint called - Session ID: " + session.getId());
@@ -2,44 +2,148 @@ package com.login.controller;
 
 import com.login.model.BillRecord;
 import com.login.model.User;
+import com.login.service.BillChangeLog;
 import com.login.service.BillDataService;
+import com.login.service.BillImportService;
+import com.login.service.BillParquetWriter;
+import com.login.service.BillQueryEngine;
+import com.login.service.BillSpreadsheetWriter;
+import com.login.service.FiscalCalendar;
+import com.login.service.NetworkVendorManager;
+import com.login.service.PdfArchiveWriter;
+import com.login.service.PdfAttachmentIndex;
+import com.login.service.PdfBlobStore;
+import com.login.service.PdfTextExtractionService;
+import com.login.service.PdfThumbnailService;
+import com.login.service.ResumableUploadManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/bills")
 public class BillController {
     
+    private static final String BLOB_CACHE_CONTROL = "private, max-age=31536000, immutable";
+    
+    @Value("${spring.servlet.multipart.max-file-size:50MB}")
+    private DataSize maxUploadSize;
+    
+    /**
+     * All bills; ?fields=serialNo,network,... limits each bill to the listed properties
+     */
     @GetMapping
-    public ResponseEntity<?> getAllBills(HttpSession session) {
+    public ResponseEntity<?> getAllBills(@RequestParam(required = false) String fields,
+                                         HttpServletRequest request, HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
         
+        // Polls of an unchanged bill list are answered without loading bills.dat
+        String etag = ConditionalGet.etag("bills", BillDataService.getDataVersion());
+        if (ConditionalGet.isNotModified(request, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        
         try {
             BillDataService billService = new BillDataService(user.getUsername());
             List<BillRecord> bills = billService.getAllBillRecords();
-            return ResponseEntity.ok(bills);
+            return ConditionalGet.ok(etag, BillFieldProjection.apply(bills, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Bills changed since a version the client already holds: updated records plus the serial
+     * numbers that no longer exist. Answers with the full list ("resync": true) when the change
+     * log does not reach back to that version, e.g. without since, after desktop-client edits or
+     * when since is a version token from before the server restarted.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getBillChanges(@RequestParam(required = false) String since,
+                                            @RequestParam(required = false) String fields,
+                                            HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        // Nothing changed: answer from the version check alone
+        long sinceVersion = BillChangeLog.versionOf(since);
+        if (sinceVersion > 0 && sinceVersion == BillDataService.getDataVersion()) {
+            return ResponseEntity.ok(Map.of("version", since, "resync", false,
+                "updated", List.of(), "deleted", List.of()));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            long version = billService.getLoadedVersion();
+            Set<Integer> changed = BillChangeLog.getInstance().changedSince(sinceVersion, version);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("version", BillChangeLog.token(version));
+            if (changed == null) {
+                response.put("resync", true);
+                response.put("bills", billService.getAllBillRecords());
+                return ResponseEntity.ok(BillFieldProjection.apply(response, fields));
+            }
+            
+            Map<Integer, BillRecord> bySerialNo = new HashMap<>();
+            for (BillRecord bill : billService.getAllBillRecords()) {
+                bySerialNo.put(bill.getSerialNo(), bill);
+            }
+            List<BillRecord> updated = new ArrayList<>();
+            List<Integer> deleted = new ArrayList<>();
+            for (int serialNo : new TreeSet<>(changed)) {
+                BillRecord bill = bySerialNo.get(serialNo);
+                if (bill != null) {
+                    updated.add(bill);
+                } else {
+                    deleted.add(serialNo);
+                }
+            }
+            response.put("resync", false);
+            response.put("updated", updated);
+            response.put("deleted", deleted);
+            System.out.println("DEBUG: Changes since version " + sinceVersion + ": " + updated.size() + " updated, " + deleted.size() + " deleted");
+            return ResponseEntity.ok(BillFieldProjection.apply(response, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
     
     @PostMapping
-    public ResponseEntity<?> addBill(@RequestBody BillRecord billRecord, HttpSession session) {
+    public ResponseEntity<?> addBill(@RequestBody BillRecord billRecord,
+                                     @RequestParam(defaultValue = "false") boolean allowDuplicate,
+                                     HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             System.out.println("DEBUG: User not authenticated");
@@ -51,6 +155,29 @@ public class BillController {
         
         try {
             BillDataService billService = new BillDataService(user.getUsername());
+            
+            // Reject an invoice number already entered for this vendor unless the caller confirms it
+            List<Integer> duplicates = billService.findDuplicateInvoices(billRecord);
+            if (!duplicates.isEmpty() && !allowDuplicate) {
+                System.out.println("DEBUG: Duplicate invoice " + billRecord.getInvoiceNumber() + " for vendor " + billRecord.getVendor());
+                return ResponseEntity.status(409).body(Map.of(
+                    "success", false,
+                    "error", "duplicate_invoice",
+                    "message", "Invoice " + billRecord.getInvoiceNumber() + " from " + billRecord.getVendor() +
+                               " already exists (bill #" + duplicates.get(0) + ")",
+                    "duplicates", duplicates
+                ));
+            }
+            
+            // Flag bills from the same vendor and location whose service period overlaps this one
+            List<Integer> overlappingSerials = new ArrayList<>();
+            for (BillRecord overlap : billService.findBillingOverlaps(billRecord)) {
+                overlappingSerials.add(overlap.getSerialNo());
+            }
+            if (!overlappingSerials.isEmpty()) {
+                System.out.println("DEBUG: Billing period overlaps existing bills: " + overlappingSerials);
+            }
+            
             billService.addBillRecord(billRecord);
             
             System.out.println("DEBUG: Bill added successfully with serial no: " + billRecord.getSerialNo());
@@ -59,7 +186,8 @@ public class BillController {
             return ResponseEntity.ok(Map.of(
                 "success", true, 
                 "message", "Bill added successfully",
-                "serialNo", billRecord.getSerialNo()
+                "serialNo", billRecord.getSerialNo(),
+                "overlappingBills", overlappingSerials
             ));
         } catch (Exception e) {
             System.out.println("DEBUG: Error adding bill: " + e.getMessage());
@@ -111,6 +239,110 @@ public class BillController {
         }
     }
     
+    /**
+     * Apply one field patch to every bill matching a filter in one store transaction:
+     * {"filter": {"period": "Q2-FY2025", "status": "Pending"}, "patch": {"status": "Completed"}}.
+     * With dryRun=true only the number of matching bills is returned.
+     */
+    @PatchMapping("/bulk")
+    public ResponseEntity<?> bulkUpdateBills(@RequestBody Map<String, Object> body,
+                                             @RequestParam(defaultValue = "false") boolean dryRun,
+                                             HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+
+        try {
+            Consumer<BillRecord> patch = BillPatch.parse(objectOf(body, "patch"));
+            BillDataService billService = new BillDataService(user.getUsername());
+            Map<String, Object> filter = objectOf(body, "filter");
+            // Selected and changed under the store lock, so no other write lands in between
+            int updated = dryRun ? BillFilter.select(billService, filter).size()
+                : billService.inTransaction(() -> billService.updateBillRecords(BillFilter.select(billService, filter), patch));
+            System.out.println("DEBUG: Bulk update by " + user.getUsername() + " of " + updated + " bills" + (dryRun ? " (dry run)" : ""));
+            return ResponseEntity.ok(Map.of("success", true, "dryRun", dryRun, "updated", updated,
+                "version", BillChangeLog.token(billService.getLoadedVersion())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Delete every bill matching a filter with one reindex and one save: {"filter": {...}}.
+     * With dryRun=true only the number of matching bills is returned.
+     */
+    @DeleteMapping("/bulk")
+    public ResponseEntity<?> bulkDeleteBills(@RequestBody Map<String, Object> body,
+                                             @RequestParam(defaultValue = "false") boolean dryRun,
+                                             HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            Map<String, Object> filter = objectOf(body, "filter");
+            int deleted = dryRun ? BillFilter.select(billService, filter).size()
+                : billService.inTransaction(() -> billService.deleteBillRecords(BillFilter.select(billService, filter)));
+            System.out.println("DEBUG: Bulk delete by " + user.getUsername() + " of " + deleted + " bills" + (dryRun ? " (dry run)" : ""));
+            return ResponseEntity.ok(Map.of("success", true, "dryRun", dryRun, "deleted", deleted,
+                "version", BillChangeLog.token(billService.getLoadedVersion())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> objectOf(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (value != null && !(value instanceof Map)) {
+            throw new IllegalArgumentException(key + " must be an object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Bulk import from a CSV or XLSX file with a header row. Valid rows are saved in batches of
+     * batchSize; invalid rows are skipped and reported with their row number. With dryRun=true
+     * the file is only validated. A file that cannot be read to the end still answers 200 with
+     * "aborted": true and the row where reading stopped, since earlier batches are already saved.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importBills(@RequestParam("file") MultipartFile file,
+                                         @RequestParam(defaultValue = "false") boolean dryRun,
+                                         @RequestParam(defaultValue = "false") boolean allowDuplicates,
+                                         @RequestParam(defaultValue = "" + BillImportService.DEFAULT_BATCH_SIZE) int batchSize,
+                                         HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No file selected or file is empty"));
+        }
+
+        System.out.println("DEBUG: Bulk import of " + file.getOriginalFilename() + " (" + file.getSize() +
+                           " bytes) by " + user.getUsername());
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillImportService.ImportResult result = BillImportService.getInstance().importBills(
+                file.getInputStream(), file.getOriginalFilename(), billService, dryRun, allowDuplicates, batchSize);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("ERROR: Bulk import failed: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/{serialNo}/upload-pdf")
     public ResponseEntity<?> uploadPdf(@PathVariable int serialNo, @RequestParam("file") MultipartFile file, HttpSession session) {
         System.out.println("DEBUG: PDF Upload request received");
@@ -145,42 +377,18 @@ public class BillController {
                 }
             }
             
-            // Create directories if they don't exist
-            String uploadDir = "pdfs" + File.separator + "shared";
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null) originalFilename = "unnamed.pdf";
-            String filename = System.currentTimeMillis() + "_" + serialNo + "_" + originalFilename;
-            Path filePath = uploadPath.resolve(filename);
-            
-            // Save file
-            Files.copy(file.getInputStream(), filePath);
-            
-            // Update bill record with PDF path
             BillDataService billService = new BillDataService(user.getUsername());
             BillRecord bill = billService.getBillRecordBySerialNo(serialNo);
             if (bill != null) {
-                // Store relative path instead of full system path
-                String relativePath = "shared" + File.separator + filename;
-                bill.setPdfFilePath(relativePath);
-                billService.updateBillRecord(bill);
-                
-                System.out.println("DEBUG: PDF uploaded and saved with path: " + relativePath);
-                
-                return ResponseEntity.ok(Map.of(
-                    "success", true, 
-                    "message", "PDF uploaded successfully",
-                    "filePath", relativePath
-                ));
+                // Store by content hash; an identical PDF that is already stored is reused
+                PdfBlobStore.StoredBlob blob = PdfBlobStore.getInstance().store(file.getInputStream());
+                return attachPdf(billService, bill, blob);
             } else {
                 return ResponseEntity.badRequest().body(Map.of("error", "Bill not found"));
             }
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Failed to upload file: " + e.getMessage()));
         } catch (Exception e) {
@@ -188,13 +396,55 @@ public class BillController {
         }
     }
     
-    @GetMapping("/locations")
-    public ResponseEntity<?> getLocations() {
-        return ResponseEntity.ok(BillDataService.LOCATIONS);
+    /**
+     * Upload a PDF as the raw request body (Content-Type: application/pdf). The body is read once
+     * and written straight into the blob store while being hashed and checked for a PDF header,
+     * without the container first spooling a multipart temp file.
+     */
+    @PutMapping(value = "/{serialNo}/pdf", consumes = "application/pdf")
+    public ResponseEntity<?> streamPdf(@PathVariable int serialNo, HttpServletRequest request, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            System.out.println("DEBUG: User not authenticated for PDF upload");
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        long maxBytes = maxUploadSize.toBytes();
+        if (request.getContentLengthLong() > maxBytes) {
+            return ResponseEntity.status(413).body(Map.of("error", "File exceeds the maximum upload size of " + maxUploadSize));
+        }
+        if (request.getContentLengthLong() == 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No file selected or file is empty"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillRecord bill = billService.getBillRecordBySerialNo(serialNo);
+            if (bill == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Bill not found"));
+            }
+            
+            System.out.println("DEBUG: Streaming PDF upload for bill " + serialNo + " (" + request.getContentLengthLong() + " bytes)");
+            PdfBlobStore.StoredBlob blob = PdfBlobStore.getInstance()
+                .store(Channels.newChannel(request.getInputStream()), maxBytes);
+            return attachPdf(billService, bill, blob);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to upload file: " + e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
     }
     
-    @GetMapping("/analytics")
-    public ResponseEntity<?> getAnalytics(HttpSession session) {
+    /**
+     * Start a resumable chunked upload. Body: {"fileName": ..., "size": bytes, "chunkSize": optional}.
+     * Chunks are then PUT to /{serialNo}/uploads/{uploadId}?offset=N and the upload is finished
+     * with POST /{serialNo}/uploads/{uploadId}/complete.
+     */
+    @PostMapping("/{serialNo}/uploads")
+    public ResponseEntity<?> initiateUpload(@PathVariable int serialNo, @RequestBody Map<String, Object> body,
+                                            HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
@@ -202,176 +452,395 @@ public class BillController {
         
         try {
             BillDataService billService = new BillDataService(user.getUsername());
-            List<BillRecord> bills = billService.getAllBillRecords();
-            
-            Map<String, Object> analytics = new HashMap<>();
+            if (billService.getBillRecordBySerialNo(serialNo) == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Bill not found"));
+            }
+            if (!(body.get("size") instanceof Number)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "size is required"));
+            }
+            long size = ((Number) body.get("size")).longValue();
+            Integer chunkSize = body.get("chunkSize") instanceof Number ? ((Number) body.get("chunkSize")).intValue() : null;
+            String fileName = body.get("fileName") != null ? body.get("fileName").toString() : "unnamed.pdf";
             
-            // Total bills
-            analytics.put("totalBills", bills.size());
+            ResumableUploadManager.Upload upload = ResumableUploadManager.getInstance()
+                .initiate(user.getUsername(), serialNo, fileName, size, chunkSize, maxUploadSize.toBytes());
+            return ResponseEntity.ok(uploadStatus(upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Which chunks of an upload have arrived; a client resumes by sending the missing ones
+     */
+    @GetMapping("/{serialNo}/uploads/{uploadId}")
+    public ResponseEntity<?> getUploadStatus(@PathVariable int serialNo, @PathVariable String uploadId,
+                                             HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        ResumableUploadManager.Upload upload = ResumableUploadManager.getInstance().getUpload(uploadId, user.getUsername());
+        if (upload == null || upload.getSerialNo() != serialNo) {
+            return ResponseEntity.status(404).body(Map.of("error", "Upload not found"));
+        }
+        return ResponseEntity.ok(uploadStatus(upload));
+    }
+    
+    @PutMapping("/{serialNo}/uploads/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable int serialNo, @PathVariable String uploadId,
+                                         @RequestParam long offset, HttpServletRequest request,
+                                         HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        ResumableUploadManager manager = ResumableUploadManager.getInstance();
+        ResumableUploadManager.Upload upload = manager.getUpload(uploadId, user.getUsername());
+        if (upload == null || upload.getSerialNo() != serialNo) {
+            return ResponseEntity.status(404).body(Map.of("error", "Upload not found"));
+        }
+        
+        try {
+            manager.writeChunk(upload, offset, Channels.newChannel(request.getInputStream()));
+            return ResponseEntity.ok(uploadStatus(upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to write chunk: " + e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/{serialNo}/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable int serialNo, @PathVariable String uploadId,
+                                            HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        ResumableUploadManager manager = ResumableUploadManager.getInstance();
+        ResumableUploadManager.Upload upload = manager.getUpload(uploadId, user.getUsername());
+        if (upload == null || upload.getSerialNo() != serialNo) {
+            return ResponseEntity.status(404).body(Map.of("error", "Upload not found"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillRecord bill = billService.getBillRecordBySerialNo(serialNo);
+            if (bill == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Bill not found"));
+            }
+            if (!upload.isComplete()) {
+                return ResponseEntity.status(409).body(uploadStatus(upload));
+            }
+            return attachPdf(billService, bill, manager.complete(upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @DeleteMapping("/{serialNo}/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable int serialNo, @PathVariable String uploadId,
+                                         HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        ResumableUploadManager manager = ResumableUploadManager.getInstance();
+        ResumableUploadManager.Upload upload = manager.getUpload(uploadId, user.getUsername());
+        if (upload == null || upload.getSerialNo() != serialNo) {
+            return ResponseEntity.status(404).body(Map.of("error", "Upload not found"));
+        }
+        try {
+            manager.abort(upload);
+            return ResponseEntity.ok(Map.of("success", true));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    private static Map<String, Object> uploadStatus(ResumableUploadManager.Upload upload) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", upload.getUploadId());
+        status.put("serialNo", upload.getSerialNo());
+        status.put("fileName", upload.getFileName());
+        status.put("size", upload.getTotalSize());
+        status.put("chunkSize", upload.getChunkSize());
+        status.put("totalChunks", upload.getTotalChunks());
+        status.put("receivedBytes", upload.getReceivedBytes());
+        status.put("missingChunks", upload.getMissingChunks());
+        status.put("complete", upload.isComplete());
+        return status;
+    }
+    
+    /**
+     * Point a bill at a stored PDF blob and describe the result
+     */
+    private ResponseEntity<?> attachPdf(BillDataService billService, BillRecord bill, PdfBlobStore.StoredBlob blob) {
+        String relativePath = blob.getKey();
+        bill.setPdfFilePath(relativePath);
+        billService.updateBillRecord(bill);
+        PdfAttachmentIndex.getInstance().register(bill.getSerialNo(), relativePath);
+        // Text extraction runs on its own worker pool; the upload response does not wait for it
+        PdfTextExtractionService.getInstance().submit(relativePath, PdfAttachmentIndex.storagePath(relativePath));
+        PdfThumbnailService.getInstance().request(blob.getHash(), PdfAttachmentIndex.storagePath(relativePath));
+        
+        System.out.println("DEBUG: PDF uploaded and saved with path: " + relativePath);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true, 
+            "message", "PDF uploaded successfully",
+            "filePath", relativePath,
+            "blobUrl", "/api/bills/blobs/" + blob.getHash(),
+            "deduplicated", blob.isDeduplicated()
+        ));
+    }
+    
+    /**
+     * Invoice fields parsed from a bill's PDF. Returns 202 while the extraction is queued or
+     * running; the first request for an older attachment queues it.
+     */
+    @GetMapping("/{serialNo}/pdf-extraction")
+    public ResponseEntity<?> getPdfExtraction(@PathVariable int serialNo,
+                                              @RequestParam(defaultValue = "false") boolean includeText,
+                                              HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillRecord bill = billService.getBillRecordBySerialNo(serialNo);
+            if (bill == null || bill.getPdfFilePath() == null || bill.getPdfFilePath().isEmpty()) {
+                return ResponseEntity.status(404).body(Map.of("error", "Bill has no PDF"));
+            }
+            String key = PdfAttachmentIndex.getInstance().lookup(bill.getPdfFilePath());
+            if (key == null) {
+                return ResponseEntity.status(404).body(Map.of("error", "PDF not found"));
+            }
             
-            // Total amount
-            double totalAmount = bills.stream().mapToDouble(BillRecord::getBillWithTax).sum();
-            analytics.put("totalAmount", totalAmount);
+            PdfTextExtractionService extraction = PdfTextExtractionService.getInstance();
+            PdfTextExtractionService.ExtractionResult result = extraction.getResult(key);
+            if (result == null) {
+                extraction.submit(key, PdfAttachmentIndex.storagePath(key));
+                return ResponseEntity.accepted().body(Map.of("status", "pending"));
+            }
             
-            // Bills by network
-            Map<String, Long> billsByNetwork = new HashMap<>();
-            bills.stream().collect(
-                java.util.stream.Collectors.groupingBy(
-                    bill -> bill.getNetwork() != null ? bill.getNetwork() : "Unknown",
-                    java.util.stream.Collectors.counting()
-                )
-            ).forEach(billsByNetwork::put);
-            analytics.put("billsByNetwork", billsByNetwork);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "done");
+            response.put("fields", result.getFields());
+            response.put("extractedAt", result.getExtractedAt());
+            response.put("extractionMillis", result.getExtractionMillis());
+            response.put("textLength", result.getText().length());
+            if (includeText) {
+                response.put("text", result.getText());
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Bills whose extracted PDF text contains every word of the query
+     */
+    @GetMapping("/pdf-text/search")
+    public ResponseEntity<?> searchPdfText(@RequestParam String q,
+                                           @RequestParam(required = false) String fields,
+                                           HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            return ResponseEntity.ok(BillFieldProjection.apply(billService.searchPdfText(q), fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/pdf-text/metrics")
+    public ResponseEntity<?> getPdfExtractionMetrics(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        return ResponseEntity.ok(PdfTextExtractionService.getInstance().getMetrics());
+    }
+    
+    @GetMapping("/locations")
+    public ResponseEntity<?> getLocations(HttpServletRequest request) {
+        // The location list is fixed at build time, so only a restart changes the ETag
+        String etag = ConditionalGet.etag("locations");
+        if (ConditionalGet.isNotModified(request, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ConditionalGet.ok(etag, BillDataService.LOCATIONS);
+    }
+    
+    @GetMapping("/analytics")
+    public ResponseEntity<?> getAnalytics(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            return ResponseEntity.ok(billService.getAnalyticsSummary());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/duplicates")
+    public ResponseEntity<?> getDuplicateInvoices(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            Map<String, List<Integer>> duplicates = billService.findAllDuplicateInvoices();
+            return ResponseEntity.ok(Map.of("count", duplicates.size(), "duplicates", duplicates));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/overlapping")
+    public ResponseEntity<?> getOverlappingBills(@RequestParam String from,
+                                                 @RequestParam String to,
+                                                 @RequestParam(required = false) String fields,
+                                                 HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Dates must be in yyyy-MM-dd format"));
+        }
+        if (toDate.isBefore(fromDate)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' must not be before 'from'"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            return ResponseEntity.ok(BillFieldProjection.apply(billService.findOverlappingBills(fromDate, toDate), fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<?> searchBills(@RequestParam(required = false) Integer year,
+                                         @RequestParam(required = false) Integer quarter,
+                                         @RequestParam(required = false) String network,
+                                         @RequestParam(required = false) String vendor,
+                                         @RequestParam(required = false) String location,
+                                         @RequestParam(required = false) String status,
+                                         @RequestParam(required = false) String invoiceNumber,
+                                         @RequestParam(required = false) String costCenter,
+                                         @RequestParam(required = false) String glCode,
+                                         @RequestParam(required = false) String commitItem,
+                                         @RequestParam(required = false) Double minAmount,
+                                         @RequestParam(required = false) Double maxAmount,
+                                         @RequestParam(defaultValue = "false") boolean explain,
+                                         @RequestParam(required = false) String fields,
+                                         HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillQueryEngine.Criteria criteria = new BillQueryEngine.Criteria()
+                .where(BillQueryEngine.Column.YEAR, year)
+                .where(BillQueryEngine.Column.QUARTER, quarter)
+                .where(BillQueryEngine.Column.NETWORK, "All Networks".equals(network) ? null : network)
+                .where(BillQueryEngine.Column.VENDOR, "All Vendors".equals(vendor) ? null : vendor)
+                .where(BillQueryEngine.Column.LOCATION, location)
+                .where(BillQueryEngine.Column.STATUS, status)
+                .where(BillQueryEngine.Column.INVOICE_NUMBER, invoiceNumber)
+                .where(BillQueryEngine.Column.COST_CENTER, costCenter)
+                .where(BillQueryEngine.Column.GL_CODE, glCode)
+                .where(BillQueryEngine.Column.COMMIT_ITEM, commitItem)
+                .amountBetween(minAmount, maxAmount);
             
-            // Bills by quarter using quarterString
-            Map<String, Long> billsByQuarter = new HashMap<>();
-            bills.stream().collect(
-                java.util.stream.Collectors.groupingBy(
-                    bill -> bill.getQuarterString() != null ? bill.getQuarterString() : "Unknown",
-                    java.util.stream.Collectors.counting()
-                )
-            ).forEach(billsByQuarter::put);
-            analytics.put("billsByQuarter", billsByQuarter);
+            if (!explain) {
+                return ResponseEntity.ok(BillFieldProjection.apply(billService.queryBillRecords(criteria), fields));
+            }
             
-            return ResponseEntity.ok(analytics);
+            BillQueryEngine.QueryPlan plan = billService.explainQuery(criteria);
+            System.out.println("DEBUG: EXPLAIN " + plan);
+            return ResponseEntity.ok(Map.of(
+                "plan", plan,
+                "statistics", billService.getQueryEngine().getColumnStatistics(),
+                "amountHistogram", billService.getQueryEngine().getAmountHistogram()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
     
-    @GetMapping("/pdf/{filename:.+}")
-    public ResponseEntity<byte[]> downloadPdf(@PathVariable String filename) {
+    @RequestMapping(value = "/pdf/{filename:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<?> downloadPdf(@PathVariable String filename, HttpServletRequest request,
+                                         HttpServletResponse response) {
         try {
             // Decode the filename (it might contain URL encoding)
             filename = java.net.URLDecoder.decode(filename, "UTF-8");
             System.out.println("DEBUG: Original filename parameter: " + filename);
             
-            // Clean up malformed paths
-            String cleanFilename = filename;
-            
-            // Fix common malformed patterns
-            if (cleanFilename.contains("pdfsshared}")) {
-                // Extract the filename after the }
-                cleanFilename = cleanFilename.substring(cleanFilename.indexOf("}") + 1);
-                System.out.println("DEBUG: Fixed pdfsshared} pattern, new filename: " + cleanFilename);
-            } else if (cleanFilename.contains("pdfs\\shared}")) {
-                cleanFilename = cleanFilename.substring(cleanFilename.indexOf("}") + 1);
-                System.out.println("DEBUG: Fixed pdfs\\shared} pattern, new filename: " + cleanFilename);
-            } else if (cleanFilename.startsWith("shared}")) {
-                // Handle the specific case of shared}filename
-                cleanFilename = cleanFilename.substring(7); // Remove "shared}" 
-                System.out.println("DEBUG: Fixed shared} pattern, new filename: " + cleanFilename);
-            } else if (cleanFilename.startsWith("pdfs\\") || cleanFilename.startsWith("pdfs/")) {
-                // Remove the "pdfs/" prefix
-                cleanFilename = cleanFilename.substring(5);
-                System.out.println("DEBUG: Removed pdfs prefix, new filename: " + cleanFilename);
+            // Resolve through the attachment index (exact path, file name, or file name without
+            // the upload timestamp) instead of probing and listing the pdfs directory
+            String key = PdfAttachmentIndex.getInstance().lookup(filename);
+            Path filePath = key != null ? PdfAttachmentIndex.storagePath(key) : null;
+            if (filePath == null || !Files.isRegularFile(filePath)) {
+                System.out.println("DEBUG: PDF not found in attachment index: " + filename);
+                return ResponseEntity.notFound().build();
             }
+            System.out.println("DEBUG: Serving PDF from: " + filePath);
             
-            Path filePath;
-            
-            // Handle different path formats
-            if (cleanFilename.contains("/") || cleanFilename.contains("\\")) {
-                // If it contains path separators, it's a relative path from pdfs directory
-                filePath = Paths.get("pdfs", cleanFilename);
-            } else {
-                // If it's just a filename, look in the shared directory
-                filePath = Paths.get("pdfs", "shared", cleanFilename);
+            // Content-addressed files never change, so they can be cached for good
+            String hash = PdfBlobStore.hashOf(key);
+            if (hash != null) {
+                FileStreamer.stream(filePath, "\"" + hash + "\"", "application/pdf",
+                    "inline; filename=\"" + hash + ".pdf\"", BLOB_CACHE_CONTROL, request, response);
+                return null;
             }
             
-            System.out.println("DEBUG: Looking for PDF at: " + filePath.toString());
-            
-            if (!Files.exists(filePath)) {
-                System.out.println("DEBUG: PDF file not found at: " + filePath.toString());
-                
-                // Try alternative locations
-                Path alternativeSharedPath = Paths.get("pdfs", "shared", cleanFilename);
-                Path alternativeRootPath = Paths.get("pdfs", cleanFilename);
-                
-                if (Files.exists(alternativeSharedPath)) {
-                    filePath = alternativeSharedPath;
-                    System.out.println("DEBUG: Found PDF at alternative shared location: " + filePath.toString());
-                } else if (Files.exists(alternativeRootPath)) {
-                    filePath = alternativeRootPath;
-                    System.out.println("DEBUG: Found PDF at alternative root location: " + filePath.toString());
-                } else {
-                    // Try pattern matching in the shared directory
-                    Path sharedDir = Paths.get("pdfs", "shared");
-                    if (Files.exists(sharedDir)) {
-                        try {
-                            // Extract the base filename without timestamp prefix
-                            String baseFilename = cleanFilename;
-                            String searchPattern = null;
-                            
-                            if (baseFilename.matches("\\d+_.*")) {
-                                // Remove the timestamp prefix (digits followed by underscore)
-                                searchPattern = baseFilename.replaceFirst("\\d+_", "");
-                                System.out.println("DEBUG: Extracted pattern without timestamp: " + searchPattern);
-                            } else {
-                                // Use the full filename as search pattern
-                                searchPattern = baseFilename;
-                            }
-                            
-                            final String finalSearchPattern = searchPattern;
-                            System.out.println("DEBUG: Searching for files matching pattern: " + finalSearchPattern);
-                            
-                            java.util.Optional<Path> matchingFile = Files.list(sharedDir)
-                                .filter(Files::isRegularFile)
-                                .filter(file -> {
-                                    String fileName = file.getFileName().toString();
-                                    System.out.println("DEBUG: Checking file: " + fileName);
-                                    
-                                    // Check if the file ends with the same pattern (ignoring timestamp prefix)
-                                    if (fileName.endsWith(finalSearchPattern)) {
-                                        System.out.println("DEBUG: File matches by ending: " + fileName);
-                                        return true;
-                                    }
-                                    
-                                    // Check if the file contains the pattern
-                                    if (fileName.contains(finalSearchPattern)) {
-                                        System.out.println("DEBUG: File matches by containing: " + fileName);
-                                        return true;
-                                    }
-                                    
-                                    // Try to match by removing timestamp from both filenames
-                                    if (fileName.matches("\\d+_.*")) {
-                                        String fileWithoutTimestamp = fileName.replaceFirst("\\d+_", "");
-                                        if (fileWithoutTimestamp.equals(finalSearchPattern)) {
-                                            System.out.println("DEBUG: File matches by pattern without timestamp: " + fileName);
-                                            return true;
-                                        }
-                                    }
-                                    
-                                    return false;
-                                })
-                                .findFirst();
-                            
-                            if (matchingFile.isPresent()) {
-                                filePath = matchingFile.get();
-                                System.out.println("DEBUG: Found matching PDF file: " + filePath.toString());
-                            } else {
-                                System.out.println("DEBUG: No matching PDF files found");
-                                return ResponseEntity.notFound().build();
-                            }
-                        } catch (IOException e) {
-                            System.out.println("DEBUG: Error while searching for matching files: " + e.getMessage());
-                            return ResponseEntity.notFound().build();
-                        }
-                    } else {
-                        System.out.println("DEBUG: PDF shared directory does not exist");
-                        return ResponseEntity.notFound().build();
-                    }
-                }
-            }
-            
-            byte[] fileContent = Files.readAllBytes(filePath);
-            
             // Get the actual filename for the download
             String actualFilename = filePath.getFileName().toString();
             
-            return ResponseEntity.ok()
-                .header("Content-Disposition", "inline; filename=\"" + actualFilename + "\"")
-                .header("Content-Type", "application/pdf")
-                .body(fileContent);
+            // Stream from disk (range-capable) instead of buffering the whole PDF in the heap
+            FileStreamer.stream(filePath, "application/pdf",
+                "inline; filename=\"" + actualFilename + "\"", request, response);
+            return null;
                 
         } catch (IOException e) {
             System.out.println("DEBUG: IOException while serving PDF: " + e.getMessage());
@@ -382,18 +851,326 @@ public class BillController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Stream the bills matching the view filters as an Excel workbook with an analytics summary
+     * sheet, written row by row instead of built in the browser
+     */
+    @GetMapping("/export.xlsx")
+    public ResponseEntity<?> exportXlsx(@RequestParam(required = false) Integer year,
+                                        @RequestParam(required = false) String quarter,
+                                        @RequestParam(required = false) String network,
+                                        @RequestParam(required = false) String vendor,
+                                        @RequestParam(required = false) String location,
+                                        @RequestParam(required = false) String status,
+                                        @RequestParam(required = false) String glCode,
+                                        @RequestParam(required = false) String costCenter,
+                                        @RequestParam(required = false) String commitItem,
+                                        @RequestParam(required = false) String search,
+                                        HttpServletResponse response, HttpSession session) {
+        return export("xlsx", year, quarter, network, vendor, location, status, glCode, costCenter,
+            commitItem, search, response, session);
+    }
+
+    /**
+     * Stream the bills matching the view filters as CSV
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<?> exportCsv(@RequestParam(required = false) Integer year,
+                                       @RequestParam(required = false) String quarter,
+                                       @RequestParam(required = false) String network,
+                                       @RequestParam(required = false) String vendor,
+                                       @RequestParam(required = false) String location,
+                                       @RequestParam(required = false) String status,
+                                       @RequestParam(required = false) String glCode,
+                                       @RequestParam(required = false) String costCenter,
+                                       @RequestParam(required = false) String commitItem,
+                                       @RequestParam(required = false) String search,
+                                       HttpServletResponse response, HttpSession session) {
+        return export("csv", year, quarter, network, vendor, location, status, glCode, costCenter,
+            commitItem, search, response, session);
+    }
+
+    /**
+     * Stream the bills matching the view filters as a Parquet file, one row group per fiscal year,
+     * for loading into pandas, pyarrow, Spark or Power BI without parsing a spreadsheet
+     */
+    @GetMapping("/export.parquet")
+    public ResponseEntity<?> exportParquet(@RequestParam(required = false) Integer year,
+                                           @RequestParam(required = false) String quarter,
+                                           @RequestParam(required = false) String network,
+                                           @RequestParam(required = false) String vendor,
+                                           @RequestParam(required = false) String location,
+                                           @RequestParam(required = false) String status,
+                                           @RequestParam(required = false) String glCode,
+                                           @RequestParam(required = false) String costCenter,
+                                           @RequestParam(required = false) String commitItem,
+                                           @RequestParam(required = false) String search,
+                                           HttpServletResponse response, HttpSession session) {
+        return export("parquet", year, quarter, network, vendor, location, status, glCode, costCenter,
+            commitItem, search, response, session);
+    }
+
+    private ResponseEntity<?> export(String format, Integer year, String quarter, String network, String vendor,
+                                     String location, String status, String glCode, String costCenter,
+                                     String commitItem, String search, HttpServletResponse response,
+                                     HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillQueryEngine.Criteria criteria = new BillQueryEngine.Criteria()
+                .where(BillQueryEngine.Column.NETWORK, blankToNull("All Networks".equals(network) ? null : network))
+                .where(BillQueryEngine.Column.VENDOR, blankToNull("All Vendors".equals(vendor) ? null : vendor))
+                .where(BillQueryEngine.Column.LOCATION, blankToNull(location))
+                .where(BillQueryEngine.Column.STATUS, blankToNull(status))
+                .where(BillQueryEngine.Column.GL_CODE, blankToNull(glCode))
+                .where(BillQueryEngine.Column.COST_CENTER, blankToNull(costCenter))
+                .where(BillQueryEngine.Column.COMMIT_ITEM, blankToNull(commitItem));
+            List<BillRecord> bills = billService.queryBillRecords(criteria);
+            // The view matches the year on the service period, the quarter on either the quarter
+            // label or number, and the search text anywhere in the bill
+            String quarterFilter = blankToNull(quarter);
+            String searchTerm = blankToNull(search) != null ? search.trim().toLowerCase() : null;
+            bills.removeIf(bill -> (year != null && (bill.getFromDate() == null || bill.getFromDate().getYear() != year))
+                || (quarterFilter != null && !quarterFilter.equals(bill.getQuarterString())
+                    && !quarterFilter.equals(String.valueOf(bill.getQuarter())))
+                || (searchTerm != null && !matchesSearch(bill, searchTerm)));
+
+            String filename = "BSNL_Bills_Export_" + LocalDate.now() + "." + format;
+            switch (format) {
+                case "xlsx":
+                    response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                    break;
+                case "parquet":
+                    response.setContentType("application/vnd.apache.parquet");
+                    break;
+                default:
+                    response.setContentType("text/csv;charset=UTF-8");
+            }
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+            response.setHeader("Cache-Control", "no-store");
+
+            OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+            int written;
+            if ("parquet".equals(format)) {
+                written = new BillParquetWriter().write(bills, out);
+            } else {
+                BillSpreadsheetWriter writer = new BillSpreadsheetWriter();
+                written = "xlsx".equals(format) ? writer.writeXlsx(bills, out) : writer.writeCsv(bills, out);
+            }
+            out.flush();
+            System.out.println("DEBUG: Exported " + written + " bills as " + filename);
+            return null;
+        } catch (IOException e) {
+            System.out.println("DEBUG: IOException while streaming export: " + e.getMessage());
+            if (response.isCommitted()) {
+                return null;
+            }
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private static boolean matchesSearch(BillRecord bill, String term) {
+        for (Object value : new Object[]{bill.getSerialNo(), bill.getNetwork(), bill.getVendor(), bill.getLocation(),
+                bill.getInvoiceNumber(), bill.getBillWithTax(), bill.getBillWithoutTax(), bill.getSes1(), bill.getSes2(),
+                bill.getBillingPeriod(), bill.getFromDate(), bill.getToDate(), bill.getStatus(), bill.getRemarks(),
+                bill.getQuarterString(), bill.getGlCode(), bill.getCommitItem(), bill.getCostCenter()}) {
+            if (value != null && value.toString().toLowerCase().contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stream a ZIP of the PDFs of every bill matching the filters, e.g.
+     * /api/bills/pdfs.zip?network=BSNL&period=Q1-FY2025. The archive is written entry by entry
+     * as it is sent, never buffered.
+     */
+    @GetMapping("/pdfs.zip")
+    public ResponseEntity<?> downloadPdfArchive(@RequestParam(required = false) Integer year,
+                                                @RequestParam(required = false) Integer quarter,
+                                                @RequestParam(required = false) String period,
+                                                @RequestParam(required = false) String network,
+                                                @RequestParam(required = false) String vendor,
+                                                @RequestParam(required = false) String location,
+                                                @RequestParam(required = false) String status,
+                                                HttpServletResponse response, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        int[] fiscalPeriod = null;
+        if (period != null && !period.trim().isEmpty()) {
+            fiscalPeriod = FiscalCalendar.parsePeriod(period);
+            if (fiscalPeriod == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "period must look like Q1-FY2025"));
+            }
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillQueryEngine.Criteria criteria = new BillQueryEngine.Criteria()
+                .where(BillQueryEngine.Column.YEAR, year)
+                .where(BillQueryEngine.Column.QUARTER, quarter)
+                .where(BillQueryEngine.Column.NETWORK, "All Networks".equals(network) ? null : network)
+                .where(BillQueryEngine.Column.VENDOR, "All Vendors".equals(vendor) ? null : vendor)
+                .where(BillQueryEngine.Column.LOCATION, location)
+                .where(BillQueryEngine.Column.STATUS, status);
+            List<BillRecord> bills = billService.queryBillRecords(criteria);
+            if (fiscalPeriod != null) {
+                int fiscalYear = fiscalPeriod[0];
+                int fiscalQuarter = fiscalPeriod[1];
+                bills.removeIf(bill -> FiscalCalendar.fiscalYearOf(bill) != fiscalYear
+                    || FiscalCalendar.quarterOf(bill) != fiscalQuarter);
+            }
+            
+            String archiveName = "invoices"
+                + (network != null && !"All Networks".equals(network) ? "_" + network : "")
+                + (period != null ? "_" + period.trim().toUpperCase() : "")
+                + ".zip";
+            response.setContentType("application/zip");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + archiveName.replaceAll("[^A-Za-z0-9._-]", "_") + "\"");
+            
+            OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+            int written = new PdfArchiveWriter().write(bills, out);
+            out.flush();
+            System.out.println("DEBUG: Streamed " + written + " PDFs for " + bills.size() + " bills as " + archiveName);
+            return null;
+        } catch (IOException e) {
+            System.out.println("DEBUG: IOException while streaming PDF archive: " + e.getMessage());
+            if (response.isCommitted()) {
+                return null;
+            }
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @RequestMapping(value = "/blobs/{hash}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<?> downloadBlob(@PathVariable String hash, HttpServletRequest request,
+                                          HttpServletResponse response) {
+        // The URL names the content, so the response is immutable and needs no revalidation
+        if (!PdfBlobStore.getInstance().exists(hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            FileStreamer.stream(PdfBlobStore.getInstance().pathOf(hash), "\"" + hash + "\"", "application/pdf",
+                "inline; filename=\"" + hash + ".pdf\"", BLOB_CACHE_CONTROL, request, response);
+            return null;
+        } catch (IOException e) {
+            System.out.println("DEBUG: IOException while serving PDF blob: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * First-page thumbnail of a bill's PDF. Redirects to the content-addressed thumbnail URL so the
+     * browser caches the image itself for good; answers 202 with Retry-After while the PDF is
+     * hashed and rendered in the background.
+     */
+    @GetMapping("/{serialNo}/thumbnail")
+    public ResponseEntity<?> getThumbnail(@PathVariable int serialNo, HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            BillDataService billService = new BillDataService(user.getUsername());
+            BillRecord bill = billService.getBillRecordBySerialNo(serialNo);
+            if (bill == null || bill.getPdfFilePath() == null || bill.getPdfFilePath().isEmpty()) {
+                return ResponseEntity.status(404).body(Map.of("error", "Bill has no PDF"));
+            }
+            String key = PdfAttachmentIndex.getInstance().lookup(bill.getPdfFilePath());
+            Path pdf = key != null ? PdfAttachmentIndex.storagePath(key) : null;
+            if (pdf == null || !Files.isRegularFile(pdf)) {
+                return ResponseEntity.status(404).body(Map.of("error", "PDF not found"));
+            }
+            
+            PdfThumbnailService thumbnails = PdfThumbnailService.getInstance();
+            String hash = thumbnails.knownHashOf(key, pdf);
+            if (hash == null || thumbnails.getThumbnail(hash) == null) {
+                thumbnails.requestForKey(key);
+                return thumbnailPending();
+            }
+            return ResponseEntity.status(302)
+                .header("Location", "/api/bills/thumbnails/" + hash)
+                .header("Cache-Control", "no-cache")
+                .build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @RequestMapping(value = "/thumbnails/{hash}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public ResponseEntity<?> downloadThumbnail(@PathVariable String hash, HttpServletRequest request,
+                                               HttpServletResponse response) {
+        PdfThumbnailService thumbnails = PdfThumbnailService.getInstance();
+        Path thumbnail = thumbnails.getThumbnail(hash);
+        if (thumbnail == null) {
+            // Blobs can be rendered on first request; other attachments go through /{serialNo}/thumbnail
+            if (!PdfBlobStore.getInstance().exists(hash)) {
+                return ResponseEntity.notFound().build();
+            }
+            thumbnails.request(hash, PdfBlobStore.getInstance().pathOf(hash));
+            return thumbnailPending();
+        }
+        try {
+            FileStreamer.stream(thumbnail, "\"" + hash + "\"", "image/png",
+                "inline; filename=\"" + hash + ".png\"", BLOB_CACHE_CONTROL, request, response);
+            return null;
+        } catch (IOException e) {
+            System.out.println("DEBUG: IOException while serving thumbnail: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @GetMapping("/thumbnails/metrics")
+    public ResponseEntity<?> getThumbnailMetrics(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        return ResponseEntity.ok(PdfThumbnailService.getInstance().getMetrics());
+    }
+    
+    private static ResponseEntity<?> thumbnailPending() {
+        return ResponseEntity.status(202)
+            .header("Retry-After", "2")
+            .header("Cache-Control", "no-store")
+            .body(Map.of("status", "pending"));
+    }
     
     @GetMapping("/config")
-    public ResponseEntity<?> getConfiguration(HttpSession session) {
+    public ResponseEntity<?> getConfiguration(HttpServletRequest request, HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
         
+        // Default quarters come from the bill records, so both files version the response
+        String etag = ConditionalGet.etag("config", BillDataService.getConfigVersion(), BillDataService.getDataVersion());
+        if (ConditionalGet.isNotModified(request, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        
         try {
             BillDataService billService = new BillDataService(user.getUsername());
             Map<String, Object> config = billService.getConfiguration();
-            return ResponseEntity.ok(config);
+            return ConditionalGet.ok(etag, config);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
@@ -416,13 +1193,19 @@ public class BillController {
     }
     
     @GetMapping("/vendors/{network}")
-    public ResponseEntity<?> getVendorsByNetwork(@PathVariable String network, HttpSession session) {
+    public ResponseEntity<?> getVendorsByNetwork(@PathVariable String network, HttpServletRequest request,
+                                                 HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             System.out.println("DEBUG: User not authenticated for vendors request");
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
         
+        String etag = catalogEtag("vendors");
+        if (ConditionalGet.isNotModified(request, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        
         System.out.println("DEBUG: Getting vendors for network: " + network);
         
         try {
@@ -431,7 +1214,7 @@ public class BillController {
             
             System.out.println("DEBUG: Found vendors: " + vendors);
             
-            return ResponseEntity.ok(vendors);
+            return ConditionalGet.ok(etag, vendors);
         } catch (Exception e) {
             System.out.println("DEBUG: Error getting vendors: " + e.getMessage());
             e.printStackTrace();
@@ -440,21 +1223,36 @@ public class BillController {
     }
     
     @GetMapping("/quarters/{network}")
-    public ResponseEntity<?> getQuartersByNetwork(@PathVariable String network, HttpSession session) {
+    public ResponseEntity<?> getQuartersByNetwork(@PathVariable String network, HttpServletRequest request,
+                                                  HttpSession session) {
         User user = (User) session.getAttribute("user");
         if (user == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
         
+        String etag = catalogEtag("quarters");
+        if (ConditionalGet.isNotModified(request, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        
         try {
             BillDataService billService = new BillDataService(user.getUsername());
             List<String> quarters = billService.getQuartersByNetwork(network);
-            return ResponseEntity.ok(quarters);
+            return ConditionalGet.ok(etag, quarters);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
     
+    /**
+     * ETag for per-network vendor and quarter lists, which fall back from the predefined mappings
+     * to the saved configuration, the network manager and finally the bill records
+     */
+    private static String catalogEtag(String resource) {
+        return ConditionalGet.etag(resource, BillDataService.getConfigVersion(),
+            NetworkVendorManager.getInstance().getVersion(), BillDataService.getDataVersion());
+    }
+    
     @GetMapping("/debug/pdf-paths")
     public ResponseEntity<?> debugPdfPaths(HttpSession session) {
         User user = (User) session.getAttribute("user");
@@ -473,22 +1271,15 @@ public class BillController {
                     info.put("serialNo", bill.getSerialNo());
                     info.put("originalPath", bill.getPdfFilePath());
                     
-                    // Check if path is malformed and fix it
+                    // Resolve through the attachment index, which also understands the
+                    // malformed "pdfsshared}" and "pdfs/" prefixed forms of older records
                     String path = bill.getPdfFilePath();
+                    String key = PdfAttachmentIndex.getInstance().lookup(path);
                     String fixedPath = null;
-                    
-                    // Check for common malformed patterns
-                    if (path.contains("pdfsshared}")) {
-                        // Extract the filename after the }
-                        String filename = path.substring(path.indexOf("}") + 1);
-                        fixedPath = "shared" + File.separator + filename;
-                    } else if (path.contains("pdfs\\shared}")) {
-                        String filename = path.substring(path.indexOf("}") + 1);
-                        fixedPath = "shared" + File.separator + filename;
-                    } else if (path.startsWith("pdfs\\") || path.startsWith("pdfs/")) {
-                        // Remove the "pdfs/" prefix
-                        fixedPath = path.substring(5);
+                    if (key != null && !key.equals(PdfAttachmentIndex.canonicalKey(path))) {
+                        fixedPath = key.replace('/', File.separatorChar);
                     }
+                    info.put("resolved", key != null);
                     
                     info.put("fixedPath", fixedPath);
                     
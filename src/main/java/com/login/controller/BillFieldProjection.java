@@ -0,0 +1,91 @@
+package com.login.controller;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.login.config.JacksonConfig;
+import com.login.model.BillRecord;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.*;
+
+/**
+ * ?fields=serialNo,network,vendor,billWithTax projection of bill responses. Only the listed
+ * BillRecord properties are written, wherever bills appear in the response body, in JSON as well
+ * as Smile or CBOR. The filter for each distinct field list is built once and reused.
+ */
+public final class BillFieldProjection {
+
+    private static final int MAX_CACHED_PROJECTIONS = 64;
+    private static final Set<String> FIELDS = serializedFields();
+
+    private static final Map<String, FilterProvider> PROJECTIONS = Collections.synchronizedMap(
+        new LinkedHashMap<String, FilterProvider>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FilterProvider> eldest) {
+                return size() > MAX_CACHED_PROJECTIONS;
+            }
+        });
+
+    private BillFieldProjection() {}
+
+    /**
+     * Wrap a response body so bills in it carry only the requested fields. Returns the body
+     * unchanged when no projection was asked for.
+     *
+     * @throws IllegalArgumentException if a field is not a bill property, or the list names none
+     */
+    public static Object apply(Object body, String fields) {
+        if (fields == null) {
+            return body;
+        }
+        MappingJacksonValue projected = new MappingJacksonValue(body);
+        projected.setFilters(filtersFor(fields));
+        return projected;
+    }
+
+    public static Set<String> getFields() {
+        return FIELDS;
+    }
+
+    private static FilterProvider filtersFor(String fields) {
+        SortedSet<String> requested = new TreeSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one bill property");
+        }
+        String key = String.join(",", requested);
+        FilterProvider filters = PROJECTIONS.get(key);
+        if (filters == null) {
+            filters = new SimpleFilterProvider()
+                .addFilter(BillRecord.FIELD_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(requested))
+                .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+            PROJECTIONS.put(key, filters);
+        }
+        return filters;
+    }
+
+    private static Set<String> serializedFields() {
+        ObjectMapper mapper = JacksonConfig.configure(new ObjectMapper());
+        BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(BillRecord.class));
+        Set<String> fields = new LinkedHashSet<>();
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (property.couldSerialize()) {
+                fields.add(property.getName());
+            }
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+}
@@ -0,0 +1,123 @@
+package com.login.controller;
+
+import com.login.model.BillRecord;
+import com.login.service.BillDataService;
+import com.login.service.BillQueryEngine;
+import com.login.service.FiscalCalendar;
+
+import java.util.*;
+
+/**
+ * Bill selection for bulk operations, given as a JSON object with the same filters as
+ * /api/bills/search plus "period" (e.g. "Q2-FY2025") and "serialNos". An empty filter is
+ * refused unless it says {"all": true}, so a missing body never selects every bill.
+ */
+public final class BillFilter {
+
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+        "year", "quarter", "period", "network", "vendor", "location", "status", "invoiceNumber",
+        "costCenter", "glCode", "commitItem", "minAmount", "maxAmount", "serialNos", "all"));
+
+    private BillFilter() {}
+
+    /**
+     * Serial numbers of the bills matching the filter
+     *
+     * @throws IllegalArgumentException if the filter is empty or has an unknown key or bad value
+     */
+    public static Set<Integer> select(BillDataService billService, Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("A filter is required; use {\"all\": true} to select every bill");
+        }
+        for (String key : filter.keySet()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown filter: " + key);
+            }
+        }
+
+        String network = string(filter, "network");
+        String vendor = string(filter, "vendor");
+        BillQueryEngine.Criteria criteria = new BillQueryEngine.Criteria()
+            .where(BillQueryEngine.Column.YEAR, integer(filter, "year"))
+            .where(BillQueryEngine.Column.QUARTER, integer(filter, "quarter"))
+            .where(BillQueryEngine.Column.NETWORK, "All Networks".equals(network) ? null : network)
+            .where(BillQueryEngine.Column.VENDOR, "All Vendors".equals(vendor) ? null : vendor)
+            .where(BillQueryEngine.Column.LOCATION, string(filter, "location"))
+            .where(BillQueryEngine.Column.STATUS, string(filter, "status"))
+            .where(BillQueryEngine.Column.INVOICE_NUMBER, string(filter, "invoiceNumber"))
+            .where(BillQueryEngine.Column.COST_CENTER, string(filter, "costCenter"))
+            .where(BillQueryEngine.Column.GL_CODE, string(filter, "glCode"))
+            .where(BillQueryEngine.Column.COMMIT_ITEM, string(filter, "commitItem"))
+            .amountBetween(decimal(filter, "minAmount"), decimal(filter, "maxAmount"));
+
+        int[] fiscalPeriod = null;
+        String period = string(filter, "period");
+        if (period != null) {
+            fiscalPeriod = FiscalCalendar.parsePeriod(period);
+            if (fiscalPeriod == null) {
+                throw new IllegalArgumentException("period must look like Q1-FY2025");
+            }
+        }
+        Set<Integer> serialNos = serialNos(filter.get("serialNos"));
+        boolean all = Boolean.TRUE.equals(filter.get("all"));
+        if (criteria.predicateCount() == 0 && fiscalPeriod == null && serialNos == null && !all) {
+            throw new IllegalArgumentException("A filter is required; use {\"all\": true} to select every bill");
+        }
+
+        Set<Integer> selected = new TreeSet<>();
+        for (BillRecord bill : billService.queryBillRecords(criteria)) {
+            if (fiscalPeriod != null && (FiscalCalendar.fiscalYearOf(bill) != fiscalPeriod[0]
+                    || FiscalCalendar.quarterOf(bill) != fiscalPeriod[1])) {
+                continue;
+            }
+            if (serialNos != null && !serialNos.contains(bill.getSerialNo())) {
+                continue;
+            }
+            selected.add(bill.getSerialNo());
+        }
+        return selected;
+    }
+
+    private static String string(Map<String, Object> filter, String key) {
+        Object value = filter.get(key);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return null;
+        }
+        return value.toString().trim();
+    }
+
+    private static Integer integer(Map<String, Object> filter, String key) {
+        String value = string(filter, key);
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number");
+        }
+    }
+
+    private static Double decimal(Map<String, Object> filter, String key) {
+        String value = string(filter, key);
+        try {
+            return value != null ? Double.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number");
+        }
+    }
+
+    private static Set<Integer> serialNos(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Collection)) {
+            throw new IllegalArgumentException("serialNos must be a list of serial numbers");
+        }
+        Set<Integer> serialNos = new HashSet<>();
+        for (Object serialNo : (Collection<?>) value) {
+            if (!(serialNo instanceof Number)) {
+                throw new IllegalArgumentException("serialNos must be a list of serial numbers");
+            }
+            serialNos.add(((Number) serialNo).intValue());
+        }
+        return serialNos;
+    }
+}
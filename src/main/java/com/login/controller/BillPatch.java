@@ -0,0 +1,70 @@
+package com.login.controller;
+
+import com.login.model.BillRecord;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Field changes for PATCH /api/bills/bulk, e.g. {"status": "Completed", "costCenter": "M75010-SRO"}.
+ * Only bookkeeping fields can be patched in bulk; the fields that identify a bill (network, vendor,
+ * invoice number, amounts, dates) are edited one bill at a time. The whole patch is validated
+ * before any bill is touched.
+ */
+public final class BillPatch {
+
+    private static final Map<String, BiConsumer<BillRecord, String>> TEXT_FIELDS = new LinkedHashMap<>();
+    static {
+        TEXT_FIELDS.put("status", BillRecord::setStatus);
+        TEXT_FIELDS.put("remarks", BillRecord::setRemarks);
+        TEXT_FIELDS.put("location", BillRecord::setLocation);
+        TEXT_FIELDS.put("costCenter", BillRecord::setCostCenter);
+        TEXT_FIELDS.put("glCode", BillRecord::setGlCode);
+        TEXT_FIELDS.put("commitItem", BillRecord::setCommitItem);
+        TEXT_FIELDS.put("billingPeriod", BillRecord::setBillingPeriod);
+        TEXT_FIELDS.put("quarterString", BillRecord::setQuarterString);
+        TEXT_FIELDS.put("ses1", BillRecord::setSes1);
+        TEXT_FIELDS.put("ses2", BillRecord::setSes2);
+    }
+
+    private BillPatch() {}
+
+    /**
+     * The change described by the patch
+     *
+     * @throws IllegalArgumentException if the patch is empty or names a field that cannot be patched
+     */
+    public static Consumer<BillRecord> parse(Map<String, Object> patch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new IllegalArgumentException("patch must name at least one field");
+        }
+        List<Consumer<BillRecord>> changes = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            String field = entry.getKey();
+            Object value = entry.getValue();
+            if ("quarter".equals(field)) {
+                if (!(value instanceof Number) || ((Number) value).intValue() < 1) {
+                    throw new IllegalArgumentException("quarter must be a positive whole number");
+                }
+                int quarter = ((Number) value).intValue();
+                changes.add(record -> record.setQuarter(quarter));
+                continue;
+            }
+            BiConsumer<BillRecord, String> setter = TEXT_FIELDS.get(field);
+            if (setter == null) {
+                throw new IllegalArgumentException("Field cannot be changed in bulk: " + field +
+                    " (allowed: quarter, " + String.join(", ", TEXT_FIELDS.keySet()) + ")");
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException(field + " must be text");
+            }
+            if ("status".equals(field) && (value == null || ((String) value).trim().isEmpty())) {
+                throw new IllegalArgumentException("status cannot be empty");
+            }
+            String text = value != null ? ((String) value).trim() : null;
+            changes.add(record -> setter.accept(record, text));
+        }
+        return record -> changes.forEach(change -> change.accept(record));
+    }
+}
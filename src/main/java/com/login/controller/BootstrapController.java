@@ -0,0 +1,112 @@
+package com.login.controller;
+
+import com.login.model.BillRecord;
+import com.login.model.User;
+import com.login.service.BillChangeLog;
+import com.login.service.BillDataService;
+import com.login.service.NetworkVendorManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Everything the dashboard needs to start, in one response: the user profile, the
+ * network/vendor/quarter configuration, locations, the first page of bills and the analytics
+ * summary. Saves the web client several round trips on slow depot links.
+ */
+@RestController
+@RequestMapping("/api/bootstrap")
+public class BootstrapController {
+
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    // The pieces are independent and assembled in parallel; callers run the work themselves
+    // when the pool is saturated, so a burst of logins never fails
+    private static final ExecutorService ASSEMBLERS = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(64), runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-assembler");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @GetMapping
+    public ResponseEntity<?> bootstrap(@RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int pageSize,
+                                       @RequestParam(required = false) String fields,
+                                       HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        try {
+            // bills.dat is read once and shared by every piece below
+            BillDataService billService = new BillDataService(user.getUsername());
+
+            CompletableFuture<Map<String, Object>> config = CompletableFuture.supplyAsync(() -> configurationOf(billService), ASSEMBLERS);
+            CompletableFuture<Map<String, Object>> bills = CompletableFuture.supplyAsync(() -> firstPageOf(billService, limit), ASSEMBLERS);
+            CompletableFuture<Map<String, Object>> analytics = CompletableFuture.supplyAsync(billService::getAnalyticsSummary, ASSEMBLERS);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("user", AuthController.profileOf(user));
+            response.put("config", config.join());
+            response.put("locations", BillDataService.LOCATIONS);
+            response.put("bills", bills.join());
+            response.put("analytics", analytics.join());
+            return ResponseEntity.ok(BillFieldProjection.apply(response, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(cause.getMessage())));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * The saved configuration plus the vendor and quarter lists of every network, as served by
+     * /api/bills/vendors/{network} and /api/bills/quarters/{network}, and the config and networks
+     * event versions it reflects
+     */
+    private static Map<String, Object> configurationOf(BillDataService billService) {
+        // Taken before reading, so a change made meanwhile still shows up as a newer event version
+        Map<String, Long> versions = new LinkedHashMap<>();
+        versions.put(ChangeEventBroadcaster.CONFIG, BillDataService.getConfigVersion());
+        versions.put(ChangeEventBroadcaster.NETWORKS, NetworkVendorManager.getInstance().getVersion());
+        Map<String, Object> config = new HashMap<>(billService.getConfiguration());
+        Map<String, List<String>> vendorsByNetwork = new LinkedHashMap<>();
+        Map<String, List<String>> quartersByNetwork = new LinkedHashMap<>();
+        @SuppressWarnings("unchecked")
+        List<String> networks = (List<String>) config.getOrDefault("networks", Collections.emptyList());
+        for (String network : networks) {
+            vendorsByNetwork.put(network, billService.getVendorsByNetwork(network));
+            quartersByNetwork.put(network, billService.getQuartersByNetwork(network));
+        }
+        config.put("vendorsByNetwork", vendorsByNetwork);
+        config.put("quartersByNetwork", quartersByNetwork);
+        config.put("versions", versions);
+        return config;
+    }
+
+    /**
+     * The first bills in serial order and the data version they belong to. When "complete" is
+     * true the page is the whole list and the client can go straight to /api/bills/changes.
+     */
+    private static Map<String, Object> firstPageOf(BillDataService billService, int limit) {
+        List<BillRecord> all = billService.getAllBillRecords();
+        all.sort(Comparator.comparingInt(BillRecord::getSerialNo));
+        List<BillRecord> page = all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+
+        Map<String, Object> bills = new LinkedHashMap<>();
+        bills.put("version", BillChangeLog.token(billService.getLoadedVersion()));
+        bills.put("total", all.size());
+        bills.put("complete", page.size() == all.size());
+        bills.put("items", page);
+        return bills;
+    }
+}
@@ -0,0 +1,235 @@
+package com.login.controller;
+
+import com.login.service.BillChangeLog;
+import com.login.service.BillDataService;
+import com.login.service.NetworkVendorManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pushes "something changed" events to browsers over server-sent events. The bill, config and
+ * network versions are polled (one stat each of bills.dat, config.dat and networks.dat), which also
+ * catches writes made by the desktop client in another JVM; a changed networks.dat is reloaded into
+ * NetworkVendorManager as it is noticed. Events only carry the new version; clients fetch the delta
+ * themselves.
+ *
+ * Each client has at most one send in flight. Changes that arrive while it is busy are coalesced
+ * into the latest version per topic, and a client whose send stalls for too long is dropped, so a
+ * slow browser never piles up events. A send blocked on a browser that stopped reading ties up
+ * its thread until the write fails, so the sender pool grows to one thread per client rather than
+ * letting a few stuck browsers hold up all the others.
+ */
+@Component
+public class ChangeEventBroadcaster {
+
+    public static final String BILLS = "bills";
+    public static final String CONFIG = "config";
+    public static final String NETWORKS = "networks";
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final long HEARTBEAT_MS = 25 * 1000L;
+    private static final long STALL_MS = 30 * 1000L;
+    private static final int MAX_CLIENTS = 200;
+    private static final int SENDERS = 4;
+
+    private static class Client {
+        private final String username;
+        private final SseEmitter emitter;
+        // Latest undelivered version per topic; newer versions overwrite older ones
+        private final Map<String, Long> pending = new LinkedHashMap<>();
+        private boolean sending;
+        private Future<?> send;
+        private long sendStartedAt;
+        private long lastSentAt = System.currentTimeMillis();
+
+        Client(String username, SseEmitter emitter) {
+            this.username = username;
+            this.emitter = emitter;
+        }
+    }
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = new ThreadPoolExecutor(SENDERS, MAX_CLIENTS, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Register a browser; it immediately receives the current version of every topic
+     */
+    public SseEmitter subscribe(String username) {
+        return subscribe(username, new SseEmitter(EMITTER_TIMEOUT_MS));
+    }
+
+    SseEmitter subscribe(String username, SseEmitter emitter) {
+        if (clients.size() >= MAX_CLIENTS) {
+            emitter.complete();
+            return emitter;
+        }
+        Client client = new Client(username, emitter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(error -> clients.remove(client));
+        clients.add(client);
+        System.out.println("DEBUG: " + username + " subscribed to change events (" + clients.size() + " clients)");
+
+        currentVersions().forEach((topic, version) -> {
+            versions.putIfAbsent(topic, version);
+            offer(client, topic, version);
+        });
+        return emitter;
+    }
+
+    /**
+     * Check the data versions and queue an event for every topic that moved
+     */
+    @Scheduled(fixedDelayString = "${events.poll-interval-ms:1000}")
+    public void pollVersions() {
+        if (clients.isEmpty()) {
+            versions.clear();
+            return;
+        }
+        currentVersions().forEach((topic, version) -> {
+            Long previous = versions.put(topic, version);
+            if (previous != null && previous.longValue() != version) {
+                for (Client client : clients) {
+                    offer(client, topic, version);
+                }
+            }
+        });
+        checkClients(System.currentTimeMillis());
+    }
+
+    /**
+     * Drop clients whose send has stalled and send a heartbeat to the ones that have been idle
+     */
+    void checkClients(long now) {
+        for (Client client : clients) {
+            boolean stalled;
+            boolean idle;
+            synchronized (client) {
+                stalled = client.sending && now - client.sendStartedAt > STALL_MS;
+                idle = !client.sending && now - client.lastSentAt > HEARTBEAT_MS;
+            }
+            if (stalled) {
+                System.out.println("DEBUG: Dropping stalled event client " + client.username);
+                abort(client);
+            } else if (idle) {
+                // Keeps proxies from closing the stream and detects browsers that went away
+                offer(client, null, 0);
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private Map<String, Long> currentVersions() {
+        Map<String, Long> current = new LinkedHashMap<>();
+        current.put(BILLS, BillDataService.getDataVersion());
+        current.put(CONFIG, BillDataService.getConfigVersion());
+        current.put(NETWORKS, NetworkVendorManager.getInstance().getVersion());
+        return current;
+    }
+
+    /**
+     * Queue an event (or a heartbeat when topic is null) and start a send unless one is running
+     */
+    private void offer(Client client, String topic, long version) {
+        synchronized (client) {
+            if (topic != null) {
+                client.pending.put(topic, version);
+            }
+            if (client.sending) {
+                return;
+            }
+            client.sending = true;
+            client.sendStartedAt = System.currentTimeMillis();
+        }
+        try {
+            Future<?> send = senders.submit(() -> flush(client, topic == null));
+            synchronized (client) {
+                client.send = send;
+            }
+        } catch (RejectedExecutionException e) {
+            drop(client);
+        }
+    }
+
+    private void flush(Client client, boolean heartbeat) {
+        try {
+            if (heartbeat) {
+                client.emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+            while (true) {
+                Map<String, Long> batch;
+                synchronized (client) {
+                    if (client.pending.isEmpty()) {
+                        client.sending = false;
+                        client.lastSentAt = System.currentTimeMillis();
+                        return;
+                    }
+                    batch = new LinkedHashMap<>(client.pending);
+                    client.pending.clear();
+                    client.sendStartedAt = System.currentTimeMillis();
+                }
+                for (Map.Entry<String, Long> event : batch.entrySet()) {
+                    // Bill versions go out as the same tokens /api/bills/changes takes
+                    Object version = BILLS.equals(event.getKey()) ? BillChangeLog.token(event.getValue()) : event.getValue();
+                    client.emitter.send(SseEmitter.event()
+                        .name(event.getKey())
+                        .data(Map.of("version", version)));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            drop(client);
+        }
+    }
+
+    private void drop(Client client) {
+        clients.remove(client);
+        try {
+            client.emitter.complete();
+        } catch (Exception e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Drop a client whose send is stuck: complete() would wait for that send, so the response is
+     * failed instead and the sending thread interrupted
+     */
+    private void abort(Client client) {
+        clients.remove(client);
+        Future<?> send;
+        synchronized (client) {
+            send = client.send;
+        }
+        try {
+            client.emitter.completeWithError(new IOException("Event client stopped reading"));
+        } catch (Exception e) {
+            // Already closed
+        }
+        if (send != null) {
+            send.cancel(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Client client : clients) {
+            drop(client);
+        }
+        senders.shutdownNow();
+    }
+}
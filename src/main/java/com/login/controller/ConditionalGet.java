@@ -0,0 +1,66 @@
+package com.login.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Weak ETags built from data versions, so a repeated GET can be answered with 304 before any data
+ * is loaded. Versions restart with the process, so the ETag carries the start time as well.
+ */
+public final class ConditionalGet {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ConditionalGet() {}
+
+    /**
+     * Weak ETag for a resource name and the versions of the data it is built from
+     */
+    public static String etag(String resource, long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(resource).append('-').append(EPOCH);
+        for (long version : versions) {
+            tag.append('.').append(version);
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * True if If-None-Match lists the ETag (weak comparison) or is "*"
+     */
+    public static boolean isNotModified(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaqueTag(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(304).eTag(etag).cacheControl(revalidate()).header("Vary", "Accept").build();
+    }
+
+    /**
+     * 200 with the ETag; the browser keeps the body but checks back on every use
+     */
+    public static ResponseEntity<?> ok(String etag, Object body) {
+        // JSON, Smile and CBOR share the ETag, so caches must keep them apart by Accept
+        return ResponseEntity.ok().eTag(etag).cacheControl(revalidate()).header("Vary", "Accept").body(body);
+    }
+
+    private static CacheControl revalidate() {
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
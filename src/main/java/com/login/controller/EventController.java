@@ -0,0 +1,36 @@
+package com.login.controller;
+
+import com.login.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    @Autowired
+    private ChangeEventBroadcaster broadcaster;
+
+    /**
+     * Server-sent event stream of "bills", "config" and "networks" events, each carrying the new
+     * version of that data
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> subscribe(HttpSession session) {
+        User user = (User) session.getAttribute("user");
+        if (user == null) {
+            // No JSON body: the client asked for text/event-stream only
+            return ResponseEntity.status(401).build();
+        }
+
+        return ResponseEntity.ok()
+            .header("Cache-Control", "no-cache")
+            // Stop reverse proxies from buffering the stream
+            .header("X-Accel-Buffering", "no")
+            .body(broadcaster.subscribe(user.getUsername()));
+    }
+}
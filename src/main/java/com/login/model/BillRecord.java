@@ -1,15 +1,23 @@
 package com.login.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
 import java.time.LocalDate;
 
 /**
  * Model class representing a bill record
  */
+@JsonFilter(BillRecord.FIELD_FILTER)
 public class BillRecord implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Jackson filter id used to serialize only the fields a client asked for (?fields=...)
+     */
+    public static final String FIELD_FILTER = "billFields";
+    
     private int serialNo;
     private String network;
     private String vendor;
@@ -108,22 +116,27 @@ public class BillRecord implements Serializable {
         this.billWithTax = this.billWithoutTax * 1.18; // Add 18% GST
     }
     
+    // Display helpers for the desktop client; kept out of JSON, which carries the raw amounts
     public static String formatAmountWithSymbol(double amount) {
         return String.format("₹%.2f", amount);
     }
     
+    @JsonIgnore
     public String getFormattedBillWithTax() {
         return formatAmountWithSymbol(billWithTax);
     }
     
+    @JsonIgnore
     public String getFormattedBillWithoutTax() {
         return formatAmountWithSymbol(billWithoutTax);
     }
 
+    @JsonIgnore
     public String getBillWithTaxFormatted() {
         return formatAmountWithSymbol(billWithTax);
     }
     
+    @JsonIgnore
     public String getBillWithoutTaxFormatted() {
         return formatAmountWithSymbol(billWithoutTax);
     }
@@ -0,0 +1,144 @@
+package com.login.service;
+
+import java.util.*;
+
+/**
+ * Bounded in-memory log of which serial numbers each save of bills.dat touched, so a client that
+ * holds the bills at version N can fetch just the records changed since. Serial numbers are the
+ * unit because deleting a bill renumbers the ones after it: a touched serial number that still
+ * exists is an update, one that no longer exists is a tombstone.
+ *
+ * A save covers the versions from the one its service instance loaded to the one it wrote, so a
+ * save built on stale data also re-sends whatever it overwrote. Versions with no entry (writes by
+ * the desktop client, or entries evicted from the log) make the log answer "unknown" and the
+ * client falls back to a full reload.
+ *
+ * Versions restart at 1 with the process, so clients get them as tokens qualified with the
+ * process start ("epoch:version"); a token from an earlier run never matches a reused number.
+ */
+public class BillChangeLog {
+
+    private static final int MAX_ENTRIES = 500;
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private static class Entry {
+        private final long fromVersion;
+        private final long toVersion;
+        private final Set<Integer> serialNos;
+
+        Entry(long fromVersion, long toVersion, Set<Integer> serialNos) {
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.serialNos = serialNos;
+        }
+    }
+
+    // Ordered by toVersion
+    private final LinkedList<Entry> entries = new LinkedList<>();
+
+    private static BillChangeLog instance;
+
+    BillChangeLog() {}
+
+    public static synchronized BillChangeLog getInstance() {
+        if (instance == null) {
+            instance = new BillChangeLog();
+        }
+        return instance;
+    }
+
+    /**
+     * Token handed to clients for a version of bills.dat
+     */
+    public static String token(long version) {
+        return EPOCH + ":" + version;
+    }
+
+    /**
+     * Version named by a token from token(), or 0 (unknown, so the client resyncs) for a missing
+     * or malformed token or one issued before the process restarted
+     */
+    public static long versionOf(String token) {
+        if (token == null || !token.startsWith(EPOCH + ":")) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(token.substring(EPOCH.length() + 1)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Record a save that moved bills.dat from fromVersion to toVersion. A null set means the
+     * change cannot be described (e.g. a bulk rewrite) and forces clients before it to resync.
+     */
+    public synchronized void record(long fromVersion, long toVersion, Collection<Integer> serialNos) {
+        Entry entry = new Entry(Math.min(fromVersion, toVersion - 1), toVersion,
+            serialNos != null ? new HashSet<>(serialNos) : null);
+        ListIterator<Entry> it = entries.listIterator(entries.size());
+        while (it.hasPrevious()) {
+            if (it.previous().toVersion < toVersion) {
+                it.next();
+                break;
+            }
+        }
+        it.add(entry);
+        while (entries.size() > MAX_ENTRIES) {
+            entries.removeFirst();
+        }
+    }
+
+    /**
+     * Serial numbers touched by saves after sinceVersion up to currentVersion, or null if the log
+     * does not cover that whole range and the client has to reload everything
+     */
+    public synchronized Set<Integer> changedSince(long sinceVersion, long currentVersion) {
+        if (sinceVersion == currentVersion) {
+            return new HashSet<>();
+        }
+        if (sinceVersion <= 0 || sinceVersion > currentVersion) {
+            return null;
+        }
+
+        Set<Integer> changed = new HashSet<>();
+        long covered = sinceVersion;
+        for (Entry entry : entries) {
+            if (entry.toVersion <= sinceVersion) {
+                continue;
+            }
+            // Saved after the records being answered from were loaded
+            if (entry.toVersion > currentVersion) {
+                break;
+            }
+            if (entry.fromVersion > covered || entry.serialNos == null) {
+                return null;
+            }
+            // A save made on top of an older version may have overwritten the saves in between
+            if (entry.fromVersion < sinceVersion && !addOverwritten(entry, sinceVersion, changed)) {
+                return null;
+            }
+            changed.addAll(entry.serialNos);
+            covered = Math.max(covered, entry.toVersion);
+        }
+        return covered >= currentVersion ? changed : null;
+    }
+
+    private boolean addOverwritten(Entry save, long sinceVersion, Set<Integer> changed) {
+        long covered = save.fromVersion;
+        for (Entry entry : entries) {
+            if (entry.toVersion <= save.fromVersion) {
+                continue;
+            }
+            if (entry.toVersion > sinceVersion) {
+                break;
+            }
+            if (entry.fromVersion > covered || entry.serialNos == null) {
+                return false;
+            }
+            changed.addAll(entry.serialNos);
+            covered = Math.max(covered, entry.toVersion);
+        }
+        return covered >= sinceVersion;
+    }
+}
@@ -1,8 +1,14 @@
 package com.login.service;
 import com.login.model.BillRecord;
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -17,6 +23,19 @@ public class BillDataService {
     private List<BillRecord> billRecords;
     private int nextSerialNo;
     
+    // Query engine shared by all service instances, keyed by the bills.dat version it indexes.
+    // The version advances on every save by this process, even one that leaves the file's
+    // modification time and size unchanged, so a stale engine is never reused.
+    private static BillQueryEngine sharedQueryEngine;
+    private static String sharedQueryEngineStamp;
+    private String dataStamp;
+    private long loadedVersion;
+    private boolean loadFailed;
+    
+    // Versions of the shared files, checked by the web layer before anything is loaded
+    private static final FileVersion BILLS_VERSION = new FileVersion(DATA_DIR + File.separator + "bills.dat");
+    private static final FileVersion CONFIG_VERSION = new FileVersion(DATA_DIR + File.separator + "config.dat");
+    
     public BillDataService(String username) {
         // Ensure data directory exists
         File dataDir = new File(DATA_DIR);
@@ -112,15 +131,21 @@ public class BillDataService {
      * Load bills from file storage
      */
     private void loadBills() {
+        // Taken before reading so the records are never older than the version they claim
+        loadedVersion = BILLS_VERSION.current();
         File file = new File(billsDataFile);
         System.out.println("DEBUG: Attempting to load bills from: " + file.getAbsolutePath());
         System.out.println("DEBUG: File exists: " + file.exists() + ", File size: " + file.length());
         
         if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
                 @SuppressWarnings("unchecked")
                 List<BillRecord> loadedBills = (List<BillRecord>) ois.readObject();
                 billRecords = loadedBills;
+                // Only shared with other instances if nothing was written while reading
+                dataStamp = BILLS_VERSION.current() == loadedVersion ? String.valueOf(loadedVersion) : null;
+                loadFailed = false;
+                PdfBlobStore.getInstance().syncReferencesIfNeeded(billRecords);
                 System.out.println("DEBUG: Successfully loaded " + billRecords.size() + " bills");
                 
                   // Calculate next serial number
@@ -138,6 +163,7 @@ public class BillDataService {
                 System.out.println("DEBUG: Attempting to recover by creating new empty list");
                 billRecords = new ArrayList<>();
                 nextSerialNo = 1;
+                loadFailed = true;
             }        } else {
             System.out.println("DEBUG: Bills file does not exist, starting with empty list");
             nextSerialNo = 1;
@@ -171,23 +197,165 @@ public class BillDataService {
             }
         }
         if (needsSave) {
-            saveBills();
-            System.out.println("Fixed year/quarter data for existing records");
+            BillStoreLock.lock();
+            try {
+                // If another writer saved meanwhile, its copy is fixed on the next load instead
+                if (BILLS_VERSION.current() == loadedVersion) {
+                    saveBills();
+                    System.out.println("Fixed year/quarter data for existing records");
+                }
+            } finally {
+                BillStoreLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Run a read-modify-write of bills.dat as one transaction, e.g. selecting bills by a filter and
+     * changing them. The store lock is held throughout and the records are reloaded first if
+     * another writer saved since they were loaded, so concurrent writers never overwrite each other.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        beginWrite();
+        try {
+            return work.get();
+        } finally {
+            BillStoreLock.unlock();
         }
     }
     
     /**
-     * Save bills to file storage
+     * Take the store lock and bring the records up to date with bills.dat
+     */
+    private void beginWrite() {
+        BillStoreLock.lock();
+        try {
+            if (BILLS_VERSION.current() != loadedVersion) {
+                System.out.println("DEBUG: bills.dat changed since it was loaded, reloading before writing");
+                billRecords = new ArrayList<>();
+                loadBills();
+                if (loadFailed) {
+                    throw new IllegalStateException("Could not reload bill data; the change was not saved");
+                }
+            }
+        } catch (RuntimeException e) {
+            BillStoreLock.unlock();
+            throw e;
+        }
+    }
+    
+    /**
+     * Save bills to file storage after a change that cannot be described record by record
      */
     private void saveBills() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(billsDataFile))) {
-            oos.writeObject(billRecords);
+        saveBills(null);
+    }
+    
+    /**
+     * Save bills to file storage and log which serial numbers the save touched
+     */
+    private void saveBills(Collection<Integer> touchedSerialNos) {
+        BillStoreLock.lock();
+        try {
+            // Callers reload under the lock before changing anything, so this only trips if a
+            // write path skipped that; saving would silently drop the other writer's changes
+            if (BILLS_VERSION.current() != loadedVersion) {
+                throw new IllegalStateException("Bill data changed since it was loaded; reload and try again");
+            }
+            writeBillsFile();
+            long savedVersion = BILLS_VERSION.advance();
+            BillChangeLog.getInstance().record(loadedVersion, savedVersion, touchedSerialNos);
+            loadedVersion = savedVersion;
+            dataStamp = String.valueOf(savedVersion);
+        } finally {
+            BillStoreLock.unlock();
+        }
+        PdfBlobStore.getInstance().syncReferences(billRecords);
+    }
+    
+    /**
+     * Write the records to a temporary file of its own and move it into place, so a failed save
+     * leaves the previous bills.dat intact and readers never see a half-written file
+     */
+    private void writeBillsFile() {
+        File target = new File(billsDataFile);
+        File temp = null;
+        try {
+            temp = Files.createTempFile(target.getAbsoluteFile().getParentFile().toPath(), "bills", ".tmp").toFile();
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                oos.writeObject(billRecords);
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (Exception e) {
             e.printStackTrace();
+            if (temp != null) {
+                temp.delete();
+            }
             throw new RuntimeException("Error saving bill data: " + e.getMessage());
         }
     }
     
+    /**
+     * Version of the bill records; increases with every change to bills.dat
+     */
+    public static long getDataVersion() {
+        return BILLS_VERSION.current();
+    }
+    
+    /**
+     * Version of bills.dat these records were loaded from or last saved as
+     */
+    public long getLoadedVersion() {
+        return loadedVersion;
+    }
+    
+    /**
+     * Version of the saved network/vendor/quarter configuration in config.dat
+     */
+    public static long getConfigVersion() {
+        return CONFIG_VERSION.current();
+    }
+    
+    /**
+     * Get the query engine for the currently loaded records, reusing the shared one when it
+     * indexes the same version of bills.dat and rebuilding it otherwise
+     */
+    public BillQueryEngine getQueryEngine() {
+        synchronized (BillDataService.class) {
+            if (sharedQueryEngine != null && dataStamp != null && dataStamp.equals(sharedQueryEngineStamp)
+                    && sharedQueryEngine.getRowCount() == billRecords.size()) {
+                return sharedQueryEngine;
+            }
+            BillQueryEngine engine = new BillQueryEngine(billRecords);
+            if (dataStamp != null) {
+                sharedQueryEngine = engine;
+                sharedQueryEngineStamp = dataStamp;
+            }
+            return engine;
+        }
+    }
+    
+    /**
+     * Run a query through the cost-based planner
+     */
+    public List<BillRecord> queryBillRecords(BillQueryEngine.Criteria criteria) {
+        return getQueryEngine().execute(criteria, billRecords);
+    }
+    
+    /**
+     * Plan and run a query, returning the plan annotated with actual rows and timing
+     */
+    public BillQueryEngine.QueryPlan explainQuery(BillQueryEngine.Criteria criteria) {
+        BillQueryEngine engine = getQueryEngine();
+        BillQueryEngine.QueryPlan plan = engine.plan(criteria);
+        engine.execute(plan, criteria, billRecords);
+        return plan;
+    }
+    
     /**
      * Ensure PDF storage directory exists
      */
@@ -202,34 +370,170 @@ public class BillDataService {
      * Add a new bill record
      */
     public void addBillRecord(BillRecord record) {
-        record.setSerialNo(nextSerialNo++);
-        billRecords.add(record);
-        saveBills();
+        beginWrite();
+        try {
+            record.setSerialNo(nextSerialNo++);
+            billRecords.add(record);
+            String previousStamp = dataStamp;
+            saveBills(Collections.singleton(record.getSerialNo()));
+            BillingGapDetector.getInstance().recordSaved(record, previousStamp, dataStamp);
+            DuplicateInvoiceIndex.getInstance().recordSaved(record, previousStamp, dataStamp);
+        } finally {
+            BillStoreLock.unlock();
+        }
     }
     
+    /**
+     * Add several bill records with a single save, e.g. one batch of a bulk import
+     */
+    public void addBillRecords(List<BillRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        beginWrite();
+        try {
+            List<Integer> serialNos = new ArrayList<>(records.size());
+            for (BillRecord record : records) {
+                record.setSerialNo(nextSerialNo++);
+                billRecords.add(record);
+                serialNos.add(record.getSerialNo());
+            }
+            saveBills(serialNos);
+            BillingGapDetector.getInstance().invalidate();
+            DuplicateInvoiceIndex.getInstance().invalidate();
+        } finally {
+            BillStoreLock.unlock();
+        }
+    }
+
     /**
      * Update an existing bill record
      */
     public boolean updateBillRecord(BillRecord updatedRecord) {
-        for (int i = 0; i < billRecords.size(); i++) {
-            if (billRecords.get(i).getSerialNo() == updatedRecord.getSerialNo()) {
-                billRecords.set(i, updatedRecord);
-                saveBills();
-                return true;
+        beginWrite();
+        try {
+            for (int i = 0; i < billRecords.size(); i++) {
+                if (billRecords.get(i).getSerialNo() == updatedRecord.getSerialNo()) {
+                    billRecords.set(i, updatedRecord);
+                    String previousStamp = dataStamp;
+                    saveBills(Collections.singleton(updatedRecord.getSerialNo()));
+                    BillingGapDetector.getInstance().recordSaved(updatedRecord, previousStamp, dataStamp);
+                    DuplicateInvoiceIndex.getInstance().recordSaved(updatedRecord, previousStamp, dataStamp);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            BillStoreLock.unlock();
+        }
+    }
+    
+    /**
+     * Bills whose extracted PDF text contains every word of the query
+     */
+    public List<BillRecord> searchPdfText(String query) {
+        Set<String> keys = PdfTextExtractionService.getInstance().search(query);
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        PdfAttachmentIndex attachments = PdfAttachmentIndex.getInstance();
+        return billRecords.stream()
+            .filter(record -> record.getPdfFilePath() != null && !record.getPdfFilePath().isEmpty())
+            .filter(record -> keys.contains(attachments.lookup(record.getPdfFilePath())))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Repoint bills from old PDF paths to new ones with a single save, e.g. while migrating storage.
+     * Bills are matched by their current path rather than serial number, which a delete can shift,
+     * and a bill whose path changed since the caller read it is left alone. Returns the number of
+     * bills updated.
+     */
+    public int replacePdfPaths(Map<String, String> newPathsByOldPath) {
+        beginWrite();
+        try {
+            Map<Integer, String> updated = new LinkedHashMap<>();
+            for (BillRecord record : billRecords) {
+                String newPath = record.getPdfFilePath() != null ? newPathsByOldPath.get(record.getPdfFilePath()) : null;
+                if (newPath != null) {
+                    record.setPdfFilePath(newPath);
+                    updated.put(record.getSerialNo(), newPath);
+                }
+            }
+            if (!updated.isEmpty()) {
+                saveBills(updated.keySet());
+                PdfAttachmentIndex.getInstance().registerAll(updated);
             }
+            return updated.size();
+        } finally {
+            BillStoreLock.unlock();
         }
-        return false;
-    }      /**
+    }
+    
+    /**
+     * Apply the same change to several bills with a single save. Returns the number of bills changed.
+     */
+    public int updateBillRecords(Set<Integer> serialNos, Consumer<BillRecord> change) {
+        beginWrite();
+        try {
+            Set<Integer> touched = new HashSet<>();
+            for (BillRecord record : billRecords) {
+                if (serialNos.contains(record.getSerialNo())) {
+                    change.accept(record);
+                    touched.add(record.getSerialNo());
+                }
+            }
+            if (!touched.isEmpty()) {
+                saveBills(touched);
+                BillingGapDetector.getInstance().invalidate();
+                DuplicateInvoiceIndex.getInstance().invalidate();
+            }
+            return touched.size();
+        } finally {
+            BillStoreLock.unlock();
+        }
+    }
+    
+    /**
      * Delete a bill record and reindex remaining records
      */
     public boolean deleteBillRecord(int serialNo) {
-        boolean removed = billRecords.removeIf(record -> record.getSerialNo() == serialNo);
-        if (removed) {
-            // Reindex all remaining records to ensure serial numbers are consecutive
-            reindexSerialNumbers();
-            saveBills();
+        return deleteBillRecords(Collections.singleton(serialNo)) > 0;
+    }
+    
+    /**
+     * Delete several bill records with one reindex and a single save. Returns the number deleted.
+     */
+    public int deleteBillRecords(Set<Integer> serialNos) {
+        beginWrite();
+        try {
+            Map<Integer, BillRecord> before = new HashMap<>();
+            for (BillRecord record : billRecords) {
+                before.put(record.getSerialNo(), record);
+            }
+            int sizeBefore = billRecords.size();
+            boolean removed = billRecords.removeIf(record -> serialNos.contains(record.getSerialNo()));
+            if (removed) {
+                // Reindex all remaining records to ensure serial numbers are consecutive
+                reindexSerialNumbers();
+                // Serial numbers that now hold a different bill, or none at all
+                Set<Integer> touched = new HashSet<>(before.keySet());
+                for (BillRecord record : billRecords) {
+                    if (before.get(record.getSerialNo()) == record) {
+                        touched.remove(record.getSerialNo());
+                    } else {
+                        touched.add(record.getSerialNo());
+                    }
+                }
+                saveBills(touched);
+                BillingGapDetector.getInstance().invalidate();
+                DuplicateInvoiceIndex.getInstance().invalidate();
+                PdfAttachmentIndex.getInstance().indexBills(billRecords);
+            }
+            return sizeBefore - billRecords.size();
+        } finally {
+            BillStoreLock.unlock();
         }
-        return removed;
     }
     
     /**
@@ -244,10 +548,7 @@ public class BillDataService {
             billRecords.get(i).setSerialNo(i + 1);
         }
         
-        System.out.println("Reindexed serial numbers. New sequence:");
-        for (BillRecord record : billRecords) {
-            System.out.println("Serial #" + record.getSerialNo() + " - " + record.getInvoiceNumber());
-        }
+        System.out.println("Reindexed serial numbers 1.." + billRecords.size());
         
         // Update the next serial number for new records
         nextSerialNo = billRecords.isEmpty() ? 1 : billRecords.size() + 1;
@@ -263,21 +564,135 @@ public class BillDataService {
      * Get bill records filtered by year and quarter
      */
     public List<BillRecord> getBillRecordsByYearAndQuarter(int year, int quarter) {
-        return billRecords.stream()
-            .filter(record -> record.getYear() == year && record.getQuarter() == quarter)
-            .collect(Collectors.toList());
+        return queryBillRecords(new BillQueryEngine.Criteria()
+            .where(BillQueryEngine.Column.YEAR, year)
+            .where(BillQueryEngine.Column.QUARTER, quarter));
     }
     
     /**
      * Get bill records filtered by multiple criteria
      */
     public List<BillRecord> getFilteredBillRecords(Integer year, Integer quarter, String network, String vendor) {
-        return billRecords.stream()
-            .filter(record -> year == null || record.getYear() == year)
-            .filter(record -> quarter == null || record.getQuarter() == quarter)
-            .filter(record -> network == null || "All Networks".equals(network) || network.equals(record.getNetwork()))
-            .filter(record -> vendor == null || "All Vendors".equals(vendor) || vendor.equals(record.getVendor()))
-            .collect(Collectors.toList());
+        return queryBillRecords(new BillQueryEngine.Criteria()
+            .where(BillQueryEngine.Column.YEAR, year)
+            .where(BillQueryEngine.Column.QUARTER, quarter)
+            .where(BillQueryEngine.Column.NETWORK, "All Networks".equals(network) ? null : network)
+            .where(BillQueryEngine.Column.VENDOR, "All Vendors".equals(vendor) ? null : vendor));
+    }
+    
+    /**
+     * Get bills whose service period (fromDate..toDate) overlaps the given range, inclusive
+     */
+    public List<BillRecord> findOverlappingBills(LocalDate from, LocalDate to) {
+        return recordsAt(getQueryEngine().overlappingPeriods(from.toEpochDay(), to.toEpochDay()));
+    }
+    
+    /**
+     * Find existing bills from the same vendor for the same location whose service period
+     * overlaps the candidate's, i.e. possible duplicate billing. The candidate itself is excluded.
+     */
+    public List<BillRecord> findBillingOverlaps(BillRecord candidate) {
+        if (candidate.getFromDate() == null) {
+            return new ArrayList<>();
+        }
+        LocalDate to = candidate.getToDate() != null ? candidate.getToDate() : candidate.getFromDate();
+        List<BillRecord> overlaps = recordsAt(getQueryEngine().overlappingPeriods(
+            candidate.getVendor(), candidate.getLocation(), candidate.getFromDate().toEpochDay(), to.toEpochDay()));
+        overlaps.removeIf(record -> record.getSerialNo() == candidate.getSerialNo());
+        return overlaps;
+    }
+    
+    /**
+     * Find (network, vendor, location) combinations with no bill for a fiscal period
+     */
+    public List<BillingGapDetector.MissingBill> findMissingBills(String network, int fiscalYear, Integer quarter) {
+        BillingGapDetector detector = BillingGapDetector.getInstance();
+        detector.sync(dataStamp != null ? dataStamp : "", billRecords);
+        return detector.findMissingBills("All Networks".equals(network) ? null : network, fiscalYear, quarter);
+    }
+    
+    /**
+     * Serial numbers of existing bills with the same vendor and invoice number as the candidate
+     */
+    public List<Integer> findDuplicateInvoices(BillRecord candidate) {
+        DuplicateInvoiceIndex index = DuplicateInvoiceIndex.getInstance();
+        index.sync(dataStamp != null ? dataStamp : "", billRecords);
+        return index.findDuplicates(candidate);
+    }
+    
+    /**
+     * Report of every vendor/invoice number entered more than once
+     */
+    public Map<String, List<Integer>> findAllDuplicateInvoices() {
+        DuplicateInvoiceIndex index = DuplicateInvoiceIndex.getInstance();
+        index.sync(dataStamp != null ? dataStamp : "", billRecords);
+        return index.findAllDuplicates();
+    }
+    
+    private List<BillRecord> recordsAt(int[] positions) {
+        List<BillRecord> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(billRecords.get(position));
+        }
+        return result;
+    }
+    
+    /**
+     * Get the N most expensive bills per group, optionally limited to a fiscal year and network
+     */
+    public Map<String, List<BillRecord>> getTopBillsByGroup(String groupBy, int limit, Integer fiscalYear, String network) {
+        Function<BillRecord, String> groupKey;
+        switch (groupBy == null ? "vendor" : groupBy) {
+            case "vendor": groupKey = BillRecord::getVendor; break;
+            case "network": groupKey = BillRecord::getNetwork; break;
+            case "location": groupKey = BillRecord::getLocation; break;
+            case "costCenter": groupKey = BillRecord::getCostCenter; break;
+            case "all": groupKey = record -> "All"; break;
+            default: throw new IllegalArgumentException("Unsupported groupBy: " + groupBy);
+        }
+        String networkFilter = "All Networks".equals(network) ? null : network;
+        List<BillRecord> candidates = networkFilter == null ? billRecords
+            : queryBillRecords(new BillQueryEngine.Criteria().where(BillQueryEngine.Column.NETWORK, networkFilter));
+        return new TopBillsQuery(groupKey,
+            record -> fiscalYear == null || FiscalCalendar.fiscalYearOf(record) == fiscalYear,
+            limit).execute(candidates);
+    }
+    
+    /**
+     * Totals for the dashboard: bill count, total amount with tax, and bill counts per network
+     * and per quarter
+     */
+    public Map<String, Object> getAnalyticsSummary() {
+        Map<String, Object> analytics = new HashMap<>();
+        
+        // Total bills
+        analytics.put("totalBills", billRecords.size());
+        
+        // Total amount
+        double totalAmount = billRecords.stream().mapToDouble(BillRecord::getBillWithTax).sum();
+        analytics.put("totalAmount", totalAmount);
+        
+        // Bills by network
+        Map<String, Long> billsByNetwork = new HashMap<>();
+        billRecords.stream().collect(
+            Collectors.groupingBy(
+                bill -> bill.getNetwork() != null ? bill.getNetwork() : "Unknown",
+                Collectors.counting()
+            )
+        ).forEach(billsByNetwork::put);
+        analytics.put("billsByNetwork", billsByNetwork);
+        
+        // Bills by quarter using quarterString
+        Map<String, Long> billsByQuarter = new HashMap<>();
+        billRecords.stream().collect(
+            Collectors.groupingBy(
+                bill -> bill.getQuarterString() != null ? bill.getQuarterString() : "Unknown",
+                Collectors.counting()
+            )
+        ).forEach(billsByQuarter::put);
+        analytics.put("billsByQuarter", billsByQuarter);
+        
+        return analytics;
     }
     
     /**
@@ -599,6 +1014,7 @@ public class BillDataService {
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(configFile))) {
             oos.writeObject(config);
             System.out.println("DEBUG: Configuration saved successfully to " + configFile.getAbsolutePath());
+            CONFIG_VERSION.advance();
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Error saving configuration: " + e.getMessage());
@@ -0,0 +1,852 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk import of bills from CSV or XLSX. Rows are read one at a time, validated in parallel
+ * chunks against the configured network/vendor combinations, and committed in batches with one
+ * save of bills.dat per batch instead of one per bill. Each batch is its own store transaction,
+ * so edits made elsewhere while a long import runs are kept.
+ *
+ * XLSX files are read as the zipped XML they are (shared strings, then the first worksheet)
+ * with a StAX parser, so a large sheet is never held in memory as a whole.
+ */
+public class BillImportService {
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 500;
+    private static final int VALIDATORS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Excel stores dates as days since 1899-12-30
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+    private static final Pattern QUARTER_LABEL = Pattern.compile("(?i)^Q([1-9])\\b.*");
+    // 18% GST, as in BillRecord.calculateBillWithTax and the desktop bill form
+    private static final double GST_FACTOR = 1.18;
+
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+    static {
+        alias("network", "network");
+        alias("vendor", "vendor");
+        alias("location", "location");
+        alias("invoiceNumber", "invoicenumber", "invoiceno", "invoice");
+        alias("billWithTax", "billwithtax", "amountwithtax", "withtax");
+        alias("billWithoutTax", "billwithouttax", "amountwithouttax", "withouttax");
+        alias("ses1", "ses1");
+        alias("ses2", "ses2");
+        alias("billingPeriod", "billingperiod", "period");
+        alias("fromDate", "fromdate", "from");
+        alias("toDate", "todate", "to");
+        alias("status", "status");
+        alias("remarks", "remarks");
+        alias("quarter", "quarter");
+        alias("quarterString", "quarterstring");
+        alias("glCode", "glcode");
+        alias("commitItem", "commititem");
+        alias("costCenter", "costcenter", "costcentre");
+    }
+
+    private static void alias(String field, String... headers) {
+        for (String header : headers) {
+            HEADER_ALIASES.put(header, field);
+        }
+    }
+
+    /**
+     * A row that could not be imported; row numbers count the header as row 1, as in a spreadsheet
+     */
+    public static class RowError {
+        private final int row;
+        private final String message;
+
+        RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public String getMessage() { return message; }
+    }
+
+    public static class ImportResult {
+        private int totalRows;
+        private int imported;
+        private int failed;
+        private int batches;
+        private boolean dryRun;
+        private boolean aborted;
+        private long durationMillis;
+        private final List<RowError> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+
+        public int getTotalRows() { return totalRows; }
+        public int getImported() { return imported; }
+        public int getFailed() { return failed; }
+        public int getBatches() { return batches; }
+        public boolean isDryRun() { return dryRun; }
+        public boolean isAborted() { return aborted; }
+        public long getDurationMillis() { return durationMillis; }
+        public List<RowError> getErrors() { return errors; }
+        public boolean isErrorsTruncated() { return errorsTruncated; }
+
+        private void addError(RowError error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    private static class ParsedRow {
+        private final int row;
+        private final BillRecord record;
+        private final String error;
+
+        ParsedRow(int row, BillRecord record, String error) {
+            this.row = row;
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Source of rows as arrays of cell text; null marks the end
+     */
+    interface RowReader extends Closeable {
+        String[] next() throws IOException;
+    }
+
+    private final ExecutorService validators = new ThreadPoolExecutor(VALIDATORS, VALIDATORS, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(VALIDATORS * 4), runnable -> {
+            Thread thread = new Thread(runnable, "bill-import-validator");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static BillImportService instance;
+
+    private BillImportService() {}
+
+    public static synchronized BillImportService getInstance() {
+        if (instance == null) {
+            instance = new BillImportService();
+        }
+        return instance;
+    }
+
+    /**
+     * Import bills from a CSV or XLSX stream (chosen by file name) into the given service.
+     * Duplicate invoices, within the file or against existing bills, are rejected unless
+     * allowDuplicates is set; with dryRun nothing is saved. If the file cannot be read to the end,
+     * the rows before the failure are still imported and the result is marked aborted, with the
+     * failing row among its errors.
+     */
+    public ImportResult importBills(InputStream input, String fileName, BillDataService target,
+                                    boolean dryRun, boolean allowDuplicates, int batchSize) throws IOException {
+        long started = System.currentTimeMillis();
+        try (RowReader reader = openReader(input, fileName)) {
+            ImportResult result = importRows(reader, new ImportRun(target, dryRun, allowDuplicates,
+                batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE));
+            result.durationMillis = System.currentTimeMillis() - started;
+            System.out.println("DEBUG: Imported " + result.imported + " of " + result.totalRows + " rows from " + fileName +
+                " in " + result.durationMillis + " ms (" + result.batches + " batches" + (dryRun ? ", dry run" : "") +
+                (result.aborted ? ", aborted" : "") + ")");
+            return result;
+        }
+    }
+
+    private RowReader openReader(InputStream input, String fileName) throws IOException {
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".xlsx")) {
+            return new XlsxRowReader(input);
+        }
+        if (name.endsWith(".csv") || name.endsWith(".txt")) {
+            return new CsvRowReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+        throw new IllegalArgumentException("Unsupported file type, expected .csv or .xlsx: " + fileName);
+    }
+
+    /**
+     * State of one import: the target, the rows waiting to be committed and the invoice keys seen
+     */
+    private static class ImportRun {
+        private final BillDataService target;
+        private final boolean dryRun;
+        private final boolean allowDuplicates;
+        private final int batchSize;
+        private final ImportResult result = new ImportResult();
+        private final List<ParsedRow> batch = new ArrayList<>();
+        private final Set<String> invoiceKeys = new HashSet<>();
+        // Version of bills.dat the invoice keys were last checked against
+        private long checkedVersion;
+
+        ImportRun(BillDataService target, boolean dryRun, boolean allowDuplicates, int batchSize) {
+            this.target = target;
+            this.dryRun = dryRun;
+            this.allowDuplicates = allowDuplicates;
+            this.batchSize = batchSize;
+            result.dryRun = dryRun;
+        }
+    }
+
+    private ImportResult importRows(RowReader reader, ImportRun run) throws IOException {
+        ImportResult result = run.result;
+        String[] header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The file is empty");
+        }
+        String[] fields = mapHeader(header);
+
+        if (!run.allowDuplicates) {
+            run.checkedVersion = run.target.getLoadedVersion();
+            addInvoiceKeys(run.target.getAllBillRecords(), run.invoiceKeys);
+        }
+        VendorCatalog catalog = new VendorCatalog(NetworkVendorManager.getInstance().getNetworkVendorMapping());
+
+        // Chunks are validated in parallel but drained in file order, so the first occurrence of
+        // a duplicate invoice is the one kept and errors come back sorted by row
+        Deque<Future<List<ParsedRow>>> inFlight = new ArrayDeque<>();
+        List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        int rowNumber = 1;
+        int chunkStart = 2;
+        IOException failure = null;
+        try {
+            String[] row;
+            while ((row = reader.next()) != null) {
+                rowNumber++;
+                if (isBlank(row)) {
+                    chunk.add(null);
+                } else {
+                    chunk.add(row);
+                    result.totalRows++;
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    inFlight.add(submit(chunk, chunkStart, fields, catalog));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    chunkStart = rowNumber + 1;
+                    while (inFlight.size() > VALIDATORS * 2) {
+                        drain(inFlight.poll(), run);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Earlier batches are already saved; finish the rows read so far and report where it stopped
+            failure = e;
+        }
+        if (!chunk.isEmpty()) {
+            inFlight.add(submit(chunk, chunkStart, fields, catalog));
+        }
+        while (!inFlight.isEmpty()) {
+            drain(inFlight.poll(), run);
+        }
+        commit(run);
+        if (failure != null) {
+            System.err.println("ERROR: Import stopped at row " + (rowNumber + 1) + ": " + failure.getMessage());
+            result.aborted = true;
+            result.addError(new RowError(rowNumber + 1, "Import stopped here, the rows after it were not read: " +
+                failure.getMessage()));
+        }
+        return result;
+    }
+
+    private Future<List<ParsedRow>> submit(List<String[]> rows, int firstRow, String[] fields, VendorCatalog catalog) {
+        return validators.submit(() -> {
+            List<ParsedRow> parsed = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) != null) {
+                    parsed.add(parseRow(firstRow + i, rows.get(i), fields, catalog));
+                }
+            }
+            return parsed;
+        });
+    }
+
+    private void drain(Future<List<ParsedRow>> future, ImportRun run) throws IOException {
+        List<ParsedRow> parsed;
+        try {
+            parsed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        for (ParsedRow row : parsed) {
+            if (row.error != null) {
+                run.result.addError(new RowError(row.row, row.error));
+                continue;
+            }
+            if (!run.allowDuplicates) {
+                String key = DuplicateInvoiceIndex.keyOf(row.record.getVendor(), row.record.getInvoiceNumber());
+                if (key != null && !run.invoiceKeys.add(key)) {
+                    run.result.addError(duplicateError(row));
+                    continue;
+                }
+            }
+            run.batch.add(row);
+            if (run.batch.size() >= run.batchSize) {
+                commit(run);
+            }
+        }
+    }
+
+    /**
+     * Save the pending rows in one store transaction. If bills.dat changed since the invoice keys
+     * were last checked (an edit or another import meanwhile), the batch is checked again against
+     * the reloaded bills first.
+     */
+    private void commit(ImportRun run) {
+        if (run.batch.isEmpty()) {
+            return;
+        }
+        List<BillRecord> records = run.dryRun ? recordsOf(run.batch) : run.target.inTransaction(() -> {
+            if (!run.allowDuplicates && run.target.getLoadedVersion() != run.checkedVersion) {
+                Set<String> current = new HashSet<>();
+                addInvoiceKeys(run.target.getAllBillRecords(), current);
+                run.batch.removeIf(row -> {
+                    boolean duplicate = current.contains(DuplicateInvoiceIndex.keyOf(row.record.getVendor(), row.record.getInvoiceNumber()));
+                    if (duplicate) {
+                        run.result.addError(duplicateError(row));
+                    }
+                    return duplicate;
+                });
+                run.invoiceKeys.addAll(current);
+            }
+            List<BillRecord> added = recordsOf(run.batch);
+            run.target.addBillRecords(added);
+            run.checkedVersion = run.target.getLoadedVersion();
+            return added;
+        });
+        run.result.imported += records.size();
+        run.result.batches++;
+        run.batch.clear();
+    }
+
+    private static List<BillRecord> recordsOf(List<ParsedRow> rows) {
+        List<BillRecord> records = new ArrayList<>(rows.size());
+        for (ParsedRow row : rows) {
+            records.add(row.record);
+        }
+        return records;
+    }
+
+    private static void addInvoiceKeys(List<BillRecord> bills, Set<String> keys) {
+        for (BillRecord bill : bills) {
+            String key = DuplicateInvoiceIndex.keyOf(bill.getVendor(), bill.getInvoiceNumber());
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+    }
+
+    private static RowError duplicateError(ParsedRow row) {
+        return new RowError(row.row, "Invoice " + row.record.getInvoiceNumber() + " from " +
+            row.record.getVendor() + " already exists");
+    }
+
+    /**
+     * Record field for each column, or null for columns that are not imported (e.g. "Serial No")
+     */
+    private static String[] mapHeader(String[] header) {
+        String[] fields = new String[header.length];
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < header.length; i++) {
+            String normalized = header[i] != null ? header[i].toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "") : "";
+            String field = HEADER_ALIASES.get(normalized);
+            if (field != null && seen.add(field)) {
+                fields[i] = field;
+            }
+        }
+        for (String required : new String[]{"network", "vendor", "invoiceNumber", "billWithTax", "fromDate"}) {
+            if (!seen.contains(required)) {
+                throw new IllegalArgumentException("Missing required column: " + required);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Configured networks and their vendors, looked up case-insensitively and resolved to the
+     * configured spelling
+     */
+    private static class VendorCatalog {
+        private final Map<String, String> networks = new HashMap<>();
+        private final Map<String, Map<String, String>> vendorsByNetwork = new HashMap<>();
+
+        VendorCatalog(Map<String, List<String>> mapping) {
+            for (Map.Entry<String, List<String>> entry : mapping.entrySet()) {
+                Map<String, String> vendors = new HashMap<>();
+                for (String vendor : entry.getValue()) {
+                    vendors.put(vendor.toLowerCase(Locale.ROOT), vendor);
+                }
+                networks.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getKey());
+                vendorsByNetwork.put(entry.getKey(), vendors);
+            }
+        }
+
+        String network(String name) {
+            return networks.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        String vendor(String network, String name) {
+            return vendorsByNetwork.get(network).get(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static ParsedRow parseRow(int rowNumber, String[] row, String[] fields, VendorCatalog catalog) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.length && i < row.length; i++) {
+            if (fields[i] != null && row[i] != null && !row[i].trim().isEmpty()) {
+                values.put(fields[i], row[i].trim());
+            }
+        }
+        try {
+            BillRecord record = new BillRecord();
+
+            String network = catalog.network(required(values, "network"));
+            if (network == null) {
+                return new ParsedRow(rowNumber, null, "Unknown network: " + values.get("network"));
+            }
+            String vendor = catalog.vendor(network, required(values, "vendor"));
+            if (vendor == null) {
+                return new ParsedRow(rowNumber, null, "Vendor " + values.get("vendor") + " is not configured for network " + network);
+            }
+            record.setNetwork(network);
+            record.setVendor(vendor);
+            record.setInvoiceNumber(required(values, "invoiceNumber"));
+            record.setLocation(values.get("location"));
+
+            record.setBillWithTax(parseAmount(required(values, "billWithTax"), "billWithTax"));
+            String withoutTax = values.get("billWithoutTax");
+            record.setBillWithoutTax(withoutTax != null ? parseAmount(withoutTax, "billWithoutTax")
+                                                        : amountWithoutTax(record.getBillWithTax()));
+
+            LocalDate fromDate = parseImportDate(required(values, "fromDate"), "fromDate");
+            String toValue = values.get("toDate");
+            LocalDate toDate = toValue != null ? parseImportDate(toValue, "toDate") : null;
+            if (toDate != null && toDate.isBefore(fromDate)) {
+                return new ParsedRow(rowNumber, null, "toDate " + toDate + " is before fromDate " + fromDate);
+            }
+            record.setFromDate(fromDate);
+            record.setToDate(toDate);
+            record.setYear(fromDate.getYear());
+
+            record.setSes1(values.getOrDefault("ses1", "0"));
+            record.setSes2(values.getOrDefault("ses2", "0"));
+            record.setBillingPeriod(values.get("billingPeriod"));
+            record.setStatus(values.getOrDefault("status", "Pending"));
+            record.setRemarks(values.getOrDefault("remarks", ""));
+            record.setGlCode(values.get("glCode"));
+            record.setCommitItem(values.get("commitItem"));
+            record.setCostCenter(values.get("costCenter"));
+            applyQuarter(record, values.get("quarter"), values.get("quarterString"));
+            return new ParsedRow(rowNumber, record, null);
+        } catch (IllegalArgumentException e) {
+            return new ParsedRow(rowNumber, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Amount before 18% GST, rounded to paise the way the desktop form shows it
+     */
+    static double amountWithoutTax(double billWithTax) {
+        return Math.round(billWithTax / GST_FACTOR * 100) / 100.0;
+    }
+
+    /**
+     * The quarter column holds either a number or a label such as "Q1-2024"; without one the
+     * quarter comes from the network's quarter configuration
+     */
+    private static void applyQuarter(BillRecord record, String quarter, String quarterString) {
+        if (quarter != null && quarter.matches("\\d+(\\.0+)?")) {
+            record.setQuarter((int) Double.parseDouble(quarter));
+        } else if (quarter != null && quarterString == null) {
+            quarterString = quarter;
+        }
+        if (quarterString != null) {
+            record.setQuarterString(quarterString);
+            Matcher matcher = QUARTER_LABEL.matcher(quarterString);
+            if (record.getQuarter() == 0 && matcher.matches()) {
+                record.setQuarter(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        if (record.getQuarter() == 0) {
+            record.setQuarter(Math.max(FiscalCalendar.quarterOf(record), 0));
+        }
+    }
+
+    private static String required(Map<String, String> values, String field) {
+        String value = values.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        return value;
+    }
+
+    private static double parseAmount(String value, String field) {
+        String cleaned = value.replace("₹", "").replaceAll("(?i)^(rs\\.?|inr)", "").replace(",", "").trim();
+        try {
+            return Double.parseDouble(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    /**
+     * ISO dates, the day-first formats used on invoices, or an Excel date serial number
+     */
+    static LocalDate parseImportDate(String value, String field) {
+        if (value.matches("\\d{1,6}(\\.\\d+)?")) {
+            return EXCEL_EPOCH.plusDays((long) Double.parseDouble(value));
+        }
+        try {
+            return LocalDate.parse(value.length() > 10 && value.charAt(10) == 'T' ? value.substring(0, 10) : value);
+        } catch (DateTimeParseException e) {
+            LocalDate date = InvoiceTextParser.parseDate(value);
+            if (date == null) {
+                throw new IllegalArgumentException("Invalid " + field + ": " + value);
+            }
+            return date;
+        }
+    }
+
+    private static boolean isBlank(String[] row) {
+        for (String cell : row) {
+            if (cell != null && !cell.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * RFC 4180 CSV: quoted fields may contain commas, doubled quotes and line breaks
+     */
+    static class CsvRowReader implements RowReader {
+        private final Reader reader;
+        private boolean first = true;
+        private boolean eof;
+
+        CsvRowReader(Reader reader) {
+            this.reader = new BufferedReader(reader, 64 * 1024);
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            if (eof) {
+                return null;
+            }
+            List<String> cells = new ArrayList<>();
+            StringBuilder cell = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (first) {
+                    first = false;
+                    if (c == '\uFEFF') {
+                        continue;
+                    }
+                }
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            cell.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        cell.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                }
+            }
+            if (c == -1) {
+                eof = true;
+                if (!any) {
+                    return null;
+                }
+            }
+            cells.add(cell.toString());
+            return cells.toArray(new String[0]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * First worksheet of an XLSX workbook. The zip is spooled to a temporary file because its
+     * central directory is at the end; the sheet XML itself is streamed.
+     */
+    static class XlsxRowReader implements RowReader {
+        private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+        private final Path tempFile;
+        private final ZipFile zip;
+        private final List<String> sharedStrings = new ArrayList<>();
+        private final XMLStreamReader sheet;
+        private int nextRowIndex = 1;
+        private String[] pendingRow;
+        private int pendingRowIndex;
+
+        XlsxRowReader(InputStream input) throws IOException {
+            tempFile = Files.createTempFile("bill-import", ".xlsx");
+            ZipFile opened = null;
+            try {
+                Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                opened = new ZipFile(tempFile.toFile());
+                zip = opened;
+                ZipEntry strings = zip.getEntry("xl/sharedStrings.xml");
+                if (strings != null) {
+                    readSharedStrings(zip.getInputStream(strings));
+                }
+                sheet = newFactory().createXMLStreamReader(zip.getInputStream(firstSheet(zip)));
+            } catch (IOException | XMLStreamException | RuntimeException e) {
+                if (opened != null) {
+                    opened.close();
+                }
+                Files.deleteIfExists(tempFile);
+                if (e instanceof ZipException || e instanceof XMLStreamException) {
+                    throw new IllegalArgumentException("Not a readable XLSX file: " + e.getMessage());
+                }
+                if (e instanceof IOException) {
+                    throw (IOException) e;
+                }
+                throw (RuntimeException) e;
+            }
+        }
+
+        private static XMLInputFactory newFactory() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+
+        /**
+         * The first sheet in workbook order: the first sheet listed in xl/workbook.xml, resolved
+         * to its part through xl/_rels/workbook.xml.rels (part names do not follow sheet order)
+         */
+        private static ZipEntry firstSheet(ZipFile zip) throws IOException, XMLStreamException {
+            ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+            ZipEntry relationships = zip.getEntry("xl/_rels/workbook.xml.rels");
+            if (workbook == null || relationships == null) {
+                throw new IllegalArgumentException("Not a readable XLSX file: the workbook part is missing");
+            }
+            String relationshipId = firstAttribute(zip.getInputStream(workbook), "sheet", RELATIONSHIPS_NS, "id", null, null);
+            if (relationshipId == null) {
+                throw new IllegalArgumentException("The workbook has no worksheet");
+            }
+            String target = firstAttribute(zip.getInputStream(relationships), "Relationship", null, "Target", "Id", relationshipId);
+            ZipEntry sheet = target != null ? zip.getEntry(URI.create("/xl/").resolve(target).getPath().substring(1)) : null;
+            if (sheet == null) {
+                throw new IllegalArgumentException("Not a readable XLSX file: first worksheet " + target + " is missing");
+            }
+            return sheet;
+        }
+
+        /**
+         * Attribute of the first element with the given name, optionally only among elements whose
+         * key attribute has the given value
+         */
+        private static String firstAttribute(InputStream input, String element, String namespace, String attribute,
+                                             String keyAttribute, String keyValue) throws XMLStreamException {
+            XMLStreamReader xml = newFactory().createXMLStreamReader(input);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && element.equals(xml.getLocalName())
+                            && (keyAttribute == null || keyValue.equals(xml.getAttributeValue(null, keyAttribute)))) {
+                        return xml.getAttributeValue(namespace, attribute);
+                    }
+                }
+                return null;
+            } finally {
+                xml.close();
+            }
+        }
+
+        private void readSharedStrings(InputStream input) throws XMLStreamException {
+            XMLStreamReader xml = newFactory().createXMLStreamReader(input);
+            StringBuilder text = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("si".equals(xml.getLocalName())) {
+                        text = new StringBuilder();
+                    } else if ("t".equals(xml.getLocalName()) && text != null) {
+                        text.append(xml.getElementText());
+                    } else if ("rPh".equals(xml.getLocalName())) {
+                        skip(xml);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "si".equals(xml.getLocalName())) {
+                    sharedStrings.add(text.toString());
+                    text = null;
+                }
+            }
+            xml.close();
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            try {
+                if (pendingRow == null && !readRow()) {
+                    return null;
+                }
+                // Rows with no cells are left out of the XML; report them as empty rows
+                if (nextRowIndex < pendingRowIndex) {
+                    nextRowIndex++;
+                    return new String[0];
+                }
+                String[] row = pendingRow;
+                pendingRow = null;
+                nextRowIndex++;
+                return row;
+            } catch (XMLStreamException | NumberFormatException e) {
+                throw new IOException("Invalid worksheet XML: " + e.getMessage(), e);
+            }
+        }
+
+        private boolean readRow() throws XMLStreamException {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    String r = sheet.getAttributeValue(null, "r");
+                    pendingRowIndex = r != null ? Integer.parseInt(r) : nextRowIndex;
+                    pendingRow = readCells();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String[] readCells() throws XMLStreamException {
+            List<String> cells = new ArrayList<>();
+            while (sheet.hasNext()) {
+                int event = sheet.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT || !"c".equals(sheet.getLocalName())) {
+                    continue;
+                }
+                String ref = sheet.getAttributeValue(null, "r");
+                String type = sheet.getAttributeValue(null, "t");
+                int column = ref != null ? columnIndex(ref) : cells.size();
+                String value = readCellValue(type);
+                while (cells.size() < column) {
+                    cells.add(null);
+                }
+                cells.add(value);
+            }
+            return cells.toArray(new String[0]);
+        }
+
+        private String readCellValue(String type) throws XMLStreamException {
+            String raw = null;
+            StringBuilder inline = null;
+            while (sheet.hasNext()) {
+                int event = sheet.next();
+                if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheet.getLocalName())) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = sheet.getLocalName();
+                if ("v".equals(name)) {
+                    raw = sheet.getElementText();
+                } else if ("t".equals(name)) {
+                    if (inline == null) {
+                        inline = new StringBuilder();
+                    }
+                    inline.append(sheet.getElementText());
+                } else if ("f".equals(name) || "rPh".equals(name)) {
+                    skip(sheet);
+                }
+            }
+            if ("inlineStr".equals(type)) {
+                return inline != null ? inline.toString() : null;
+            }
+            if (raw == null) {
+                return null;
+            }
+            if ("s".equals(type)) {
+                int index = Integer.parseInt(raw.trim());
+                return index < sharedStrings.size() ? sharedStrings.get(index) : null;
+            }
+            if ("b".equals(type)) {
+                return "1".equals(raw) ? "TRUE" : "FALSE";
+            }
+            // Whole numbers (invoice numbers, SES numbers) without a trailing ".0"
+            return raw.endsWith(".0") ? raw.substring(0, raw.length() - 2) : raw;
+        }
+
+        private static void skip(XMLStreamReader xml) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        /**
+         * Zero-based column of a cell reference such as "AB12"
+         */
+        static int columnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+                column = column * 26 + (Character.toUpperCase(ref.charAt(i)) - 'A' + 1);
+            }
+            return column - 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                sheet.close();
+            } catch (XMLStreamException e) {
+                // Closing the zip below releases the stream anyway
+            }
+            zip.close();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
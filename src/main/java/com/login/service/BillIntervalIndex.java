@@ -0,0 +1,75 @@
+package com.login.service;
+
+import java.util.*;
+
+/**
+ * Static interval index over bill service periods (fromDate..toDate, inclusive, as epoch days).
+ * Intervals are sorted by start and viewed as an implicit balanced tree where every subtree
+ * stores the maximum end it contains, so overlap queries run in O(log n + k).
+ */
+public class BillIntervalIndex {
+    
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] positions;
+    private final long[] maxEnd;
+    
+    /**
+     * Build from parallel arrays of interval bounds and the row positions they belong to
+     */
+    public BillIntervalIndex(long[] starts, long[] ends, int[] positions) {
+        int n = positions.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingLong(i -> starts[i]));
+        
+        this.starts = new long[n];
+        this.ends = new long[n];
+        this.positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            this.starts[i] = starts[order[i]];
+            this.ends[i] = ends[order[i]];
+            this.positions[i] = positions[order[i]];
+        }
+        this.maxEnd = new long[n];
+        buildMaxEnd(0, n - 1);
+    }
+    
+    private long buildMaxEnd(int lo, int hi) {
+        if (lo > hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(buildMaxEnd(lo, mid - 1), buildMaxEnd(mid + 1, hi)));
+        maxEnd[mid] = max;
+        return max;
+    }
+    
+    public int size() {
+        return positions.length;
+    }
+    
+    /**
+     * Row positions of every interval overlapping [from, to], in ascending position order
+     */
+    public int[] overlapping(long from, long to) {
+        List<Integer> hits = new ArrayList<>();
+        collect(0, positions.length - 1, from, to, hits);
+        int[] result = new int[hits.size()];
+        for (int i = 0; i < result.length; i++) result[i] = hits.get(i);
+        Arrays.sort(result);
+        return result;
+    }
+    
+    private void collect(int lo, int hi, long from, long to, List<Integer> hits) {
+        if (lo > hi) return;
+        int mid = (lo + hi) >>> 1;
+        // Nothing in this subtree ends on or after the query start
+        if (maxEnd[mid] < from) return;
+        collect(lo, mid - 1, from, to, hits);
+        // Intervals right of mid start at or after starts[mid]; prune once they begin past the query
+        if (starts[mid] > to) return;
+        if (ends[mid] >= from) {
+            hits.add(positions[mid]);
+        }
+        collect(mid + 1, hi, from, to, hits);
+    }
+}
@@ -0,0 +1,82 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Command-line export of the shared bill data to Parquet for analysts, e.g. from a nightly job:
+ *
+ *   java -cp app.war com.login.service.BillParquetExportUtility [output.parquet] [fiscalYear]
+ *
+ * Writes data/bills.parquet by default. The file is written to a temporary file next to the
+ * target and moved over it atomically, so a reader always finds either the previous export or the
+ * complete new one.
+ */
+public class BillParquetExportUtility {
+
+    private static final String DEFAULT_OUTPUT = "data" + File.separator + "bills.parquet";
+
+    public static void main(String[] args) {
+        String output = args.length > 0 ? args[0] : DEFAULT_OUTPUT;
+        Integer fiscalYear = null;
+        if (args.length > 1) {
+            try {
+                fiscalYear = Integer.valueOf(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Fiscal year must be a number, e.g. 2025: " + args[1]);
+                System.exit(2);
+            }
+        }
+
+        System.out.println("Exporting bills to " + output + (fiscalYear != null ? " for FY" + fiscalYear : "") + "...");
+        try {
+            long started = System.currentTimeMillis();
+            int written = exportBills(new File(output), fiscalYear);
+            System.out.println("Exported " + written + " bills to " + output + " in "
+                + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("Error during Parquet export: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Write every bill, or only the bills of one fiscal year, to the given file
+     *
+     * @return the number of bills written
+     */
+    public static int exportBills(File output, Integer fiscalYear) throws IOException {
+        List<BillRecord> bills = new BillDataService("system").getAllBillRecords();
+        if (fiscalYear != null) {
+            bills.removeIf(bill -> FiscalCalendar.fiscalYearOf(bill) != fiscalYear);
+        }
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        Path target = output.getAbsoluteFile().toPath();
+        // A temporary file of its own, so concurrent exports never write into each other
+        Path temp = Files.createTempFile(parent.toPath(), output.getName(), ".tmp");
+        try {
+            int written;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                written = new BillParquetWriter().write(bills, out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes bills as an Apache Parquet file for pandas, pyarrow, Spark or Power Query. Each fiscal
+ * year is one row group, so readers filtering on a year skip the others. Low-cardinality text
+ * columns (network, vendor, location, status, codes) are dictionary-encoded, and every page is
+ * GZIP-compressed, which makes the file a small fraction of the JSON or XLSX size.
+ *
+ * Only the subset of the format needed here is written: a flat schema, one data page (v1) per
+ * column chunk, PLAIN or dictionary encoding, and the Thrift compact metadata footer.
+ */
+public class BillParquetWriter {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final String CREATED_BY = "IndianOil Bill Tracker";
+
+    // Physical types
+    private static final int INT32 = 1;
+    private static final int DOUBLE = 5;
+    private static final int BYTE_ARRAY = 6;
+    // Repetition
+    private static final int REQUIRED = 0;
+    private static final int OPTIONAL = 1;
+    // Converted types
+    private static final int UTF8 = 0;
+    private static final int DATE = 6;
+    // Encodings
+    private static final int PLAIN = 0;
+    private static final int PLAIN_DICTIONARY = 2;
+    private static final int RLE = 3;
+    // Page types
+    private static final int DATA_PAGE = 0;
+    private static final int DICTIONARY_PAGE = 2;
+    private static final int CODEC_GZIP = 2;
+
+    private static final List<Column> COLUMNS = Arrays.asList(
+        Column.int32("serialNo", BillRecord::getSerialNo),
+        Column.int32("fiscalYear", FiscalCalendar::fiscalYearOf),
+        Column.string("network", BillRecord::getNetwork, true),
+        Column.string("vendor", BillRecord::getVendor, true),
+        Column.string("location", BillRecord::getLocation, true),
+        Column.string("invoiceNumber", BillRecord::getInvoiceNumber, false),
+        Column.float64("billWithTax", BillRecord::getBillWithTax),
+        Column.float64("billWithoutTax", BillRecord::getBillWithoutTax),
+        Column.string("ses1", BillRecord::getSes1, false),
+        Column.string("ses2", BillRecord::getSes2, false),
+        Column.string("billingPeriod", BillRecord::getBillingPeriod, true),
+        Column.date("fromDate", BillRecord::getFromDate),
+        Column.date("toDate", BillRecord::getToDate),
+        Column.string("status", BillRecord::getStatus, true),
+        Column.string("remarks", BillRecord::getRemarks, false),
+        Column.int32("year", BillRecord::getYear),
+        Column.int32("quarter", BillRecord::getQuarter),
+        Column.string("quarterString", BillRecord::getQuarterString, true),
+        Column.string("glCode", BillRecord::getGlCode, true),
+        Column.string("commitItem", BillRecord::getCommitItem, true),
+        Column.string("costCenter", BillRecord::getCostCenter, true)
+    );
+
+    private static class Column {
+        private final String name;
+        private final int type;
+        private final int repetition;
+        private final Integer convertedType;
+        private final boolean dictionary;
+        private final Function<BillRecord, Object> extractor;
+
+        private Column(String name, int type, int repetition, Integer convertedType, boolean dictionary,
+                       Function<BillRecord, Object> extractor) {
+            this.name = name;
+            this.type = type;
+            this.repetition = repetition;
+            this.convertedType = convertedType;
+            this.dictionary = dictionary;
+            this.extractor = extractor;
+        }
+
+        static Column int32(String name, Function<BillRecord, Integer> getter) {
+            return new Column(name, INT32, REQUIRED, null, false, getter::apply);
+        }
+
+        static Column float64(String name, Function<BillRecord, Double> getter) {
+            return new Column(name, DOUBLE, REQUIRED, null, false, getter::apply);
+        }
+
+        static Column date(String name, Function<BillRecord, LocalDate> getter) {
+            return new Column(name, INT32, OPTIONAL, DATE, false, record -> {
+                LocalDate date = getter.apply(record);
+                return date != null ? (int) date.toEpochDay() : null;
+            });
+        }
+
+        static Column string(String name, Function<BillRecord, String> getter, boolean dictionary) {
+            return new Column(name, BYTE_ARRAY, OPTIONAL, UTF8, dictionary, getter::apply);
+        }
+    }
+
+    /**
+     * Where a written column chunk is and what it holds, for the footer
+     */
+    private static class ChunkInfo {
+        private Column column;
+        private boolean dictionary;
+        private long dictionaryPageOffset = -1;
+        private long dataPageOffset;
+        private long totalSize;
+        private long uncompressedSize;
+        private long numValues;
+        private long nullCount;
+        private byte[] min;
+        private byte[] max;
+    }
+
+    private static class RowGroupInfo {
+        private final List<ChunkInfo> chunks = new ArrayList<>();
+        private long numRows;
+        private long totalByteSize;
+    }
+
+    /**
+     * Write the bills as a Parquet file, one row group per fiscal year in ascending order.
+     * Returns the number of bills written.
+     */
+    public int write(List<BillRecord> bills, OutputStream out) throws IOException {
+        Map<Integer, List<BillRecord>> byFiscalYear = new TreeMap<>();
+        for (BillRecord bill : bills) {
+            byFiscalYear.computeIfAbsent(FiscalCalendar.fiscalYearOf(bill), year -> new ArrayList<>()).add(bill);
+        }
+
+        CountingOutputStream file = new CountingOutputStream(out);
+        file.write(MAGIC);
+        List<RowGroupInfo> rowGroups = new ArrayList<>();
+        for (List<BillRecord> group : byFiscalYear.values()) {
+            RowGroupInfo rowGroup = new RowGroupInfo();
+            rowGroup.numRows = group.size();
+            for (Column column : COLUMNS) {
+                ChunkInfo chunk = writeColumnChunk(file, column, group);
+                rowGroup.chunks.add(chunk);
+                rowGroup.totalByteSize += chunk.uncompressedSize;
+            }
+            rowGroups.add(rowGroup);
+        }
+
+        byte[] footer = fileMetaData(bills.size(), rowGroups);
+        file.write(footer);
+        writeIntLE(file, footer.length);
+        file.write(MAGIC);
+        file.flush();
+        return bills.size();
+    }
+
+    private ChunkInfo writeColumnChunk(CountingOutputStream file, Column column, List<BillRecord> rows) throws IOException {
+        ChunkInfo chunk = new ChunkInfo();
+        chunk.column = column;
+        chunk.numValues = rows.size();
+
+        List<Object> values = new ArrayList<>(rows.size());
+        boolean[] defined = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object value = column.extractor.apply(rows.get(i));
+            defined[i] = value != null;
+            if (value != null) {
+                values.add(value);
+            } else {
+                chunk.nullCount++;
+            }
+        }
+        if (column.type != BYTE_ARRAY) {
+            collectMinMax(chunk, values);
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        long start = file.getCount();
+        if (column.repetition == OPTIONAL) {
+            byte[] levels = bitPackedRun(defined.length, 1, i -> defined[i] ? 1 : 0);
+            writeIntLE(body, levels.length);
+            body.write(levels);
+        }
+
+        // A chunk with no values at all is written plain, as there is nothing to look up
+        chunk.dictionary = column.dictionary && !values.isEmpty();
+        if (chunk.dictionary) {
+            Map<Object, Integer> dictionary = new LinkedHashMap<>();
+            int[] indices = new int[values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                indices[i] = dictionary.computeIfAbsent(values.get(i), value -> dictionary.size());
+            }
+            ByteArrayOutputStream dictionaryValues = new ByteArrayOutputStream();
+            for (Object value : dictionary.keySet()) {
+                writePlain(dictionaryValues, column.type, value);
+            }
+            chunk.dictionaryPageOffset = file.getCount();
+            chunk.uncompressedSize += writePage(file, DICTIONARY_PAGE, dictionaryValues.toByteArray(), dictionary.size(), PLAIN_DICTIONARY);
+
+            int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(dictionary.size() - 1, 0)));
+            body.write(bitWidth);
+            body.write(bitPackedRun(indices.length, bitWidth, i -> indices[i]));
+        } else {
+            for (Object value : values) {
+                writePlain(body, column.type, value);
+            }
+        }
+
+        chunk.dataPageOffset = file.getCount();
+        chunk.uncompressedSize += writePage(file, DATA_PAGE, body.toByteArray(), rows.size(),
+            chunk.dictionary ? PLAIN_DICTIONARY : PLAIN);
+        chunk.totalSize = file.getCount() - start;
+        return chunk;
+    }
+
+    /**
+     * Write a GZIP-compressed page with its header; returns the uncompressed size including the header
+     */
+    private static long writePage(OutputStream file, int pageType, byte[] body, int numValues, int encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+
+        ThriftWriter header = new ThriftWriter();
+        header.i32(1, pageType);
+        header.i32(2, body.length);
+        header.i32(3, compressed.size());
+        if (pageType == DICTIONARY_PAGE) {
+            header.beginStruct(7);
+            header.i32(1, numValues);
+            header.i32(2, encoding);
+            header.endStruct();
+        } else {
+            header.beginStruct(5);
+            header.i32(1, numValues);
+            header.i32(2, encoding);
+            header.i32(3, RLE);
+            header.i32(4, RLE);
+            header.endStruct();
+        }
+        header.endStruct();
+
+        byte[] headerBytes = header.toByteArray();
+        file.write(headerBytes);
+        compressed.writeTo(file);
+        return headerBytes.length + body.length;
+    }
+
+    private static void collectMinMax(ChunkInfo chunk, List<Object> values) throws IOException {
+        Object min = null;
+        Object max = null;
+        for (Object value : values) {
+            if (min == null || compare(value, min) < 0) {
+                min = value;
+            }
+            if (max == null || compare(value, max) > 0) {
+                max = value;
+            }
+        }
+        if (min != null) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            writePlain(encoded, chunk.column.type, min);
+            chunk.min = encoded.toByteArray();
+            encoded.reset();
+            writePlain(encoded, chunk.column.type, max);
+            chunk.max = encoded.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static void writePlain(OutputStream out, int type, Object value) throws IOException {
+        switch (type) {
+            case INT32:
+                writeIntLE(out, (Integer) value);
+                break;
+            case DOUBLE:
+                long bits = Double.doubleToLongBits((Double) value);
+                writeIntLE(out, (int) bits);
+                writeIntLE(out, (int) (bits >>> 32));
+                break;
+            default:
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                writeIntLE(out, bytes.length);
+                out.write(bytes);
+        }
+    }
+
+    private interface IntSource {
+        int get(int index);
+    }
+
+    /**
+     * RLE/bit-packing hybrid encoding of count values as a single bit-packed run. The last
+     * group of eight is padded with zeros, which readers ignore.
+     */
+    private static byte[] bitPackedRun(int count, int bitWidth, IntSource values) {
+        int groups = (count + 7) / 8;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(groups * bitWidth + 5);
+        writeVarInt(out, ((long) groups << 1) | 1);
+        long buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < groups * 8; i++) {
+            long value = i < count ? values.get(i) : 0;
+            buffer |= value << bits;
+            bits += bitWidth;
+            while (bits >= 8) {
+                out.write((int) (buffer & 0xFF));
+                buffer >>>= 8;
+                bits -= 8;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] fileMetaData(long numRows, List<RowGroupInfo> rowGroups) {
+        ThriftWriter meta = new ThriftWriter();
+        meta.i32(1, 1);
+
+        meta.beginList(2, ThriftWriter.STRUCT, COLUMNS.size() + 1);
+        meta.beginListStruct();
+        meta.string(4, "bill");
+        meta.i32(5, COLUMNS.size());
+        meta.endStruct();
+        for (Column column : COLUMNS) {
+            meta.beginListStruct();
+            meta.i32(1, column.type);
+            meta.i32(3, column.repetition);
+            meta.string(4, column.name);
+            if (column.convertedType != null) {
+                meta.i32(6, column.convertedType);
+                // LogicalType union: STRING (1) or DATE (6), both empty structs
+                meta.beginStruct(10);
+                meta.beginStruct(column.convertedType == UTF8 ? 1 : 6);
+                meta.endStruct();
+                meta.endStruct();
+            }
+            meta.endStruct();
+        }
+
+        meta.i64(3, numRows);
+
+        meta.beginList(4, ThriftWriter.STRUCT, rowGroups.size());
+        for (RowGroupInfo rowGroup : rowGroups) {
+            meta.beginListStruct();
+            meta.beginList(1, ThriftWriter.STRUCT, rowGroup.chunks.size());
+            for (ChunkInfo chunk : rowGroup.chunks) {
+                meta.beginListStruct();
+                meta.i64(2, chunk.dictionaryPageOffset >= 0 ? chunk.dictionaryPageOffset : chunk.dataPageOffset);
+                meta.beginStruct(3);
+                meta.i32(1, chunk.column.type);
+                List<Integer> encodings = chunk.dictionary
+                    ? Arrays.asList(PLAIN_DICTIONARY, RLE) : Arrays.asList(PLAIN, RLE);
+                meta.beginList(2, ThriftWriter.I32, encodings.size());
+                for (int encoding : encodings) {
+                    meta.listI32(encoding);
+                }
+                meta.beginList(3, ThriftWriter.BINARY, 1);
+                meta.listString(chunk.column.name);
+                meta.i32(4, CODEC_GZIP);
+                meta.i64(5, chunk.numValues);
+                meta.i64(6, chunk.uncompressedSize);
+                meta.i64(7, chunk.totalSize);
+                meta.i64(9, chunk.dataPageOffset);
+                if (chunk.dictionaryPageOffset >= 0) {
+                    meta.i64(11, chunk.dictionaryPageOffset);
+                }
+                meta.beginStruct(12);
+                meta.i64(3, chunk.nullCount);
+                if (chunk.min != null) {
+                    meta.binary(5, chunk.max);
+                    meta.binary(6, chunk.min);
+                }
+                meta.endStruct();
+                meta.endStruct();
+                meta.endStruct();
+            }
+            meta.i64(2, rowGroup.totalByteSize);
+            meta.i64(3, rowGroup.numRows);
+            meta.endStruct();
+        }
+
+        meta.string(6, CREATED_BY);
+        meta.endStruct();
+        return meta.toByteArray();
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Thrift compact protocol, just enough to write the Parquet page headers and footer
+     */
+    private static class ThriftWriter {
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int LIST = 9;
+        static final int STRUCT = 12;
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Deque<Integer> lastFieldIds = new ArrayDeque<>();
+        private int lastFieldId;
+
+        void i32(int id, int value) {
+            fieldHeader(id, I32);
+            writeVarInt(out, zigzag(value));
+        }
+
+        void i64(int id, long value) {
+            fieldHeader(id, I64);
+            writeVarInt(out, zigzag(value));
+        }
+
+        void string(int id, String value) {
+            binary(id, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void binary(int id, byte[] value) {
+            fieldHeader(id, BINARY);
+            writeVarInt(out, value.length);
+            out.write(value, 0, value.length);
+        }
+
+        void beginStruct(int id) {
+            fieldHeader(id, STRUCT);
+            lastFieldIds.push(lastFieldId);
+            lastFieldId = 0;
+        }
+
+        /**
+         * Start a struct that is an element of a list (no field header)
+         */
+        void beginListStruct() {
+            lastFieldIds.push(lastFieldId);
+            lastFieldId = 0;
+        }
+
+        void endStruct() {
+            out.write(0);
+            lastFieldId = lastFieldIds.isEmpty() ? 0 : lastFieldIds.pop();
+        }
+
+        void beginList(int id, int elementType, int size) {
+            fieldHeader(id, LIST);
+            if (size < 15) {
+                out.write((size << 4) | elementType);
+            } else {
+                out.write(0xF0 | elementType);
+                writeVarInt(out, size);
+            }
+        }
+
+        void listI32(int value) {
+            writeVarInt(out, zigzag(value));
+        }
+
+        void listString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void fieldHeader(int id, int type) {
+            int delta = id - lastFieldId;
+            if (delta > 0 && delta <= 15) {
+                out.write((delta << 4) | type);
+            } else {
+                out.write(type);
+                writeVarInt(out, zigzag(id));
+            }
+            lastFieldId = id;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cost-based query engine over a snapshot of bill records.
+ * Keeps bitmap indexes and column statistics for the categorical columns and a
+ * sorted index with an equi-depth histogram for bill amounts, and picks between a
+ * full scan, a bitmap intersection or a sorted-index walk per query.
+ */
+public class BillQueryEngine {
+
+    /**
+     * Indexed categorical columns of a bill record
+     */
+    public enum Column {
+        NETWORK(BillRecord::getNetwork),
+        VENDOR(BillRecord::getVendor),
+        LOCATION(BillRecord::getLocation),
+        INVOICE_NUMBER(BillRecord::getInvoiceNumber),
+        STATUS(BillRecord::getStatus),
+        YEAR(BillRecord::getYear),
+        QUARTER(BillRecord::getQuarter),
+        QUARTER_STRING(BillRecord::getQuarterString),
+        COST_CENTER(BillRecord::getCostCenter),
+        GL_CODE(BillRecord::getGlCode),
+        COMMIT_ITEM(BillRecord::getCommitItem);
+
+        private final Function<BillRecord, Object> extractor;
+
+        Column(Function<BillRecord, Object> extractor) {
+            this.extractor = extractor;
+        }
+
+        public Object valueOf(BillRecord record) {
+            return extractor.apply(record);
+        }
+    }
+
+    /**
+     * Access paths the planner can choose from
+     */
+    public enum AccessPath {
+        FULL_SCAN, BITMAP_INTERSECTION, SORTED_INDEX_WALK
+    }
+
+    /**
+     * Query criteria: equality predicates on indexed columns plus an optional amount range
+     */
+    public static class Criteria {
+        private final Map<Column, Object> equalities = new EnumMap<>(Column.class);
+        private Double minAmount;
+        private Double maxAmount;
+
+        /**
+         * Add an equality predicate; null values are ignored so callers can pass optional filters
+         */
+        public Criteria where(Column column, Object value) {
+            if (value != null) {
+                equalities.put(column, value);
+            }
+            return this;
+        }
+
+        /**
+         * Restrict bill amount (with tax) to an inclusive range; either bound may be null
+         */
+        public Criteria amountBetween(Double min, Double max) {
+            this.minAmount = min;
+            this.maxAmount = max;
+            return this;
+        }
+
+        public Map<Column, Object> getEqualities() { return equalities; }
+        public Double getMinAmount() { return minAmount; }
+        public Double getMaxAmount() { return maxAmount; }
+
+        public boolean hasAmountRange() {
+            return minAmount != null || maxAmount != null;
+        }
+
+        public int predicateCount() {
+            return equalities.size() + (hasAmountRange() ? 1 : 0);
+        }
+
+        public boolean matches(BillRecord record) {
+            for (Map.Entry<Column, Object> entry : equalities.entrySet()) {
+                if (!entry.getValue().equals(entry.getKey().valueOf(record))) {
+                    return false;
+                }
+            }
+            double amount = record.getBillWithTax();
+            return (minAmount == null || amount >= minAmount) && (maxAmount == null || amount <= maxAmount);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<Column, Object> entry : equalities.entrySet()) {
+                if (sb.length() > 0) sb.append(" AND ");
+                sb.append(entry.getKey()).append(" = '").append(entry.getValue()).append("'");
+            }
+            if (hasAmountRange()) {
+                if (sb.length() > 0) sb.append(" AND ");
+                sb.append("BILL_WITH_TAX BETWEEN ")
+                  .append(minAmount != null ? minAmount : "-inf").append(" AND ")
+                  .append(maxAmount != null ? maxAmount : "+inf");
+            }
+            return sb.length() > 0 ? sb.toString() : "TRUE";
+        }
+    }
+
+    /**
+     * Per-column statistics used for selectivity estimation
+     */
+    public static class ColumnStatistics {
+        private final String column;
+        private final int rowCount;
+        private final int distinctCount;
+        private final int nullCount;
+        private final Map<String, Integer> mostCommonValues;
+
+        ColumnStatistics(String column, int rowCount, int distinctCount, int nullCount, Map<String, Integer> mostCommonValues) {
+            this.column = column;
+            this.rowCount = rowCount;
+            this.distinctCount = distinctCount;
+            this.nullCount = nullCount;
+            this.mostCommonValues = mostCommonValues;
+        }
+
+        public String getColumn() { return column; }
+        public int getRowCount() { return rowCount; }
+        public int getDistinctCount() { return distinctCount; }
+        public int getNullCount() { return nullCount; }
+        public Map<String, Integer> getMostCommonValues() { return mostCommonValues; }
+    }
+
+    /**
+     * Result of planning a query, with EXPLAIN-style output
+     */
+    public static class QueryPlan {
+        private final String criteria;
+        private final AccessPath accessPath;
+        private final List<String> indexColumns;
+        private final long estimatedRows;
+        private final Map<AccessPath, Double> costs;
+        private long actualRows = -1;
+        private long elapsedMicros = -1;
+
+        QueryPlan(String criteria, AccessPath accessPath, List<String> indexColumns,
+                  long estimatedRows, Map<AccessPath, Double> costs) {
+            this.criteria = criteria;
+            this.accessPath = accessPath;
+            this.indexColumns = indexColumns;
+            this.estimatedRows = estimatedRows;
+            this.costs = costs;
+        }
+
+        public String getCriteria() { return criteria; }
+        public AccessPath getAccessPath() { return accessPath; }
+        public List<String> getIndexColumns() { return indexColumns; }
+        public long getEstimatedRows() { return estimatedRows; }
+        public Map<AccessPath, Double> getCosts() { return costs; }
+        public long getActualRows() { return actualRows; }
+        public long getElapsedMicros() { return elapsedMicros; }
+
+        public String getExplain() {
+            return toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(accessPath);
+            if (!indexColumns.isEmpty()) {
+                sb.append(" using ").append(indexColumns);
+            }
+            sb.append(" (est rows=").append(estimatedRows);
+            if (actualRows >= 0) {
+                sb.append(", actual rows=").append(actualRows).append(", time=").append(elapsedMicros).append("us");
+            }
+            sb.append(")\n  filter: ").append(criteria);
+            for (Map.Entry<AccessPath, Double> entry : costs.entrySet()) {
+                sb.append("\n  cost ").append(entry.getKey()).append(" = ").append(String.format("%.1f", entry.getValue()));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Cost model units: one per row visited, one per predicate evaluated, one per 64-bit bitmap word
+    private static final double ROW_VISIT_COST = 1.0;
+    private static final double PREDICATE_COST = 0.5;
+    private static final double WORD_COST = 1.0;
+    private static final int HISTOGRAM_BUCKETS = 32;
+    private static final int MOST_COMMON_VALUES = 5;
+
+    private final int rowCount;
+    private final Map<Column, Map<Object, BitSet>> bitmaps = new EnumMap<>(Column.class);
+    private final Map<Column, Integer> nullCounts = new EnumMap<>(Column.class);
+    private final int[] amountOrder;       // row positions sorted by billWithTax
+    private final double[] sortedAmounts;  // billWithTax in amountOrder
+    private final double[] histogramBounds;
+    private final BillIntervalIndex periodIndex;
+    private final long[] periodStarts;     // fromDate as epoch day per row, Long.MIN_VALUE if absent
+    private final long[] periodEnds;       // toDate as epoch day per row
+    private final Map<String, BillIntervalIndex> vendorLocationPeriodIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Build indexes and statistics over the given records; positions refer to the list order
+     */
+    public BillQueryEngine(List<BillRecord> records) {
+        this.rowCount = records.size();
+
+        for (Column column : Column.values()) {
+            Map<Object, BitSet> postings = new HashMap<>();
+            int nulls = 0;
+            for (int i = 0; i < rowCount; i++) {
+                Object value = column.valueOf(records.get(i));
+                if (value == null) {
+                    nulls++;
+                } else {
+                    postings.computeIfAbsent(value, k -> new BitSet(rowCount)).set(i);
+                }
+            }
+            bitmaps.put(column, postings);
+            nullCounts.put(column, nulls);
+        }
+
+        Integer[] order = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> records.get(i).getBillWithTax()));
+        amountOrder = new int[rowCount];
+        sortedAmounts = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            amountOrder[i] = order[i];
+            sortedAmounts[i] = records.get(order[i]).getBillWithTax();
+        }
+
+        // Equi-depth histogram: bucket b holds rows (b * n / B) .. ((b + 1) * n / B)
+        int buckets = Math.min(HISTOGRAM_BUCKETS, Math.max(rowCount, 1));
+        histogramBounds = new double[buckets + 1];
+        if (rowCount > 0) {
+            for (int b = 0; b <= buckets; b++) {
+                int idx = Math.min(rowCount - 1, (int) ((long) b * rowCount / buckets));
+                histogramBounds[b] = sortedAmounts[idx];
+            }
+            histogramBounds[buckets] = sortedAmounts[rowCount - 1];
+        }
+        
+        // Service periods; a missing toDate is treated as a single-day period
+        periodStarts = new long[rowCount];
+        periodEnds = new long[rowCount];
+        BitSet withPeriod = new BitSet(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            BillRecord record = records.get(i);
+            if (record.getFromDate() != null) {
+                periodStarts[i] = record.getFromDate().toEpochDay();
+                periodEnds[i] = record.getToDate() != null ? record.getToDate().toEpochDay() : periodStarts[i];
+                withPeriod.set(i);
+            } else {
+                periodStarts[i] = Long.MIN_VALUE;
+            }
+        }
+        periodIndex = buildPeriodIndex(withPeriod);
+    }
+    
+    private BillIntervalIndex buildPeriodIndex(BitSet rows) {
+        int n = rows.cardinality();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        int[] positions = new int[n];
+        int j = 0;
+        for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+            starts[j] = periodStarts[i];
+            ends[j] = periodEnds[i];
+            positions[j++] = i;
+        }
+        return new BillIntervalIndex(starts, ends, positions);
+    }
+    
+    /**
+     * Row positions of bills whose service period overlaps [from, to] (epoch days, inclusive)
+     */
+    public int[] overlappingPeriods(long from, long to) {
+        return periodIndex.overlapping(from, to);
+    }
+    
+    /**
+     * Row positions of bills for one vendor and location whose service period overlaps [from, to].
+     * The per vendor/location index is built on first use from the bitmap indexes.
+     */
+    public int[] overlappingPeriods(String vendor, String location, long from, long to) {
+        if (vendor == null || location == null) {
+            return new int[0];
+        }
+        BillIntervalIndex index = vendorLocationPeriodIndexes.computeIfAbsent(vendor + "|" + location, key -> {
+            BitSet rows = new BitSet(rowCount);
+            BitSet vendorRows = bitmaps.get(Column.VENDOR).get(vendor);
+            BitSet locationRows = bitmaps.get(Column.LOCATION).get(location);
+            if (vendorRows != null && locationRows != null) {
+                rows.or(vendorRows);
+                rows.and(locationRows);
+                for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                    if (periodStarts[i] == Long.MIN_VALUE) rows.clear(i);
+                }
+            }
+            return buildPeriodIndex(rows);
+        });
+        return index.overlapping(from, to);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Cardinality and most common values for every indexed column
+     */
+    public List<ColumnStatistics> getColumnStatistics() {
+        List<ColumnStatistics> stats = new ArrayList<>();
+        for (Column column : Column.values()) {
+            Map<Object, BitSet> postings = bitmaps.get(column);
+            Map<String, Integer> common = new LinkedHashMap<>();
+            postings.entrySet().stream()
+                .sorted((a, b) -> Integer.compare(b.getValue().cardinality(), a.getValue().cardinality()))
+                .limit(MOST_COMMON_VALUES)
+                .forEach(e -> common.put(String.valueOf(e.getKey()), e.getValue().cardinality()));
+            stats.add(new ColumnStatistics(column.name(), rowCount, postings.size(), nullCounts.get(column), common));
+        }
+        return stats;
+    }
+
+    /**
+     * Equi-depth histogram boundaries over billWithTax
+     */
+    public double[] getAmountHistogram() {
+        return histogramBounds.clone();
+    }
+
+    /**
+     * Estimated fraction of rows matching an equality predicate
+     */
+    private double equalitySelectivity(Column column, Object value) {
+        if (rowCount == 0) return 0;
+        BitSet posting = bitmaps.get(column).get(value);
+        return posting == null ? 0 : (double) posting.cardinality() / rowCount;
+    }
+
+    /**
+     * Estimated fraction of rows inside an amount range, interpolated from the histogram
+     */
+    private double rangeSelectivity(Double min, Double max) {
+        if (rowCount == 0) return 0;
+        double lo = min != null ? min : Double.NEGATIVE_INFINITY;
+        double hi = max != null ? max : Double.POSITIVE_INFINITY;
+        int buckets = histogramBounds.length - 1;
+        double covered = 0;
+        for (int b = 0; b < buckets; b++) {
+            double bLo = histogramBounds[b];
+            double bHi = histogramBounds[b + 1];
+            if (hi < bLo || lo > bHi) continue;
+            if (bHi <= bLo) {
+                covered += 1;
+            } else {
+                double overlap = Math.min(hi, bHi) - Math.max(lo, bLo);
+                covered += Math.max(0, Math.min(1, overlap / (bHi - bLo)));
+            }
+        }
+        return Math.min(1.0, covered / buckets);
+    }
+
+    /**
+     * Choose the cheapest access path for the criteria
+     */
+    public QueryPlan plan(Criteria criteria) {
+        int predicates = criteria.predicateCount();
+        double n = rowCount;
+        Map<AccessPath, Double> costs = new EnumMap<>(AccessPath.class);
+
+        double scanCost = n * (ROW_VISIT_COST + predicates * PREDICATE_COST);
+        costs.put(AccessPath.FULL_SCAN, scanCost);
+
+        // Overall selectivity under the independence assumption
+        double selectivity = 1.0;
+        List<Map.Entry<Column, Object>> ordered = new ArrayList<>(criteria.getEqualities().entrySet());
+        ordered.sort(Comparator.comparingDouble(e -> equalitySelectivity(e.getKey(), e.getValue())));
+        for (Map.Entry<Column, Object> entry : ordered) {
+            selectivity *= equalitySelectivity(entry.getKey(), entry.getValue());
+        }
+        double rangeSel = criteria.hasAmountRange() ? rangeSelectivity(criteria.getMinAmount(), criteria.getMaxAmount()) : 1.0;
+        long estimatedRows = Math.round(n * selectivity * rangeSel);
+
+        // Bitmap intersection: greedily add the most selective bitmaps while that lowers the cost
+        List<String> bitmapColumns = new ArrayList<>();
+        if (!ordered.isEmpty()) {
+            double words = Math.ceil(n / 64.0);
+            double best = Double.MAX_VALUE;
+            double candidates = n;
+            for (int used = 1; used <= ordered.size(); used++) {
+                Map.Entry<Column, Object> entry = ordered.get(used - 1);
+                candidates *= equalitySelectivity(entry.getKey(), entry.getValue());
+                int residual = predicates - used;
+                double cost = used * words * WORD_COST + candidates * (ROW_VISIT_COST + residual * PREDICATE_COST);
+                if (cost < best) {
+                    best = cost;
+                    bitmapColumns.add(entry.getKey().name());
+                } else {
+                    break;
+                }
+            }
+            costs.put(AccessPath.BITMAP_INTERSECTION, best);
+        }
+
+        if (criteria.hasAmountRange()) {
+            double walked = n * rangeSel;
+            double cost = Math.log(Math.max(n, 2)) / Math.log(2) + walked * (ROW_VISIT_COST + (predicates - 1) * PREDICATE_COST);
+            costs.put(AccessPath.SORTED_INDEX_WALK, cost);
+        }
+
+        AccessPath chosen = AccessPath.FULL_SCAN;
+        for (Map.Entry<AccessPath, Double> entry : costs.entrySet()) {
+            if (entry.getValue() < costs.get(chosen)) {
+                chosen = entry.getKey();
+            }
+        }
+
+        List<String> indexColumns;
+        if (chosen == AccessPath.BITMAP_INTERSECTION) {
+            indexColumns = bitmapColumns;
+        } else if (chosen == AccessPath.SORTED_INDEX_WALK) {
+            indexColumns = Collections.singletonList("BILL_WITH_TAX");
+        } else {
+            indexColumns = Collections.emptyList();
+        }
+        return new QueryPlan(criteria.toString(), chosen, indexColumns, estimatedRows, costs);
+    }
+
+    /**
+     * Run the criteria against the records this engine was built from, in list order
+     */
+    public List<BillRecord> execute(Criteria criteria, List<BillRecord> records) {
+        return execute(plan(criteria), criteria, records);
+    }
+
+    /**
+     * Run an already planned query and record actual rows and timing on the plan
+     */
+    public List<BillRecord> execute(QueryPlan plan, Criteria criteria, List<BillRecord> records) {
+        if (records.size() != rowCount) {
+            throw new IllegalStateException("Query engine is stale: indexed " + rowCount + " rows, got " + records.size());
+        }
+        long start = System.nanoTime();
+        List<BillRecord> result = new ArrayList<>();
+
+        switch (plan.getAccessPath()) {
+            case BITMAP_INTERSECTION: {
+                BitSet matches = null;
+                for (String name : plan.getIndexColumns()) {
+                    Column column = Column.valueOf(name);
+                    BitSet posting = bitmaps.get(column).get(criteria.getEqualities().get(column));
+                    if (posting == null) {
+                        matches = new BitSet();
+                        break;
+                    }
+                    if (matches == null) {
+                        matches = (BitSet) posting.clone();
+                    } else {
+                        matches.and(posting);
+                    }
+                }
+                for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                    BillRecord record = records.get(i);
+                    if (criteria.matches(record)) {
+                        result.add(record);
+                    }
+                }
+                break;
+            }
+            case SORTED_INDEX_WALK: {
+                int from = criteria.getMinAmount() != null ? lowerBound(criteria.getMinAmount()) : 0;
+                BitSet hits = new BitSet(rowCount);
+                for (int i = from; i < rowCount; i++) {
+                    if (criteria.getMaxAmount() != null && sortedAmounts[i] > criteria.getMaxAmount()) break;
+                    BillRecord record = records.get(amountOrder[i]);
+                    if (criteria.matches(record)) {
+                        hits.set(amountOrder[i]);
+                    }
+                }
+                // Keep results in list order so every access path returns the same sequence
+                for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                    result.add(records.get(i));
+                }
+                break;
+            }
+            default:
+                for (BillRecord record : records) {
+                    if (criteria.matches(record)) {
+                        result.add(record);
+                    }
+                }
+        }
+
+        plan.actualRows = result.size();
+        plan.elapsedMicros = (System.nanoTime() - start) / 1000;
+        return result;
+    }
+
+    /**
+     * First position in the sorted amount index with amount >= value
+     */
+    private int lowerBound(double value) {
+        int lo = 0, hi = rowCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedAmounts[mid] < value) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,334 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes bills as an Excel workbook or CSV straight to an output stream, one row at a time, so an
+ * export never holds the file in memory. The workbook is written as the zipped XML it consists
+ * of, with inline strings instead of a shared-string table, so memory use does not grow with the
+ * number of rows. It has the same "Bills Data" columns as the browser export plus an
+ * "Analytics Summary" sheet of totals per year, network and vendor, gathered while the rows are
+ * written.
+ */
+public class BillSpreadsheetWriter {
+
+    private static final String[] HEADERS = {
+        "Serial No", "Network", "Vendor", "Quarter", "Location", "Invoice Number",
+        "Bill (With Tax)", "Bill (Without Tax)", "SES 1", "SES 2", "Billing Period",
+        "From Date", "To Date", "GL Code", "Commit Item", "Cost Center", "Status", "Remarks"
+    };
+    private static final int[] WIDTHS = {10, 15, 20, 12, 25, 20, 15, 15, 10, 10, 15, 12, 12, 12, 15, 15, 12, 30};
+
+    private static final String[] SUMMARY_HEADERS = {
+        "Year", "Network", "Vendor", "Total With Tax", "Total Without Tax", "GL Codes", "Commit Items", "Cost Centers"
+    };
+    private static final int[] SUMMARY_WIDTHS = {8, 15, 20, 18, 18, 15, 15, 15};
+
+    // Cell styles defined in styles.xml
+    private static final int STYLE_DATE = 1;
+    private static final int STYLE_HEADER = 2;
+    private static final int STYLE_AMOUNT = 3;
+
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static class SummaryRow {
+        private final String year;
+        private final String network;
+        private final String vendor;
+        private double totalWithTax;
+        private double totalWithoutTax;
+        private final Set<String> glCodes = new LinkedHashSet<>();
+        private final Set<String> commitItems = new LinkedHashSet<>();
+        private final Set<String> costCenters = new LinkedHashSet<>();
+
+        SummaryRow(String year, String network, String vendor) {
+            this.year = year;
+            this.network = network;
+            this.vendor = vendor;
+        }
+    }
+
+    /**
+     * Write an .xlsx workbook with a "Bills Data" and an "Analytics Summary" sheet. Returns the
+     * number of bills written.
+     */
+    public int writeXlsx(Iterable<BillRecord> bills, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Writer xml = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+
+        writePart(zip, xml, "[Content_Types].xml",
+            "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+            "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" +
+            "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+            "<Override PartName=\"/xl/worksheets/sheet2.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+            "</Types>");
+        writePart(zip, xml, "_rels/.rels",
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>");
+        writePart(zip, xml, "xl/workbook.xml",
+            "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>" +
+            "<sheet name=\"Bills Data\" sheetId=\"1\" r:id=\"rId1\"/>" +
+            "<sheet name=\"Analytics Summary\" sheetId=\"2\" r:id=\"rId2\"/>" +
+            "</sheets></workbook>");
+        writePart(zip, xml, "xl/_rels/workbook.xml.rels",
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+            "<Relationship Id=\"rId2\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet2.xml\"/>" +
+            "<Relationship Id=\"rId3\" Type=\"" + REL_NS + "/styles\" Target=\"styles.xml\"/>" +
+            "</Relationships>");
+        writePart(zip, xml, "xl/styles.xml",
+            "<styleSheet xmlns=\"" + MAIN_NS + "\">" +
+            "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>" +
+            "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" +
+            "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" +
+            "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" +
+            "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" +
+            "<cellXfs count=\"4\">" +
+            "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" +
+            "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>" +
+            "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>" +
+            "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>" +
+            "</cellXfs></styleSheet>");
+
+        Map<String, SummaryRow> summary = new TreeMap<>();
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        startSheet(xml, WIDTHS);
+        writeHeaderRow(xml, HEADERS);
+        int row = 1;
+        for (BillRecord bill : bills) {
+            row++;
+            xml.write("<row r=\"" + row + "\">");
+            numberCell(xml, bill.getSerialNo(), 0);
+            textCell(xml, bill.getNetwork());
+            textCell(xml, bill.getVendor());
+            textCell(xml, quarterOf(bill));
+            textCell(xml, bill.getLocation());
+            textCell(xml, bill.getInvoiceNumber());
+            numberCell(xml, bill.getBillWithTax(), STYLE_AMOUNT);
+            numberCell(xml, bill.getBillWithoutTax(), STYLE_AMOUNT);
+            textCell(xml, bill.getSes1());
+            textCell(xml, bill.getSes2());
+            textCell(xml, bill.getBillingPeriod());
+            dateCell(xml, bill.getFromDate());
+            dateCell(xml, bill.getToDate());
+            textCell(xml, bill.getGlCode());
+            textCell(xml, bill.getCommitItem());
+            textCell(xml, bill.getCostCenter());
+            textCell(xml, bill.getStatus() != null ? bill.getStatus() : "Pending");
+            textCell(xml, bill.getRemarks());
+            xml.write("</row>");
+            addToSummary(summary, bill);
+        }
+        endSheet(xml);
+        xml.flush();
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet2.xml"));
+        startSheet(xml, SUMMARY_WIDTHS);
+        writeHeaderRow(xml, SUMMARY_HEADERS);
+        int summaryRow = 1;
+        for (SummaryRow item : summary.values()) {
+            summaryRow++;
+            xml.write("<row r=\"" + summaryRow + "\">");
+            textCell(xml, item.year);
+            textCell(xml, item.network);
+            textCell(xml, item.vendor);
+            numberCell(xml, item.totalWithTax, STYLE_AMOUNT);
+            numberCell(xml, item.totalWithoutTax, STYLE_AMOUNT);
+            textCell(xml, String.join(", ", item.glCodes));
+            textCell(xml, String.join(", ", item.commitItems));
+            textCell(xml, String.join(", ", item.costCenters));
+            xml.write("</row>");
+        }
+        endSheet(xml);
+        xml.flush();
+        zip.closeEntry();
+
+        zip.finish();
+        return row - 1;
+    }
+
+    /**
+     * Write the "Bills Data" columns as UTF-8 CSV with a byte order mark, so Excel reads the ₹
+     * and other non-ASCII text correctly. Returns the number of bills written.
+     */
+    public int writeCsv(Iterable<BillRecord> bills, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        csv.write('\uFEFF');
+        csvRow(csv, HEADERS);
+        int written = 0;
+        for (BillRecord bill : bills) {
+            csvRow(csv, new String[]{
+                String.valueOf(bill.getSerialNo()), bill.getNetwork(), bill.getVendor(), quarterOf(bill),
+                bill.getLocation(), bill.getInvoiceNumber(), amount(bill.getBillWithTax()),
+                amount(bill.getBillWithoutTax()), bill.getSes1(), bill.getSes2(), bill.getBillingPeriod(),
+                bill.getFromDate() != null ? bill.getFromDate().toString() : null,
+                bill.getToDate() != null ? bill.getToDate().toString() : null,
+                bill.getGlCode(), bill.getCommitItem(), bill.getCostCenter(),
+                bill.getStatus() != null ? bill.getStatus() : "Pending", bill.getRemarks()
+            });
+            written++;
+        }
+        csv.flush();
+        return written;
+    }
+
+    private static String quarterOf(BillRecord bill) {
+        if (bill.getQuarterString() != null && !bill.getQuarterString().isEmpty()) {
+            return bill.getQuarterString();
+        }
+        return bill.getQuarter() != 0 ? String.valueOf(bill.getQuarter()) : null;
+    }
+
+    /**
+     * Year for the summary, as in the browser export: from the service period, else the first
+     * four-digit number in the billing period
+     */
+    private static String summaryYear(BillRecord bill) {
+        if (bill.getFromDate() != null) {
+            return String.valueOf(bill.getFromDate().getYear());
+        }
+        if (bill.getToDate() != null) {
+            return String.valueOf(bill.getToDate().getYear());
+        }
+        if (bill.getBillingPeriod() != null) {
+            Matcher matcher = YEAR.matcher(bill.getBillingPeriod());
+            if (matcher.find()) {
+                return matcher.group();
+            }
+        }
+        return "Unknown";
+    }
+
+    private static void addToSummary(Map<String, SummaryRow> summary, BillRecord bill) {
+        String year = summaryYear(bill);
+        String network = bill.getNetwork() != null ? bill.getNetwork() : "Unknown";
+        String vendor = bill.getVendor() != null ? bill.getVendor() : "Unknown";
+        SummaryRow item = summary.computeIfAbsent(year + "\u0000" + network + "\u0000" + vendor,
+            key -> new SummaryRow(year, network, vendor));
+        item.totalWithTax += bill.getBillWithTax();
+        item.totalWithoutTax += bill.getBillWithoutTax();
+        addIfPresent(item.glCodes, bill.getGlCode());
+        addIfPresent(item.commitItems, bill.getCommitItem());
+        addIfPresent(item.costCenters, bill.getCostCenter());
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null && !value.isEmpty()) {
+            values.add(value);
+        }
+    }
+
+    private static void writePart(ZipOutputStream zip, Writer xml, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write(content);
+        xml.flush();
+        zip.closeEntry();
+    }
+
+    private static void startSheet(Writer xml, int[] widths) throws IOException {
+        xml.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.write("<worksheet xmlns=\"" + MAIN_NS + "\">");
+        // Keep the header row visible while scrolling
+        xml.write("<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" " +
+                  "activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews>");
+        xml.write("<cols>");
+        for (int i = 0; i < widths.length; i++) {
+            xml.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + widths[i] + "\" customWidth=\"1\"/>");
+        }
+        xml.write("</cols><sheetData>");
+    }
+
+    private static void endSheet(Writer xml) throws IOException {
+        xml.write("</sheetData></worksheet>");
+    }
+
+    private static void writeHeaderRow(Writer xml, String[] headers) throws IOException {
+        xml.write("<row r=\"1\">");
+        for (String header : headers) {
+            xml.write("<c t=\"inlineStr\" s=\"" + STYLE_HEADER + "\"><is><t>");
+            escape(xml, header);
+            xml.write("</t></is></c>");
+        }
+        xml.write("</row>");
+    }
+
+    private static void textCell(Writer xml, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            xml.write("<c/>");
+            return;
+        }
+        xml.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+        escape(xml, value);
+        xml.write("</t></is></c>");
+    }
+
+    private static void numberCell(Writer xml, double value, int style) throws IOException {
+        xml.write(style != 0 ? "<c s=\"" + style + "\"><v>" : "<c><v>");
+        xml.write(value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value));
+        xml.write("</v></c>");
+    }
+
+    private static void dateCell(Writer xml, LocalDate date) throws IOException {
+        if (date == null) {
+            xml.write("<c/>");
+            return;
+        }
+        numberCell(xml, date.toEpochDay() - EXCEL_EPOCH.toEpochDay(), STYLE_DATE);
+    }
+
+    private static void escape(Writer xml, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': xml.write("&amp;"); break;
+                case '<': xml.write("&lt;"); break;
+                case '>': xml.write("&gt;"); break;
+                case '"': xml.write("&quot;"); break;
+                default:
+                    // Control characters other than tab and line breaks are not allowed in XML
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        xml.write(c);
+                    }
+            }
+        }
+    }
+
+    private static String amount(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static void csvRow(Writer csv, String[] cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                csv.write(',');
+            }
+            String cell = cells[i] != null ? cells[i] : "";
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                csv.write('"');
+                csv.write(cell.replace("\"", "\"\""));
+                csv.write('"');
+            } else {
+                csv.write(cell);
+            }
+        }
+        csv.write("\r\n");
+    }
+}
@@ -0,0 +1,62 @@
+package com.login.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock held for every read-modify-write of bills.dat. Threads of this process queue on a
+ * reentrant lock; the outermost holder also takes an OS file lock on data/bills.lock so the web
+ * app and the desktop client never write at the same time either.
+ */
+final class BillStoreLock {
+
+    private static final File LOCK_FILE = new File("data" + File.separator + "bills.lock");
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    // Only touched by the thread holding LOCK
+    private static FileChannel channel;
+    private static FileLock fileLock;
+
+    private BillStoreLock() {}
+
+    static void lock() {
+        LOCK.lock();
+        if (LOCK.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            fileLock = channel.lock();
+        } catch (IOException e) {
+            // Still exclusive within this process; only the desktop client is left unguarded
+            System.err.println("ERROR: Could not lock " + LOCK_FILE + ": " + e.getMessage());
+            release();
+        }
+    }
+
+    static void unlock() {
+        if (LOCK.getHoldCount() == 1) {
+            release();
+        }
+        LOCK.unlock();
+    }
+
+    private static void release() {
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not release " + LOCK_FILE + ": " + e.getMessage());
+        }
+        fileLock = null;
+        channel = null;
+    }
+}
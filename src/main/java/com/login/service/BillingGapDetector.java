@@ -0,0 +1,206 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.util.*;
+
+/**
+ * Detects missing bills: every (network, vendor, location) is expected to send one bill per
+ * fiscal quarter, as configured in NetworkVendorManager, from the first quarter it was billed in.
+ * Coverage is kept as one bitset per (network, vendor, location) over fiscal periods and is
+ * updated incrementally as bills are added or updated. Which period a bill falls in depends on
+ * the quarter configuration, so a change to it rebuilds the coverage as well.
+ */
+public class BillingGapDetector {
+
+    /**
+     * A quarter for which no bill was received
+     */
+    public static class MissingBill {
+        private final String network;
+        private final String vendor;
+        private final String location;
+        private final String period;
+
+        MissingBill(String network, String vendor, String location, String period) {
+            this.network = network;
+            this.vendor = vendor;
+            this.location = location;
+            this.period = period;
+        }
+
+        public String getNetwork() { return network; }
+        public String getVendor() { return vendor; }
+        public String getLocation() { return location; }
+        public String getPeriod() { return period; }
+    }
+
+    /**
+     * Billed periods of one (network, vendor, location); counts allow several bills per period
+     */
+    private static class Coverage {
+        final String network;
+        final String vendor;
+        final String location;
+        final BitSet periods = new BitSet();
+        final Map<Integer, Integer> counts = new HashMap<>();
+
+        Coverage(String network, String vendor, String location) {
+            this.network = network;
+            this.vendor = vendor;
+            this.location = location;
+        }
+
+        void add(int bit) {
+            counts.merge(bit, 1, Integer::sum);
+            periods.set(bit);
+        }
+
+        void remove(int bit) {
+            Integer count = counts.get(bit);
+            if (count == null) return;
+            if (count <= 1) {
+                counts.remove(bit);
+                periods.clear(bit);
+            } else {
+                counts.put(bit, count - 1);
+            }
+        }
+    }
+
+    private static final int BASE_FISCAL_YEAR = 2000;
+    private static final int MAX_QUARTERS_PER_YEAR = 12;
+
+    private final Map<String, Coverage> coverage = new HashMap<>();
+    // Which coverage key and period bit each bill (by serial number) currently counts towards
+    private final Map<Integer, Object[]> contributions = new HashMap<>();
+    private String stamp;
+    // NetworkVendorManager version the period bits were computed with
+    private long networksVersion;
+
+    private static BillingGapDetector instance;
+
+    private BillingGapDetector() {}
+
+    public static synchronized BillingGapDetector getInstance() {
+        if (instance == null) {
+            instance = new BillingGapDetector();
+        }
+        return instance;
+    }
+
+    /**
+     * Rebuild from the given records unless already built from this version of the data and of
+     * the quarter configuration
+     */
+    public synchronized void sync(String dataStamp, List<BillRecord> records) {
+        long currentNetworks = NetworkVendorManager.getInstance().getVersion();
+        if (stamp != null && stamp.equals(dataStamp) && networksVersion == currentNetworks) {
+            return;
+        }
+        coverage.clear();
+        contributions.clear();
+        for (BillRecord record : records) {
+            addContribution(record);
+        }
+        stamp = dataStamp;
+        networksVersion = currentNetworks;
+        System.out.println("DEBUG: Gap detector rebuilt from " + records.size() + " bills (" + coverage.size() + " vendor/location pairs)");
+    }
+
+    /**
+     * Apply an added or updated bill. If the detector was not built from the previous version of
+     * the data, or the quarter configuration has changed since, the change is not applied and the
+     * next query rebuilds instead.
+     */
+    public synchronized void recordSaved(BillRecord record, String previousStamp, String newStamp) {
+        if (stamp == null || !stamp.equals(previousStamp)
+                || networksVersion != NetworkVendorManager.getInstance().getVersion()) {
+            stamp = null;
+            return;
+        }
+        removeContribution(record.getSerialNo());
+        addContribution(record);
+        stamp = newStamp;
+    }
+
+    /**
+     * Force a rebuild on the next query, e.g. after deletes renumber serial numbers
+     */
+    public synchronized void invalidate() {
+        stamp = null;
+    }
+
+    /**
+     * Missing bills for a fiscal period. Network and quarter are optional; without a quarter every
+     * configured quarter of the fiscal year is checked.
+     */
+    public synchronized List<MissingBill> findMissingBills(String network, int fiscalYear, Integer quarter) {
+        List<MissingBill> missing = new ArrayList<>();
+        if (fiscalYear < BASE_FISCAL_YEAR) {
+            return missing;
+        }
+        NetworkVendorManager networkManager = NetworkVendorManager.getInstance();
+        for (Coverage entry : coverage.values()) {
+            if (network != null && !network.equals(entry.network)) continue;
+
+            int quarters = Math.min(networkManager.getNumberOfQuarters(entry.network), MAX_QUARTERS_PER_YEAR);
+            int firstBilled = entry.periods.nextSetBit(0);
+            if (firstBilled < 0) continue;
+            int from = quarter != null ? quarter : 1;
+            int to = quarter != null ? quarter : quarters;
+            for (int q = from; q <= to && q <= quarters; q++) {
+                int bit = bitOf(fiscalYear, q);
+                if (bit >= firstBilled && !entry.periods.get(bit)) {
+                    missing.add(new MissingBill(entry.network, entry.vendor, entry.location,
+                        FiscalCalendar.periodLabel(fiscalYear, q)));
+                }
+            }
+        }
+        missing.sort(Comparator.comparing(MissingBill::getNetwork)
+            .thenComparing(MissingBill::getVendor)
+            .thenComparing(MissingBill::getLocation)
+            .thenComparing(MissingBill::getPeriod));
+        return missing;
+    }
+
+    private void addContribution(BillRecord record) {
+        if (record.getNetwork() == null || record.getVendor() == null || record.getLocation() == null) {
+            return;
+        }
+        int bit = periodBitOf(record);
+        if (bit < 0) {
+            return;
+        }
+        String key = record.getNetwork() + "|" + record.getVendor() + "|" + record.getLocation();
+        coverage.computeIfAbsent(key, k -> new Coverage(record.getNetwork(), record.getVendor(), record.getLocation()))
+            .add(bit);
+        contributions.put(record.getSerialNo(), new Object[]{key, bit});
+    }
+
+    private void removeContribution(int serialNo) {
+        Object[] previous = contributions.remove(serialNo);
+        if (previous != null) {
+            Coverage entry = coverage.get((String) previous[0]);
+            if (entry != null) {
+                entry.remove((Integer) previous[1]);
+            }
+        }
+    }
+
+    /**
+     * Period bit of a bill: fiscal year of its service start, and the network quarter containing that
+     * month, falling back to the quarter stored on the bill
+     */
+    private int periodBitOf(BillRecord record) {
+        int fiscalYear = FiscalCalendar.fiscalYearOf(record);
+        int quarter = FiscalCalendar.quarterOf(record);
+        if (fiscalYear < BASE_FISCAL_YEAR || quarter < 1 || quarter > MAX_QUARTERS_PER_YEAR) {
+            return -1;
+        }
+        return bitOf(fiscalYear, quarter);
+    }
+
+    private static int bitOf(int fiscalYear, int quarter) {
+        return (fiscalYear - BASE_FISCAL_YEAR) * MAX_QUARTERS_PER_YEAR + (quarter - 1);
+    }
+}
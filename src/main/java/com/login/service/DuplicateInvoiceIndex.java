@@ -0,0 +1,132 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.util.*;
+
+/**
+ * Hash index of bills by normalized (vendor, invoice number), used to catch the same invoice
+ * being entered twice. Kept in sync with bills.dat the same way as BillingGapDetector: rebuilt
+ * when the data version changes and updated in place for adds and updates made in this process.
+ */
+public class DuplicateInvoiceIndex {
+    
+    private final Map<String, Set<Integer>> serialsByKey = new HashMap<>();
+    private final Map<Integer, String> keyBySerial = new HashMap<>();
+    private String stamp;
+    
+    private static DuplicateInvoiceIndex instance;
+    
+    private DuplicateInvoiceIndex() {}
+    
+    public static synchronized DuplicateInvoiceIndex getInstance() {
+        if (instance == null) {
+            instance = new DuplicateInvoiceIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Normalized lookup key: vendor and invoice number upper-cased, with whitespace and the usual
+     * separators (- / _ .) removed from the invoice number so "INV-001" and "inv 001" collide.
+     * Returns null when either part is missing.
+     */
+    public static String keyOf(String vendor, String invoiceNumber) {
+        if (vendor == null || invoiceNumber == null) {
+            return null;
+        }
+        String normalizedVendor = vendor.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+        String normalizedInvoice = invoiceNumber.replaceAll("[\\s\\-/_.]", "").toUpperCase(Locale.ROOT);
+        if (normalizedVendor.isEmpty() || normalizedInvoice.isEmpty()) {
+            return null;
+        }
+        return normalizedVendor + "|" + normalizedInvoice;
+    }
+    
+    /**
+     * Rebuild from the given records unless already built from this version of the data
+     */
+    public synchronized void sync(String dataStamp, List<BillRecord> records) {
+        if (stamp != null && stamp.equals(dataStamp)) {
+            return;
+        }
+        serialsByKey.clear();
+        keyBySerial.clear();
+        for (BillRecord record : records) {
+            put(record);
+        }
+        stamp = dataStamp;
+    }
+    
+    /**
+     * Apply an added or updated bill, or schedule a rebuild if the index is not at the previous version
+     */
+    public synchronized void recordSaved(BillRecord record, String previousStamp, String newStamp) {
+        if (stamp == null || !stamp.equals(previousStamp)) {
+            stamp = null;
+            return;
+        }
+        remove(record.getSerialNo());
+        put(record);
+        stamp = newStamp;
+    }
+    
+    /**
+     * Force a rebuild on the next lookup, e.g. after deletes renumber serial numbers
+     */
+    public synchronized void invalidate() {
+        stamp = null;
+    }
+    
+    /**
+     * Serial numbers of other bills with the same normalized vendor and invoice number, in O(1)
+     */
+    public synchronized List<Integer> findDuplicates(BillRecord candidate) {
+        String key = keyOf(candidate.getVendor(), candidate.getInvoiceNumber());
+        Set<Integer> serials = key != null ? serialsByKey.get(key) : null;
+        if (serials == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> duplicates = new ArrayList<>(serials);
+        duplicates.remove(Integer.valueOf(candidate.getSerialNo()));
+        Collections.sort(duplicates);
+        return duplicates;
+    }
+    
+    /**
+     * Every normalized (vendor, invoice number) entered more than once, with its serial numbers
+     */
+    public synchronized Map<String, List<Integer>> findAllDuplicates() {
+        Map<String, List<Integer>> duplicates = new TreeMap<>();
+        for (Map.Entry<String, Set<Integer>> entry : serialsByKey.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                List<Integer> serials = new ArrayList<>(entry.getValue());
+                Collections.sort(serials);
+                duplicates.put(entry.getKey(), serials);
+            }
+        }
+        return duplicates;
+    }
+    
+    private void put(BillRecord record) {
+        String key = keyOf(record.getVendor(), record.getInvoiceNumber());
+        if (key == null) {
+            return;
+        }
+        serialsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(record.getSerialNo());
+        keyBySerial.put(record.getSerialNo(), key);
+    }
+    
+    private void remove(int serialNo) {
+        String key = keyBySerial.remove(serialNo);
+        if (key == null) {
+            return;
+        }
+        Set<Integer> serials = serialsByKey.get(key);
+        if (serials != null) {
+            serials.remove(serialNo);
+            if (serials.isEmpty()) {
+                serialsByKey.remove(key);
+            }
+        }
+    }
+}
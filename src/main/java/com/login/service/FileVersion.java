@@ -0,0 +1,36 @@
+package com.login.service;
+
+import java.io.File;
+
+/**
+ * Monotonically increasing version of a data file. The version advances whenever the file's
+ * modification time or size changes, so writes by another process (the desktop client) are
+ * noticed too; checking it costs one stat and never reads the file.
+ */
+final class FileVersion {
+
+    private final File file;
+    private String stamp;
+    private long version;
+
+    FileVersion(String path) {
+        this.file = new File(path);
+    }
+
+    synchronized long current() {
+        String now = file.exists() ? file.lastModified() + ":" + file.length() : "";
+        if (!now.equals(stamp)) {
+            stamp = now;
+            version++;
+        }
+        return version;
+    }
+
+    /**
+     * Record a write made by this process, even one that left the stamp unchanged
+     */
+    synchronized long advance() {
+        stamp = null;
+        return current();
+    }
+}
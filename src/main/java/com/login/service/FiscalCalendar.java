@@ -0,0 +1,97 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indian fiscal year helpers (April to March, named after the year it ends in, e.g. FY2025 = Apr 2024 - Mar 2025)
+ */
+public final class FiscalCalendar {
+    
+    public static final int FISCAL_YEAR_START_MONTH = 4;
+    
+    private static final Pattern PERIOD_PATTERN = Pattern.compile("Q(\\d{1,2})-FY(\\d{4})", Pattern.CASE_INSENSITIVE);
+    
+    private FiscalCalendar() {}
+    
+    /**
+     * Fiscal year a date falls in
+     */
+    public static int fiscalYearOf(LocalDate date) {
+        return date.getMonthValue() >= FISCAL_YEAR_START_MONTH ? date.getYear() + 1 : date.getYear();
+    }
+    
+    /**
+     * Fiscal year of a bill, based on the start of its service period and falling back to its year
+     */
+    public static int fiscalYearOf(BillRecord record) {
+        if (record.getFromDate() != null) {
+            return fiscalYearOf(record.getFromDate());
+        }
+        return record.getYear();
+    }
+    
+    /**
+     * Fiscal year containing today
+     */
+    public static int currentFiscalYear() {
+        return fiscalYearOf(LocalDate.now());
+    }
+    
+    /**
+     * Quarter number a date falls in under a network's quarter configuration, or -1 if none matches.
+     * Quarters may wrap around the calendar year (e.g. October-March).
+     */
+    public static int quarterOf(NetworkVendorManager.QuarterConfiguration config, LocalDate date) {
+        if (config == null || config.getQuarterPeriods() == null) {
+            return -1;
+        }
+        int month = date.getMonthValue();
+        for (Map.Entry<Integer, NetworkVendorManager.QuarterPeriod> entry : config.getQuarterPeriods().entrySet()) {
+            NetworkVendorManager.QuarterPeriod period = entry.getValue();
+            int start = period.getStartMonth();
+            int end = period.getEndMonth();
+            boolean inPeriod = start <= end ? (month >= start && month <= end) : (month >= start || month <= end);
+            if (inPeriod) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Network quarter of a bill: the quarter containing the start of its service period, falling
+     * back to the quarter stored on the bill
+     */
+    public static int quarterOf(BillRecord record) {
+        int quarter = -1;
+        if (record.getFromDate() != null) {
+            quarter = quarterOf(NetworkVendorManager.getInstance().getQuarterConfiguration(record.getNetwork()), record.getFromDate());
+        }
+        return quarter >= 1 ? quarter : record.getQuarter();
+    }
+    
+    /**
+     * Label for a fiscal period, e.g. "Q2-FY2025"
+     */
+    public static String periodLabel(int fiscalYear, int quarter) {
+        return "Q" + quarter + "-FY" + fiscalYear;
+    }
+    
+    /**
+     * Parse a label like "Q2-FY2025" into {fiscalYear, quarter}, or null if it is not in that form
+     */
+    public static int[] parsePeriod(String label) {
+        if (label == null) {
+            return null;
+        }
+        Matcher matcher = PERIOD_PATTERN.matcher(label.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new int[]{Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(1))};
+    }
+}
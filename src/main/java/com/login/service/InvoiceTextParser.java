@@ -0,0 +1,157 @@
+package com.login.service;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Heuristic extraction of invoice fields from the text of a vendor invoice PDF. Every field is a
+ * best guess used to prefill the bill form; nothing here is trusted without the user confirming it.
+ */
+public final class InvoiceTextParser {
+
+    /**
+     * Candidate values found in an invoice; any of them may be null
+     */
+    public static class InvoiceFields implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String invoiceNumber;
+        private Double totalAmount;
+        private Double amountWithoutTax;
+        private Double gstAmount;
+        private String gstin;
+        private LocalDate invoiceDate;
+        private LocalDate fromDate;
+        private LocalDate toDate;
+
+        public String getInvoiceNumber() { return invoiceNumber; }
+        public Double getTotalAmount() { return totalAmount; }
+        public Double getAmountWithoutTax() { return amountWithoutTax; }
+        public Double getGstAmount() { return gstAmount; }
+        public String getGstin() { return gstin; }
+        public LocalDate getInvoiceDate() { return invoiceDate; }
+        public LocalDate getFromDate() { return fromDate; }
+        public LocalDate getToDate() { return toDate; }
+    }
+
+    private static final String AMOUNT = "(?:Rs\\.?|INR|₹)?\\s*([0-9][0-9,]*\\.[0-9]{2})";
+    private static final String DATE = "(\\d{1,2}[-/.](?:\\d{1,2}|[A-Za-z]{3})[-/.]\\d{2,4})";
+
+    private static final Pattern INVOICE_NUMBER = Pattern.compile(
+        "(?i)(?:invoice|bill|inv)\\s*(?:no\\.?|number|num|#)\\s*[:.\\-]?\\s*([A-Z0-9][A-Z0-9\\-/]{2,30})");
+    private static final Pattern TOTAL = Pattern.compile(
+        "(?i)(?:grand\\s+total|total\\s+amount(?:\\s+payable)?|amount\\s+payable|net\\s+payable|invoice\\s+total|total)\\b[^0-9\\n]{0,30}" + AMOUNT);
+    private static final Pattern TAXABLE = Pattern.compile(
+        "(?i)(?:taxable\\s+(?:value|amount)|sub\\s*-?\\s*total|amount\\s+before\\s+tax)\\b[^0-9\\n]{0,30}" + AMOUNT);
+    private static final Pattern GST_AMOUNT = Pattern.compile(
+        "(?i)\\b(IGST|CGST|SGST|UTGST|GST)\\b[^0-9\\n]{0,25}(?:@?\\s*[0-9.]+\\s*%)?[^0-9\\n]{0,10}" + AMOUNT);
+    private static final Pattern GSTIN = Pattern.compile("\\b(\\d{2}[A-Z]{5}\\d{4}[A-Z][1-9A-Z]Z[0-9A-Z])\\b");
+    private static final Pattern INVOICE_DATE = Pattern.compile(
+        "(?i)(?:invoice|bill)\\s*date\\s*[:.\\-]?\\s*" + DATE);
+    private static final Pattern PERIOD = Pattern.compile(
+        "(?i)(?:period|from)\\b[^0-9\\n]{0,20}" + DATE + "\\s*(?:to|till|until|-)\\s*" + DATE);
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = Arrays.asList(
+        formatter("d/M/uuuu"), formatter("d-M-uuuu"), formatter("d.M.uuuu"),
+        formatter("d-MMM-uuuu"), formatter("d/MMM/uuuu"), formatter("d-MMM-uu"),
+        formatter("d/M/uu"), formatter("d-M-uu"));
+
+    private InvoiceTextParser() {}
+
+    public static InvoiceFields parse(String text) {
+        InvoiceFields fields = new InvoiceFields();
+        if (text == null || text.isEmpty()) {
+            return fields;
+        }
+
+        Matcher matcher = INVOICE_NUMBER.matcher(text);
+        while (matcher.find()) {
+            // Skip words that follow "Bill No" in headers, a real number contains a digit
+            if (matcher.group(1).matches(".*\\d.*")) {
+                fields.invoiceNumber = matcher.group(1);
+                break;
+            }
+        }
+
+        fields.totalAmount = largestAmount(TOTAL, text, 1);
+        fields.amountWithoutTax = largestAmount(TAXABLE, text, 1);
+
+        double gst = 0;
+        boolean gstFound = false;
+        Set<String> gstKinds = new HashSet<>();
+        matcher = GST_AMOUNT.matcher(text);
+        while (matcher.find()) {
+            // Count each kind of GST once; the same line often repeats in a summary table
+            if (gstKinds.add(matcher.group(1).toUpperCase(Locale.ROOT))) {
+                Double amount = parseAmount(matcher.group(2));
+                if (amount != null) {
+                    gst += amount;
+                    gstFound = true;
+                }
+            }
+        }
+        fields.gstAmount = gstFound ? gst : null;
+        if (fields.amountWithoutTax == null && fields.totalAmount != null && fields.gstAmount != null
+                && fields.gstAmount < fields.totalAmount) {
+            fields.amountWithoutTax = Math.round((fields.totalAmount - fields.gstAmount) * 100) / 100.0;
+        }
+
+        matcher = GSTIN.matcher(text);
+        if (matcher.find()) {
+            fields.gstin = matcher.group(1);
+        }
+
+        matcher = INVOICE_DATE.matcher(text);
+        if (matcher.find()) {
+            fields.invoiceDate = parseDate(matcher.group(1));
+        }
+        matcher = PERIOD.matcher(text);
+        if (matcher.find()) {
+            fields.fromDate = parseDate(matcher.group(1));
+            fields.toDate = parseDate(matcher.group(2));
+        }
+        return fields;
+    }
+
+    private static Double largestAmount(Pattern pattern, String text, int group) {
+        Double largest = null;
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            Double amount = parseAmount(matcher.group(group));
+            if (amount != null && (largest == null || amount > largest)) {
+                largest = amount;
+            }
+        }
+        return largest;
+    }
+
+    private static Double parseAmount(String value) {
+        try {
+            return Double.parseDouble(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static LocalDate parseDate(String value) {
+        String normalized = value.trim();
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(normalized, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    private static DateTimeFormatter formatter(String pattern) {
+        return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter(Locale.ENGLISH);
+    }
+}
@@ -102,9 +102,11 @@ public class NetworkVendorManager {
     private static final String NETWORKS_FILE = DATA_DIR + File.separator + "networks.dat";
     
     // Thread-safe collections for live updates
-    private Map<String, Set<String>> networkVendorMap;
-    private Map<String, QuarterConfiguration> networkQuarterMap;
+    private volatile Map<String, Set<String>> networkVendorMap;
+    private volatile Map<String, QuarterConfiguration> networkQuarterMap;
     private List<NetworkVendorChangeListener> listeners;
+    private final FileVersion fileVersion = new FileVersion(NETWORKS_FILE);
+    private long loadedVersion;
     
     // Singleton instance for application-wide access
     private static NetworkVendorManager instance;
@@ -113,6 +115,7 @@ public class NetworkVendorManager {
         networkVendorMap = new HashMap<>();
         networkQuarterMap = new HashMap<>();
         listeners = new CopyOnWriteArrayList<>();
+        loadedVersion = fileVersion.current();
         loadNetworkVendorData();
     }
     
@@ -131,6 +134,21 @@ public class NetworkVendorManager {
         void onVendorsChanged(String network);
     }
     
+    /**
+     * Version of the network/vendor/quarter data; increases with every change. A networks.dat
+     * written by another process (the desktop client) is reloaded here first.
+     */
+    public synchronized long getVersion() {
+        long current = fileVersion.current();
+        if (current != loadedVersion) {
+            System.out.println("DEBUG: " + NETWORKS_FILE + " changed on disk, reloading");
+            loadedVersion = current;
+            loadNetworkVendorData();
+            notifyNetworkChanges();
+        }
+        return loadedVersion;
+    }
+    
     /**
      * Register a component to receive network/vendor change notifications
      */
@@ -213,7 +231,7 @@ public class NetworkVendorManager {
     /**
      * Save network-vendor mappings to file
      */
-    private void saveNetworkVendorData() {
+    private synchronized void saveNetworkVendorData() {
         try {
             File dataDir = new File(DATA_DIR);
             if (!dataDir.exists()) {
@@ -235,6 +253,9 @@ public class NetworkVendorManager {
                 "Error saving network-vendor data: " + e.getMessage(), 
                 "Save Error", JOptionPane.ERROR_MESSAGE);
         }
+        // Every mutation ends here: the in-memory data changed even if the write failed, and our
+        // own write must not be mistaken for another process's and reloaded
+        loadedVersion = fileVersion.advance();
     }
     
     /**
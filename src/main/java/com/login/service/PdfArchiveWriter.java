@@ -0,0 +1,125 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the PDFs of a set of bills as a ZIP archive straight to an output stream, one entry at a
+ * time, so the archive is never held in memory. PDFs are already compressed, so entries are
+ * STORED rather than deflated. STORED entries need their CRC up front; CRCs are cached per file
+ * version so repeated downloads of the same quarter read each PDF only once. The cache keeps the
+ * most recently used versions only, so replaced files and one-off downloads age out.
+ */
+public class PdfArchiveWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CACHED_CRCS = 10000;
+
+    private static final Map<String, Long> crcCache = Collections.synchronizedMap(
+        new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_CACHED_CRCS;
+            }
+        });
+
+    /**
+     * Write one entry per bill with a resolvable PDF, named network/vendor/serial_invoice.pdf,
+     * plus a MISSING.txt listing bills whose PDF could not be found. Returns the number of PDFs written.
+     */
+    public int write(List<BillRecord> bills, OutputStream out) throws IOException {
+        PdfAttachmentIndex attachments = PdfAttachmentIndex.getInstance();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Set<String> names = new HashSet<>();
+        StringBuilder missing = new StringBuilder();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int written = 0;
+
+        for (BillRecord bill : bills) {
+            if (bill.getPdfFilePath() == null || bill.getPdfFilePath().isEmpty()) {
+                continue;
+            }
+            Path file = attachments.resolveForBill(bill);
+            if (file == null || !Files.isRegularFile(file)) {
+                missing.append(bill.getSerialNo()).append('\t').append(bill.getInvoiceNumber())
+                    .append('\t').append(bill.getPdfFilePath()).append('\n');
+                continue;
+            }
+
+            long size = Files.size(file);
+            ZipEntry entry = new ZipEntry(uniqueName(entryName(bill), names));
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crcOf(file, size, buffer));
+            entry.setTime(Files.getLastModifiedTime(file).toMillis());
+
+            zip.putNextEntry(entry);
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    zip.write(buffer, 0, read);
+                }
+            }
+            zip.closeEntry();
+            written++;
+        }
+
+        if (missing.length() > 0) {
+            byte[] report = ("Serial No\tInvoice Number\tStored Path\n" + missing).getBytes(StandardCharsets.UTF_8);
+            ZipEntry entry = new ZipEntry("MISSING.txt");
+            zip.putNextEntry(entry);
+            zip.write(report);
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        return written;
+    }
+
+    private static long crcOf(Path file, long size, byte[] buffer) throws IOException {
+        String version = file.toAbsolutePath() + ":" + size + ":" + Files.getLastModifiedTime(file).toMillis();
+        Long cached = crcCache.get(version);
+        if (cached != null) {
+            return cached;
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        crcCache.put(version, crc.getValue());
+        return crc.getValue();
+    }
+
+    private static String entryName(BillRecord bill) {
+        return safe(bill.getNetwork()) + "/" + safe(bill.getVendor()) + "/"
+            + bill.getSerialNo() + "_" + safe(bill.getInvoiceNumber()) + ".pdf";
+    }
+
+    private static String uniqueName(String name, Set<String> names) {
+        String candidate = name;
+        for (int i = 2; !names.add(candidate); i++) {
+            candidate = name.substring(0, name.length() - 4) + "_" + i + ".pdf";
+        }
+        return candidate;
+    }
+
+    private static String safe(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return "unknown";
+        }
+        return value.trim().replaceAll("[^A-Za-z0-9._ -]", "_");
+    }
+}
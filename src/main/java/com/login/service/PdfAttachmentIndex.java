@@ -0,0 +1,359 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Index of stored PDF attachments, mapping bill serial numbers and file names to the canonical
+ * storage path (relative to the pdfs directory, '/'-separated, e.g. "shared/1752038462935_7_2628.pdf").
+ * Persisted to data/attachments.dat, rebuilt from disk once per startup and updated by uploads,
+ * so lookups are hash hits instead of directory listings.
+ *
+ * The web app and the desktop client both write the file. Saves hold a file lock, merge in what
+ * the other process wrote since this one last read the file, and replace it through a temporary
+ * file, so neither side loses the other's entries or sees a half-written index.
+ */
+public class PdfAttachmentIndex {
+
+    public static final String PDF_ROOT = "pdfs";
+    private static final String DATA_DIR = "data";
+    private static final String INDEX_FILE = DATA_DIR + File.separator + "attachments.dat";
+    private static final String LOCK_FILE = DATA_DIR + File.separator + "attachments.lock";
+
+    /**
+     * Serialized form of the index
+     */
+    private static class IndexData implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, String> byKey = new HashMap<>();
+        private final Map<String, String> byFileName = new HashMap<>();
+        private final Map<String, String> byUntimestampedName = new HashMap<>();
+        private final Map<Integer, String> byBill = new HashMap<>();
+    }
+
+    private IndexData data = new IndexData();
+    private boolean rebuilt;
+    // "mtime:size" of the index file as last read or written by this process
+    private String diskStamp = "";
+
+    private static PdfAttachmentIndex instance;
+
+    private PdfAttachmentIndex() {
+        loadIndex();
+    }
+
+    public static synchronized PdfAttachmentIndex getInstance() {
+        if (instance == null) {
+            instance = new PdfAttachmentIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Turn any stored or requested path form into a canonical key: handles Windows separators,
+     * a leading "pdfs/" and the malformed "pdfsshared}name" / "shared}name" values seen in old
+     * records. A bare file name is assumed to live in the shared directory. Returns null for
+     * empty or unsafe paths.
+     */
+    public static String canonicalKey(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        String key = path.trim().replace('\\', '/');
+        int brace = key.indexOf('}');
+        if (brace >= 0 && (key.startsWith("pdfsshared}") || key.startsWith("pdfs/shared}") || key.startsWith("shared}"))) {
+            key = "shared/" + key.substring(brace + 1);
+        }
+        while (key.startsWith("/")) {
+            key = key.substring(1);
+        }
+        if (key.startsWith(PDF_ROOT + "/")) {
+            key = key.substring(PDF_ROOT.length() + 1);
+        }
+        if (!key.contains("/")) {
+            key = "shared/" + key;
+        }
+        for (String part : key.split("/")) {
+            if (part.equals("..") || part.isEmpty()) {
+                return null;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Storage path on disk for a canonical key
+     */
+    public static Path storagePath(String key) {
+        return Paths.get(PDF_ROOT, key.split("/"));
+    }
+
+    /**
+     * Whether a key names a stored attachment: a .pdf file outside the directory of partially
+     * received uploads
+     */
+    private static boolean isAttachmentKey(String key) {
+        return key.toLowerCase().endsWith(".pdf")
+            && !key.startsWith(PdfBlobStore.BLOB_DIR + "/" + PdfBlobStore.TEMP_DIR + "/");
+    }
+
+    private static String fileNameOf(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * File name without the "<timestamp>_" prefix uploads are given
+     */
+    private static String untimestamped(String fileName) {
+        return fileName.matches("\\d+_.*") ? fileName.replaceFirst("\\d+_", "") : fileName;
+    }
+
+    /**
+     * Rebuild the index from a single walk of the pdfs directory and the bills' stored paths.
+     * Only done at startup or on demand; lookups never list directories.
+     */
+    public synchronized void rebuild(List<BillRecord> bills) {
+        IndexData fresh = new IndexData();
+        Path root = Paths.get(PDF_ROOT);
+        if (Files.isDirectory(root)) {
+            List<String> keys = new ArrayList<>();
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                    .filter(PdfAttachmentIndex::isAttachmentKey)
+                    .forEach(keys::add);
+            } catch (IOException e) {
+                System.err.println("ERROR: Failed to scan PDF storage: " + e.getMessage());
+            }
+            // Sorted so that for clashing names the newest (largest timestamp) upload wins
+            Collections.sort(keys);
+            for (String key : keys) {
+                putFile(fresh, key);
+            }
+        }
+        data = fresh;
+        indexBills(bills);
+        rebuilt = true;
+        System.out.println("DEBUG: Attachment index rebuilt with " + data.byKey.size() + " files and " + data.byBill.size() + " bill links");
+        saveIndex();
+    }
+
+    /**
+     * Rebuild once per process; later calls are no-ops
+     */
+    public synchronized void rebuildIfNeeded(List<BillRecord> bills) {
+        if (!rebuilt) {
+            rebuild(bills);
+        }
+    }
+
+    /**
+     * Re-link bills to files without touching the disk, e.g. after deletes renumber serial numbers
+     */
+    public synchronized void indexBills(List<BillRecord> bills) {
+        data.byBill.clear();
+        for (BillRecord bill : bills) {
+            if (bill.getPdfFilePath() != null && !bill.getPdfFilePath().isEmpty()) {
+                String key = lookup(bill.getPdfFilePath());
+                if (key != null) {
+                    data.byBill.put(bill.getSerialNo(), key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a newly stored attachment and link it to its bill
+     */
+    public synchronized void register(int serialNo, String storedPath) {
+        String key = canonicalKey(storedPath);
+        if (key == null) {
+            return;
+        }
+        putFile(data, key);
+        data.byBill.put(serialNo, key);
+        saveIndex();
+    }
+
+    /**
+     * Record several stored attachments with a single save
+     */
+    public synchronized void registerAll(Map<Integer, String> storedPathsBySerialNo) {
+        for (Map.Entry<Integer, String> entry : storedPathsBySerialNo.entrySet()) {
+            String key = canonicalKey(entry.getValue());
+            if (key != null) {
+                putFile(data, key);
+                data.byBill.put(entry.getKey(), key);
+            }
+        }
+        saveIndex();
+    }
+
+    /**
+     * Canonical key for a requested or stored path: exact key, then file name, then file name
+     * without its timestamp prefix. Falls back to one existence check for PDFs written by
+     * another process since the last rebuild. Returns null if nothing matches.
+     */
+    public synchronized String lookup(String path) {
+        String key = canonicalKey(path);
+        if (key == null) {
+            return null;
+        }
+        String found = data.byKey.get(key);
+        if (found == null) found = data.byFileName.get(fileNameOf(key));
+        if (found == null) found = data.byUntimestampedName.get(untimestamped(fileNameOf(key)));
+        if (found == null && isAttachmentKey(key) && Files.isRegularFile(storagePath(key))) {
+            putFile(data, key);
+            found = key;
+        }
+        return found;
+    }
+
+    /**
+     * Storage path for a requested or stored path, or null if it is not known
+     */
+    public Path resolve(String path) {
+        String key = lookup(path);
+        return key != null ? storagePath(key) : null;
+    }
+
+    /**
+     * Storage path of a bill's attachment, or null if it has none
+     */
+    public synchronized Path resolveForBill(BillRecord bill) {
+        if (bill.getPdfFilePath() == null || bill.getPdfFilePath().isEmpty()) {
+            return null;
+        }
+        String key = lookup(bill.getPdfFilePath());
+        if (key != null) {
+            data.byBill.put(bill.getSerialNo(), key);
+        }
+        return key != null ? storagePath(key) : null;
+    }
+    
+    /**
+     * Storage path of the attachment linked to a bill serial number, or null
+     */
+    public synchronized Path resolveForBill(int serialNo) {
+        String key = data.byBill.get(serialNo);
+        return key != null ? storagePath(key) : null;
+    }
+
+    /**
+     * Drop a file that was deleted from storage, along with any bill links to it
+     */
+    public synchronized void remove(String key) {
+        forget(key);
+        saveIndex();
+    }
+
+    private void forget(String key) {
+        data.byKey.remove(key);
+        String fileName = fileNameOf(key);
+        data.byFileName.remove(fileName, key);
+        data.byUntimestampedName.remove(untimestamped(fileName), key);
+        data.byBill.values().removeIf(key::equals);
+    }
+
+    public synchronized int size() {
+        return data.byKey.size();
+    }
+
+    private static void putFile(IndexData target, String key) {
+        target.byKey.put(key, key);
+        String fileName = fileNameOf(key);
+        target.byFileName.put(fileName, key);
+        target.byUntimestampedName.put(untimestamped(fileName), key);
+    }
+
+    /**
+     * Take in what the other process saved: files it added (if they still exist), files it removed
+     * (once they are gone from disk) and links for bills this process has not linked itself
+     */
+    private void mergeFrom(IndexData saved) {
+        for (String key : new ArrayList<>(data.byKey.keySet())) {
+            if (!saved.byKey.containsKey(key) && !Files.isRegularFile(storagePath(key))) {
+                forget(key);
+            }
+        }
+        for (String key : saved.byKey.keySet()) {
+            if (!data.byKey.containsKey(key) && Files.isRegularFile(storagePath(key))) {
+                putFile(data, key);
+            }
+        }
+        for (Map.Entry<Integer, String> link : saved.byBill.entrySet()) {
+            if (data.byKey.containsKey(link.getValue())) {
+                data.byBill.putIfAbsent(link.getKey(), link.getValue());
+            }
+        }
+    }
+
+    private static String stampOf(File file) {
+        return file.exists() ? file.lastModified() + ":" + file.length() : "";
+    }
+
+    private static IndexData readIndex(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (IndexData) ois.readObject();
+        }
+    }
+
+    private void loadIndex() {
+        File file = new File(INDEX_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            diskStamp = stampOf(file);
+            data = readIndex(file);
+        } catch (Exception e) {
+            System.err.println("ERROR: Failed to load attachment index, it will be rebuilt: " + e.getMessage());
+            data = new IndexData();
+        }
+    }
+
+    private void saveIndex() {
+        File dataDir = new File(DATA_DIR);
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+        File file = new File(INDEX_FILE);
+        Path temp = null;
+        try (FileChannel channel = FileChannel.open(Paths.get(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            if (file.exists() && !stampOf(file).equals(diskStamp)) {
+                try {
+                    mergeFrom(readIndex(file));
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    System.err.println("ERROR: Could not read attachment index saved by another process, overwriting it: " + e.getMessage());
+                }
+            }
+            temp = Files.createTempFile(dataDir.toPath(), "attachments", ".tmp");
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                oos.writeObject(data);
+            }
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            diskStamp = stampOf(file);
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to save attachment index: " + e.getMessage());
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+}
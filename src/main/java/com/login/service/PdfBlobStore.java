@@ -0,0 +1,311 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed PDF storage. Each distinct PDF is stored once under its SHA-256 as
+ * pdfs/blobs/ab/cd/&lt;sha256&gt;.pdf, hashed while the upload streams in, so uploading the same
+ * invoice again costs no extra disk. Bills reference blobs through their PDF path; reference
+ * counts are derived from the bill records. Blobs no bill references are not deleted here but by
+ * the grace-period sweep of {@link StorageMaintenanceService}, since an upload may have just been
+ * deduplicated onto a blob whose bill is not saved yet.
+ */
+public class PdfBlobStore {
+
+    public static final String BLOB_DIR = "blobs";
+    static final String TEMP_DIR = "tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int HEADER_SCAN_BYTES = 1024;
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+    private static final Pattern BLOB_KEY = Pattern.compile("^" + BLOB_DIR + "/[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})\\.pdf$");
+    private static final Pattern HASH = Pattern.compile("^[0-9a-f]{64}$");
+
+    /**
+     * Result of storing an upload
+     */
+    public static class StoredBlob {
+        private final String hash;
+        private final long size;
+        private final boolean deduplicated;
+
+        StoredBlob(String hash, long size, boolean deduplicated) {
+            this.hash = hash;
+            this.size = size;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+        public boolean isDeduplicated() { return deduplicated; }
+        public String getKey() { return keyOf(hash); }
+    }
+
+    private final Path root = Paths.get(PdfAttachmentIndex.PDF_ROOT, BLOB_DIR);
+    private Map<String, Integer> referenceCounts = new HashMap<>();
+    private boolean referencesLoaded;
+
+    private static PdfBlobStore instance;
+
+    private PdfBlobStore() {}
+
+    public static synchronized PdfBlobStore getInstance() {
+        if (instance == null) {
+            instance = new PdfBlobStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Storage key (relative to the pdfs directory) of a blob, as stored in a bill's PDF path
+     */
+    public static String keyOf(String hash) {
+        return BLOB_DIR + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".pdf";
+    }
+
+    /**
+     * Hash of the blob a stored PDF path points to, or null if it is not a blob path
+     */
+    public static String hashOf(String storedPath) {
+        String key = PdfAttachmentIndex.canonicalKey(storedPath);
+        if (key == null) {
+            return null;
+        }
+        Matcher matcher = BLOB_KEY.matcher(key);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    /**
+     * File of a stored blob (which may not exist)
+     */
+    public Path pathOf(String hash) {
+        return PdfAttachmentIndex.storagePath(keyOf(hash));
+    }
+
+    public boolean exists(String hash) {
+        return isValidHash(hash) && Files.isRegularFile(pathOf(hash));
+    }
+
+    /**
+     * Stream the content into the store, see {@link #store(ReadableByteChannel, long)}
+     */
+    public StoredBlob store(InputStream in) throws IOException {
+        return store(Channels.newChannel(in), Long.MAX_VALUE);
+    }
+
+    /**
+     * Stream the content into the store in a single pass: each buffer is checked, hashed and
+     * written straight to a temp file next to the blobs, which is then moved into place. If a blob
+     * with the same hash is already stored the temp file is dropped instead. Content without a
+     * "%PDF-" header, or longer than maxBytes, is rejected with IllegalArgumentException as soon
+     * as that is known, without reading the rest.
+     */
+    public StoredBlob store(ReadableByteChannel source, long maxBytes) throws IOException {
+        Path temp = Files.createTempFile(tempDirectory(), "upload", ".part");
+        try {
+            MessageDigest digest = newDigest();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] header = new byte[HEADER_SCAN_BYTES];
+            int headerLength = 0;
+            boolean headerFound = false;
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    size += buffer.remaining();
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("File exceeds the maximum upload size of " + maxBytes + " bytes");
+                    }
+                    if (!headerFound && headerLength < HEADER_SCAN_BYTES) {
+                        int take = Math.min(buffer.remaining(), HEADER_SCAN_BYTES - headerLength);
+                        buffer.duplicate().get(header, headerLength, take);
+                        headerLength += take;
+                        headerFound = hasPdfHeader(header, headerLength);
+                        if (!headerFound && headerLength == HEADER_SCAN_BYTES) {
+                            throw new IllegalArgumentException("Only PDF files are allowed");
+                        }
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            if (!headerFound) {
+                throw new IllegalArgumentException("Only PDF files are allowed");
+            }
+            return commit(temp, toHex(digest.digest()), size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Move a file that was assembled elsewhere under the blobs directory (e.g. a completed chunked
+     * upload) into the store, after hashing it and checking its PDF header in one read
+     */
+    public StoredBlob storeFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] header = new byte[HEADER_SCAN_BYTES];
+        int headerLength = 0;
+        long size = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                if (headerLength < HEADER_SCAN_BYTES) {
+                    int take = Math.min(buffer.remaining(), HEADER_SCAN_BYTES - headerLength);
+                    buffer.duplicate().get(header, headerLength, take);
+                    headerLength += take;
+                }
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        if (!hasPdfHeader(header, headerLength)) {
+            throw new IllegalArgumentException("Only PDF files are allowed");
+        }
+        return commit(file, toHex(digest.digest()), size);
+    }
+
+    /**
+     * Directory for partially received uploads; on the same file system as the blobs so that
+     * finished uploads can be moved into place
+     */
+    public Path tempDirectory() throws IOException {
+        return Files.createDirectories(root.resolve(TEMP_DIR));
+    }
+
+    /**
+     * PDF readers accept the "%PDF-" marker anywhere in the first 1024 bytes
+     */
+    private static boolean hasPdfHeader(byte[] header, int length) {
+        outer:
+        for (int i = 0; i + PDF_MAGIC.length <= length; i++) {
+            for (int j = 0; j < PDF_MAGIC.length; j++) {
+                if (header[i + j] != PDF_MAGIC[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move a fully written temp file into place under its hash
+     */
+    StoredBlob commit(Path temp, String hash, long size) throws IOException {
+        Path target = pathOf(hash);
+        if (touch(target)) {
+            System.out.println("DEBUG: PDF blob " + hash + " already stored, upload deduplicated");
+            return new StoredBlob(hash, size, true);
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another upload of the same file
+            touch(target);
+            return new StoredBlob(hash, size, true);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target);
+        }
+        System.out.println("DEBUG: Stored PDF blob " + hash + " (" + size + " bytes)");
+        return new StoredBlob(hash, size, false);
+    }
+
+    /**
+     * Mark an existing blob as just written, so the maintenance sweep treats a blob an upload was
+     * deduplicated onto as fresh until the bill pointing at it is saved. False if it does not exist.
+     */
+    private static boolean touch(Path blob) throws IOException {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Recount blob references from the bill records. Only the counts change; unreferenced blobs
+     * are left for the maintenance sweep to reclaim after its grace period.
+     */
+    public synchronized void syncReferences(List<BillRecord> bills) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (BillRecord bill : bills) {
+            String hash = hashOf(bill.getPdfFilePath());
+            if (hash != null) {
+                counts.merge(hash, 1, Integer::sum);
+            }
+        }
+        referenceCounts = counts;
+        referencesLoaded = true;
+    }
+
+    /**
+     * Take the initial reference counts, once per process
+     */
+    public synchronized void syncReferencesIfNeeded(List<BillRecord> bills) {
+        if (!referencesLoaded) {
+            syncReferences(bills);
+        }
+    }
+
+    public synchronized int referenceCount(String hash) {
+        return referenceCounts.getOrDefault(hash, 0);
+    }
+
+    public synchronized Map<String, Integer> getReferenceCounts() {
+        return new HashMap<>(referenceCounts);
+    }
+
+    /**
+     * SHA-256 of a file on disk, read with a fixed-size buffer
+     */
+    static String sha256Of(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Online migration of attachments from the flat pdfs/shared directory into the hash-sharded blob
+ * store (pdfs/blobs/ab/cd/...). Runs in the background in small batches: each batch copies the
+ * files into the store and then repoints the bills with a single save, so every bill resolves to a
+ * readable file at all times. The old copies become unreferenced and are removed by the storage
+ * maintenance sweep after its grace period.
+ */
+public class PdfStorageMigrator {
+
+    /**
+     * Progress of the current or last migration
+     */
+    public static class Status {
+        private volatile boolean running;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile int migrated;
+        private volatile int deduplicated;
+        private volatile int batches;
+        private volatile int remaining;
+        private final Map<String, String> failures = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        public boolean isRunning() { return running; }
+        public long getStartedAt() { return startedAt; }
+        public long getFinishedAt() { return finishedAt; }
+        public int getMigrated() { return migrated; }
+        public int getDeduplicated() { return deduplicated; }
+        public int getBatches() { return batches; }
+        public int getRemaining() { return remaining; }
+        public Map<String, String> getFailures() { return failures; }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-storage-migrator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Status status = new Status();
+
+    private static PdfStorageMigrator instance;
+
+    private PdfStorageMigrator() {}
+
+    public static synchronized PdfStorageMigrator getInstance() {
+        if (instance == null) {
+            instance = new PdfStorageMigrator();
+        }
+        return instance;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Start migrating in the background unless a migration is already running. Returns false if one was.
+     */
+    public synchronized boolean start(int batchSize, long pauseMillis) {
+        if (status.running) {
+            return false;
+        }
+        Status current = new Status();
+        current.running = true;
+        current.startedAt = System.currentTimeMillis();
+        status = current;
+        executor.submit(() -> migrate(current, Math.max(1, batchSize), Math.max(0, pauseMillis)));
+        return true;
+    }
+
+    private void migrate(Status current, int batchSize, long pauseMillis) {
+        System.out.println("DEBUG: PDF storage migration started (batch size " + batchSize + ")");
+        try {
+            while (migrateBatch(current, batchSize) > 0) {
+                current.batches++;
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("ERROR: PDF storage migration stopped: " + e.getMessage());
+        } finally {
+            current.running = false;
+            current.finishedAt = System.currentTimeMillis();
+            System.out.println("DEBUG: PDF storage migration finished: " + current.migrated + " migrated, "
+                + current.deduplicated + " deduplicated, " + current.failures.size() + " failed");
+        }
+    }
+
+    /**
+     * Migrate up to batchSize attachments that still live outside the blob store. The files are
+     * copied without holding any lock; the bills are then repointed in one store transaction that
+     * reloads bills.dat and only touches bills still pointing at the copied path, so edits and
+     * deletes made during the copy are kept. Returns the number of bills repointed.
+     */
+    private int migrateBatch(Status current, int batchSize) {
+        BillDataService billService = new BillDataService("system");
+        PdfAttachmentIndex attachments = PdfAttachmentIndex.getInstance();
+        PdfBlobStore blobs = PdfBlobStore.getInstance();
+
+        // One entry per attachment path; bills sharing a file are repointed together
+        Map<String, BillRecord> pending = new LinkedHashMap<>();
+        for (BillRecord bill : billService.getAllBillRecords()) {
+            String path = bill.getPdfFilePath();
+            if (path != null && !path.isEmpty() && PdfBlobStore.hashOf(path) == null
+                    && !current.failures.containsKey(path)) {
+                pending.putIfAbsent(path, bill);
+            }
+        }
+        current.remaining = pending.size();
+
+        Map<String, String> newPaths = new LinkedHashMap<>();
+        for (Map.Entry<String, BillRecord> entry : pending.entrySet()) {
+            if (newPaths.size() >= batchSize) break;
+            String path = entry.getKey();
+            Path file = attachments.resolveForBill(entry.getValue());
+            if (file == null || !Files.isRegularFile(file)) {
+                current.failures.put(path, "PDF not found");
+                continue;
+            }
+            try (InputStream in = Files.newInputStream(file)) {
+                PdfBlobStore.StoredBlob blob = blobs.store(in);
+                newPaths.put(path, blob.getKey());
+                if (blob.isDeduplicated()) {
+                    current.deduplicated++;
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                current.failures.put(path, e.getMessage());
+            }
+        }
+        if (newPaths.isEmpty()) {
+            return 0;
+        }
+
+        // A blob whose bill changed meanwhile stays unreferenced and is reclaimed by the maintenance sweep
+        int updated = billService.replacePdfPaths(newPaths);
+        current.migrated += updated;
+        current.remaining = Math.max(0, pending.size() - newPaths.size());
+        return newPaths.size();
+    }
+}
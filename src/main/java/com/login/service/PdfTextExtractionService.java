@@ -0,0 +1,259 @@
+package com.login.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extracts the text of uploaded PDFs on a small bounded worker pool, parses candidate invoice
+ * fields from it and keeps a word index over the extracted text. Callers get a future and are
+ * never blocked: when the queue is full the extraction is rejected and counted instead.
+ * Results are keyed by attachment storage key and persisted one file per PDF under data/pdf-text/.
+ */
+public class PdfTextExtractionService {
+
+    private static final String DATA_DIR = "data";
+    private static final String RESULTS_DIR = DATA_DIR + File.separator + "pdf-text";
+    private static final int WORKERS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_CAPACITY = 100;
+    private static final int MAX_PAGES = 10;
+    private static final int MAX_TEXT_LENGTH = 64 * 1024;
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    /**
+     * Text and parsed fields of one PDF
+     */
+    public static class ExtractionResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String text;
+        private final InvoiceTextParser.InvoiceFields fields;
+        private final long extractedAt;
+        private final long extractionMillis;
+
+        ExtractionResult(String text, InvoiceTextParser.InvoiceFields fields, long extractionMillis) {
+            this.text = text;
+            this.fields = fields;
+            this.extractedAt = System.currentTimeMillis();
+            this.extractionMillis = extractionMillis;
+        }
+
+        public String getText() { return text; }
+        public InvoiceTextParser.InvoiceFields getFields() { return fields; }
+        public long getExtractedAt() { return extractedAt; }
+        public long getExtractionMillis() { return extractionMillis; }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExtractionResult> results = new HashMap<>();
+    private final Map<String, Set<String>> keysByToken = new HashMap<>();
+    private final Map<String, CompletableFuture<ExtractionResult>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalExtractionMillis = new AtomicLong();
+    private final AtomicLong maxExtractionMillis = new AtomicLong();
+    private final AtomicLong totalQueueMillis = new AtomicLong();
+
+    private static PdfTextExtractionService instance;
+
+    private PdfTextExtractionService() {
+        executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "pdf-text-extractor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        loadResults();
+    }
+
+    public static synchronized PdfTextExtractionService getInstance() {
+        if (instance == null) {
+            instance = new PdfTextExtractionService();
+        }
+        return instance;
+    }
+
+    /**
+     * Queue extraction of a stored attachment. The result is cached and indexed under the
+     * attachment key; a key that was already extracted (or is queued) is not extracted again.
+     */
+    public CompletableFuture<ExtractionResult> submit(String key, Path file) {
+        synchronized (this) {
+            ExtractionResult existing = results.get(key);
+            if (existing != null) {
+                return CompletableFuture.completedFuture(existing);
+            }
+        }
+        CompletableFuture<ExtractionResult> queued = pending.get(key);
+        if (queued != null) {
+            return queued;
+        }
+        CompletableFuture<ExtractionResult> future = extract(file);
+        pending.put(key, future);
+        future.whenComplete((result, error) -> {
+            pending.remove(key);
+            if (result != null) {
+                store(key, result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Queue extraction of any PDF file without caching it, e.g. a file picked in the desktop
+     * client before it is stored
+     */
+    public CompletableFuture<ExtractionResult> extract(Path file) {
+        submitted.incrementAndGet();
+        long queuedAt = System.currentTimeMillis();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                totalQueueMillis.addAndGet(System.currentTimeMillis() - queuedAt);
+                return runExtraction(file);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            CompletableFuture<ExtractionResult> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            return failure;
+        }
+    }
+
+    private ExtractionResult runExtraction(Path file) {
+        long start = System.currentTimeMillis();
+        try (PDDocument document = PDDocument.load(file.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            stripper.setEndPage(MAX_PAGES);
+            String text = stripper.getText(document);
+            if (text.length() > MAX_TEXT_LENGTH) {
+                text = text.substring(0, MAX_TEXT_LENGTH);
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            completed.incrementAndGet();
+            totalExtractionMillis.addAndGet(elapsed);
+            maxExtractionMillis.accumulateAndGet(elapsed, Math::max);
+            return new ExtractionResult(text, InvoiceTextParser.parse(text), elapsed);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.err.println("ERROR: PDF text extraction failed for " + file + ": " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Cached result for an attachment key, or null if it has not been extracted
+     */
+    public synchronized ExtractionResult getResult(String key) {
+        return results.get(key);
+    }
+
+    public boolean isPending(String key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Attachment keys whose text contains every word of the query
+     */
+    public synchronized Set<String> search(String query) {
+        Set<String> matches = null;
+        for (String token : tokenize(query)) {
+            Set<String> keys = keysByToken.getOrDefault(token, Collections.emptySet());
+            if (matches == null) {
+                matches = new HashSet<>(keys);
+            } else {
+                matches.retainAll(keys);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches != null ? matches : Collections.emptySet();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long done = completed.get();
+        metrics.put("workers", WORKERS);
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", QUEUE_CAPACITY);
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("submitted", submitted.get());
+        metrics.put("completed", done);
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("averageExtractionMillis", done > 0 ? totalExtractionMillis.get() / done : 0);
+        metrics.put("maxExtractionMillis", maxExtractionMillis.get());
+        metrics.put("averageQueueMillis", done + failed.get() > 0 ? totalQueueMillis.get() / (done + failed.get()) : 0);
+        synchronized (this) {
+            metrics.put("indexedDocuments", results.size());
+            metrics.put("indexedTerms", keysByToken.size());
+        }
+        return metrics;
+    }
+
+    private synchronized void store(String key, ExtractionResult result) {
+        results.put(key, result);
+        index(key, result.getText());
+        saveResult(key, result);
+    }
+
+    private void index(String key, String text) {
+        for (String token : tokenize(text)) {
+            keysByToken.computeIfAbsent(token, k -> new HashSet<>()).add(key);
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new HashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void loadResults() {
+        File[] files = new File(RESULTS_DIR).listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                String key = (String) ois.readObject();
+                ExtractionResult result = (ExtractionResult) ois.readObject();
+                results.put(key, result);
+                index(key, result.getText());
+            } catch (Exception e) {
+                System.err.println("ERROR: Failed to load extracted PDF text from " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void saveResult(String key, ExtractionResult result) {
+        File resultsDir = new File(RESULTS_DIR);
+        if (!resultsDir.exists()) {
+            resultsDir.mkdirs();
+        }
+        File file = new File(resultsDir, key.replaceAll("[^A-Za-z0-9._-]", "_") + ".dat");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            oos.writeObject(key);
+            oos.writeObject(result);
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to save extracted PDF text: " + e.getMessage());
+        }
+    }
+}
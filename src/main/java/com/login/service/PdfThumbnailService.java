@@ -0,0 +1,269 @@
+package com.login.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * First-page PNG thumbnails of attachments. Each thumbnail is rendered once on a small bounded
+ * worker pool and cached on disk under data/thumbnails, keyed by the SHA-256 of the PDF, so the
+ * same invoice attached to several bills is rendered once and a cached file never changes.
+ */
+public class PdfThumbnailService {
+
+    private static final String DATA_DIR = "data";
+    private static final String THUMBNAIL_DIR = DATA_DIR + File.separator + "thumbnails";
+    private static final int WORKERS = 1;
+    private static final int QUEUE_CAPACITY = 50;
+    private static final float RENDER_DPI = 48f;
+    private static final int THUMBNAIL_WIDTH = 240;
+
+    private final Path root = Paths.get(THUMBNAIL_DIR);
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Path>> pending = new ConcurrentHashMap<>();
+    // Keys of attachments queued to be hashed before their thumbnail can be looked up
+    private final Set<String> hashing = ConcurrentHashMap.newKeySet();
+    // Hashes of attachments outside the blob store, valid while the file keeps its size and mtime
+    private final Map<String, String> hashByVersion = new ConcurrentHashMap<>();
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalRenderMillis = new AtomicLong();
+
+    private static PdfThumbnailService instance;
+
+    private PdfThumbnailService() {
+        executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "pdf-thumbnail-renderer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static synchronized PdfThumbnailService getInstance() {
+        if (instance == null) {
+            instance = new PdfThumbnailService();
+        }
+        return instance;
+    }
+
+    /**
+     * Content hash of a stored attachment if it is known without reading the file: taken from the
+     * key for blobs, otherwise remembered from hashing the same file version before. Null if the
+     * file still has to be hashed, which requestForKey does in the background.
+     */
+    public String knownHashOf(String key, Path file) throws IOException {
+        String hash = PdfBlobStore.hashOf(key);
+        return hash != null ? hash : hashByVersion.get(versionOf(key, file));
+    }
+
+    private String hashOf(String key, Path file) throws IOException {
+        String hash = knownHashOf(key, file);
+        if (hash == null) {
+            hash = PdfBlobStore.sha256Of(file);
+            hashByVersion.put(versionOf(key, file), hash);
+        }
+        return hash;
+    }
+
+    private static String versionOf(String key, Path file) throws IOException {
+        return key + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * Cached thumbnail for a content hash, or null if it has not been rendered
+     */
+    public Path getThumbnail(String hash) {
+        if (!PdfBlobStore.isValidHash(hash)) {
+            return null;
+        }
+        Path thumbnail = pathOf(hash);
+        return Files.isRegularFile(thumbnail) ? thumbnail : null;
+    }
+
+    /**
+     * Render the thumbnail for a PDF in the background unless it is cached or already queued.
+     * When the queue is full the request is dropped and counted; a later request retries it.
+     */
+    public CompletableFuture<Path> request(String hash, Path pdf) {
+        Path cached = getThumbnail(hash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<Path> queued = pending.get(hash);
+        if (queued != null) {
+            return queued;
+        }
+        CompletableFuture<Path> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> render(hash, pdf), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        pending.put(hash, future);
+        future.whenComplete((path, error) -> pending.remove(hash));
+        return future;
+    }
+
+    /**
+     * Queue the thumbnail of a stored attachment. A file whose hash is not known yet is hashed on
+     * the worker as well, since that reads the whole PDF.
+     */
+    public void requestForKey(String key) {
+        Path pdf = PdfAttachmentIndex.storagePath(key);
+        if (pdf == null || !Files.isRegularFile(pdf)) {
+            return;
+        }
+        try {
+            String hash = knownHashOf(key, pdf);
+            if (hash != null) {
+                request(hash, pdf);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not queue thumbnail for " + key + ": " + e.getMessage());
+            return;
+        }
+        if (!hashing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    render(hashOf(key, pdf), pdf);
+                } catch (IOException e) {
+                    System.err.println("ERROR: Could not hash " + key + " for its thumbnail: " + e.getMessage());
+                } catch (CompletionException e) {
+                    // Counted and logged by render
+                } finally {
+                    hashing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            hashing.remove(key);
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delete cached thumbnails whose PDF is no longer stored, given the content hashes of every
+     * stored PDF. Thumbnails written after modifiedBefore are kept, as their PDF may have been
+     * stored after the hashes were collected. Returns the number of bytes freed.
+     */
+    public long sweep(Set<String> storedHashes, long modifiedBefore, List<String> removed, boolean dryRun) {
+        long freed = 0;
+        if (!Files.isDirectory(root)) {
+            return freed;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".png")) {
+                    continue;
+                }
+                String hash = name.substring(0, name.length() - ".png".length());
+                if (storedHashes.contains(hash) || pending.containsKey(hash)
+                        || Files.getLastModifiedTime(file).toMillis() > modifiedBefore) {
+                    continue;
+                }
+                long size = Files.size(file);
+                if (!dryRun) {
+                    Files.deleteIfExists(file);
+                }
+                removed.add(root.relativize(file).toString().replace('\\', '/'));
+                freed += size;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("ERROR: Failed to sweep thumbnails: " + e.getMessage());
+        }
+        return freed;
+    }
+
+    public boolean isPending(String hash) {
+        return pending.containsKey(hash);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long done = rendered.get();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", QUEUE_CAPACITY);
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("rendered", done);
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("averageRenderMillis", done > 0 ? totalRenderMillis.get() / done : 0);
+        return metrics;
+    }
+
+    private Path render(String hash, Path pdf) {
+        Path target = pathOf(hash);
+        if (Files.isRegularFile(target)) {
+            return target;
+        }
+        long start = System.currentTimeMillis();
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            BufferedImage page = new PDFRenderer(document).renderImageWithDPI(0, RENDER_DPI, ImageType.RGB);
+            BufferedImage thumbnail = scaleToWidth(page, THUMBNAIL_WIDTH);
+
+            // Write beside the target and move it into place so readers never see a partial PNG
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                ImageIO.write(thumbnail, "png", temp.toFile());
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            rendered.incrementAndGet();
+            totalRenderMillis.addAndGet(elapsed);
+            System.out.println("DEBUG: Rendered thumbnail for " + pdf.getFileName() + " in " + elapsed + " ms");
+            return target;
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("ERROR: Thumbnail rendering failed for " + pdf + ": " + e.getMessage());
+            throw new CompletionException(e);
+        }
+    }
+
+    private static BufferedImage scaleToWidth(BufferedImage image, int width) {
+        if (image.getWidth() <= width) {
+            return image;
+        }
+        int height = Math.max(1, Math.round(image.getHeight() * (width / (float) image.getWidth())));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+    }
+}
@@ -0,0 +1,254 @@
+package com.login.service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Resumable chunked PDF uploads. A client initiates an upload with the file size, sends fixed-size
+ * chunks at their offsets in any order (each written in place with a positional FileChannel write),
+ * and completes it once every chunk has arrived. Received chunks are tracked per upload and
+ * persisted to data/uploads.dat, so an interrupted upload resumes with only the missing chunks,
+ * even after a restart.
+ */
+public class ResumableUploadManager {
+
+    private static final String DATA_DIR = "data";
+    private static final String UPLOADS_FILE = DATA_DIR + File.separator + "uploads.dat";
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final long EXPIRY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * State of one upload
+     */
+    public static class Upload implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String uploadId;
+        private final String username;
+        private final int serialNo;
+        private final String fileName;
+        private final long totalSize;
+        private final int chunkSize;
+        private final BitSet receivedChunks = new BitSet();
+        private long lastUpdated;
+
+        Upload(String uploadId, String username, int serialNo, String fileName, long totalSize, int chunkSize) {
+            this.uploadId = uploadId;
+            this.username = username;
+            this.serialNo = serialNo;
+            this.fileName = fileName;
+            this.totalSize = totalSize;
+            this.chunkSize = chunkSize;
+            this.lastUpdated = System.currentTimeMillis();
+        }
+
+        public String getUploadId() { return uploadId; }
+        public String getUsername() { return username; }
+        public int getSerialNo() { return serialNo; }
+        public String getFileName() { return fileName; }
+        public long getTotalSize() { return totalSize; }
+        public int getChunkSize() { return chunkSize; }
+        public long getLastUpdated() { return lastUpdated; }
+
+        public int getTotalChunks() {
+            return (int) ((totalSize + chunkSize - 1) / chunkSize);
+        }
+
+        public long getReceivedBytes() {
+            long bytes = (long) receivedChunks.cardinality() * chunkSize;
+            int last = getTotalChunks() - 1;
+            if (receivedChunks.get(last)) {
+                bytes -= (long) chunkSize - chunkLength(last);
+            }
+            return bytes;
+        }
+
+        public List<Integer> getMissingChunks() {
+            List<Integer> missing = new ArrayList<>();
+            for (int chunk = receivedChunks.nextClearBit(0); chunk < getTotalChunks(); chunk = receivedChunks.nextClearBit(chunk + 1)) {
+                missing.add(chunk);
+            }
+            return missing;
+        }
+
+        public boolean isComplete() {
+            return receivedChunks.cardinality() == getTotalChunks();
+        }
+
+        long chunkLength(int chunk) {
+            return Math.min(chunkSize, totalSize - (long) chunk * chunkSize);
+        }
+    }
+
+    private final Map<String, Upload> uploads = new HashMap<>();
+
+    private static ResumableUploadManager instance;
+
+    private ResumableUploadManager() {
+        loadUploads();
+    }
+
+    public static synchronized ResumableUploadManager getInstance() {
+        if (instance == null) {
+            instance = new ResumableUploadManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Start an upload; the chunk size is clamped to 64KB..16MB
+     */
+    public synchronized Upload initiate(String username, int serialNo, String fileName, long totalSize,
+                                        Integer requestedChunkSize, long maxBytes) throws IOException {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("File size must be positive");
+        }
+        if (totalSize > maxBytes) {
+            throw new IllegalArgumentException("File exceeds the maximum upload size of " + maxBytes + " bytes");
+        }
+        expireStaleUploads();
+        int chunkSize = requestedChunkSize != null ? requestedChunkSize : DEFAULT_CHUNK_SIZE;
+        chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+        Upload upload = new Upload(UUID.randomUUID().toString(), username, serialNo, fileName, totalSize, chunkSize);
+        // Empty for now; chunks are placed at their offsets as they arrive
+        Files.createFile(partFile(upload.getUploadId()));
+        uploads.put(upload.getUploadId(), upload);
+        saveUploads();
+        System.out.println("DEBUG: Started chunked upload " + upload.getUploadId() + " for bill " + serialNo
+            + " (" + totalSize + " bytes in " + upload.getTotalChunks() + " chunks)");
+        return upload;
+    }
+
+    /**
+     * Upload owned by the given user, or null
+     */
+    public synchronized Upload getUpload(String uploadId, String username) {
+        Upload upload = uploads.get(uploadId);
+        return upload != null && upload.getUsername().equals(username) ? upload : null;
+    }
+
+    /**
+     * Write one chunk at its offset. The offset must fall on a chunk boundary and the body must be
+     * exactly the chunk's length; a chunk that was already received is simply overwritten. The
+     * chunk is on disk before it is recorded as received, so a crash never marks lost bytes done.
+     */
+    public Upload writeChunk(Upload upload, long offset, ReadableByteChannel source) throws IOException {
+        if (offset < 0 || offset >= upload.getTotalSize() || offset % upload.getChunkSize() != 0) {
+            throw new IllegalArgumentException("Offset must be a multiple of the chunk size within the file");
+        }
+        int chunk = (int) (offset / upload.getChunkSize());
+        long expected = upload.chunkLength(chunk);
+
+        long written = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(partFile(upload.getUploadId()), StandardOpenOption.WRITE)) {
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                if (written + buffer.remaining() > expected) {
+                    throw new IllegalArgumentException("Chunk " + chunk + " is longer than " + expected + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, offset + written);
+                }
+                buffer.clear();
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk " + chunk + " has " + written + " bytes, expected " + expected);
+            }
+            channel.force(false);
+        }
+
+        synchronized (this) {
+            upload.receivedChunks.set(chunk);
+            upload.lastUpdated = System.currentTimeMillis();
+            saveUploads();
+        }
+        return upload;
+    }
+
+    /**
+     * Move a fully received upload into the blob store and forget it
+     */
+    public PdfBlobStore.StoredBlob complete(Upload upload) throws IOException {
+        synchronized (this) {
+            if (!upload.isComplete()) {
+                throw new IllegalStateException("Upload is missing " + upload.getMissingChunks().size() + " chunks");
+            }
+        }
+        Path part = partFile(upload.getUploadId());
+        try {
+            return PdfBlobStore.getInstance().storeFile(part);
+        } finally {
+            Files.deleteIfExists(part);
+            synchronized (this) {
+                uploads.remove(upload.getUploadId());
+                saveUploads();
+            }
+        }
+    }
+
+    public synchronized void abort(Upload upload) throws IOException {
+        uploads.remove(upload.getUploadId());
+        Files.deleteIfExists(partFile(upload.getUploadId()));
+        saveUploads();
+    }
+
+    /**
+     * Drop uploads nobody has touched for a day
+     */
+    private void expireStaleUploads() {
+        long cutoff = System.currentTimeMillis() - EXPIRY_MILLIS;
+        Iterator<Upload> iterator = uploads.values().iterator();
+        while (iterator.hasNext()) {
+            Upload upload = iterator.next();
+            if (upload.getLastUpdated() < cutoff) {
+                iterator.remove();
+                try {
+                    Files.deleteIfExists(partFile(upload.getUploadId()));
+                } catch (IOException e) {
+                    System.err.println("ERROR: Failed to delete expired upload " + upload.getUploadId() + ": " + e.getMessage());
+                }
+                System.out.println("DEBUG: Expired chunked upload " + upload.getUploadId());
+            }
+        }
+    }
+
+    private Path partFile(String uploadId) throws IOException {
+        return PdfBlobStore.getInstance().tempDirectory().resolve("chunked-" + uploadId + ".part");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadUploads() {
+        File file = new File(UPLOADS_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            uploads.putAll((Map<String, Upload>) ois.readObject());
+        } catch (Exception e) {
+            System.err.println("ERROR: Failed to load pending uploads: " + e.getMessage());
+        }
+    }
+
+    private void saveUploads() {
+        File dataDir = new File(DATA_DIR);
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(UPLOADS_FILE))) {
+            oos.writeObject(new HashMap<>(uploads));
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to save pending uploads: " + e.getMessage());
+        }
+    }
+}
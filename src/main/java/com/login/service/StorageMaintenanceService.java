@@ -0,0 +1,365 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Background maintenance of the PDF store:
+ * <ul>
+ * <li>Garbage collection: mark every file some bill references, and sweep the rest once they have
+ * been unreferenced (and unmodified) for a grace period, so replaced and deleted attachments stop
+ * accumulating. Cached thumbnails of PDFs that are no longer stored are swept with them.</li>
+ * <li>Scrubbing: re-hash a batch of files per run, cycling through the whole store over successive
+ * runs. Blobs must match the hash in their name; other files must match the hash recorded when they
+ * were first scrubbed unless their size or modification time changed. Bills whose PDF path no
+ * longer resolves are reported as dangling references.</li>
+ * </ul>
+ * State (orphan timestamps, recorded checksums, scrub position) is persisted to
+ * data/storage-maintenance.dat.
+ */
+public class StorageMaintenanceService {
+
+    private static final String DATA_DIR = "data";
+    private static final String STATE_FILE = DATA_DIR + File.separator + "storage-maintenance.dat";
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // A file written moments ago may be about to be referenced by the save that follows it
+    private static final int MIN_GRACE_DAYS = 1;
+
+    private static class State implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // When each unreferenced file was first seen unreferenced
+        private final Map<String, Long> orphanSince = new HashMap<>();
+        // Recorded "size:mtime" and SHA-256 of non-blob files
+        private final Map<String, String> scrubbedVersion = new HashMap<>();
+        private final Map<String, String> scrubbedHash = new HashMap<>();
+        private String scrubCursor = "";
+        private long runs;
+        private long filesDeleted;
+        private long bytesReclaimed;
+        private long filesScrubbed;
+        private long checksumMismatches;
+    }
+
+    /**
+     * Outcome of the latest run plus cumulative counters
+     */
+    public static class Report {
+        private long startedAt;
+        private long durationMillis;
+        private boolean dryRun;
+        private int totalFiles;
+        private long totalBytes;
+        private int referencedFiles;
+        private int orphanedFiles;
+        private long orphanedBytes;
+        private final List<String> deletedFiles = new ArrayList<>();
+        private final List<String> deletedThumbnails = new ArrayList<>();
+        private long bytesReclaimed;
+        private int scrubbedFiles;
+        private final List<Map<String, String>> checksumMismatches = new ArrayList<>();
+        private final List<Map<String, Object>> danglingReferences = new ArrayList<>();
+        private final Map<String, Long> totals = new LinkedHashMap<>();
+
+        public long getStartedAt() { return startedAt; }
+        public long getDurationMillis() { return durationMillis; }
+        public boolean isDryRun() { return dryRun; }
+        public int getTotalFiles() { return totalFiles; }
+        public long getTotalBytes() { return totalBytes; }
+        public int getReferencedFiles() { return referencedFiles; }
+        public int getOrphanedFiles() { return orphanedFiles; }
+        public long getOrphanedBytes() { return orphanedBytes; }
+        public List<String> getDeletedFiles() { return deletedFiles; }
+        public List<String> getDeletedThumbnails() { return deletedThumbnails; }
+        public long getBytesReclaimed() { return bytesReclaimed; }
+        public int getScrubbedFiles() { return scrubbedFiles; }
+        public List<Map<String, String>> getChecksumMismatches() { return checksumMismatches; }
+        public List<Map<String, Object>> getDanglingReferences() { return danglingReferences; }
+        public Map<String, Long> getTotals() { return totals; }
+    }
+
+    private State state = new State();
+    private volatile Report lastReport;
+
+    private static StorageMaintenanceService instance;
+
+    private StorageMaintenanceService() {
+        loadState();
+    }
+
+    public static synchronized StorageMaintenanceService getInstance() {
+        if (instance == null) {
+            instance = new StorageMaintenanceService();
+        }
+        return instance;
+    }
+
+    /**
+     * Report of the latest run, or null if none has run in this process
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * One maintenance pass: mark and sweep with the given grace period, then scrub up to
+     * scrubBatchSize files. With dryRun nothing is deleted; otherwise the grace period is at least
+     * a day.
+     */
+    public synchronized Report run(List<BillRecord> bills, int graceDays, int scrubBatchSize, boolean dryRun) {
+        if (!dryRun && graceDays < MIN_GRACE_DAYS) {
+            System.out.println("DEBUG: Raising storage maintenance grace period from " + graceDays + " to " + MIN_GRACE_DAYS + " day");
+            graceDays = MIN_GRACE_DAYS;
+        }
+        Report report = new Report();
+        report.startedAt = System.currentTimeMillis();
+        report.dryRun = dryRun;
+        long graceMillis = graceDays * DAY_MILLIS;
+        PdfAttachmentIndex attachments = PdfAttachmentIndex.getInstance();
+
+        // Mark: every stored file a bill resolves to
+        Set<String> referenced = new HashSet<>();
+        for (BillRecord bill : bills) {
+            if (bill.getPdfFilePath() == null || bill.getPdfFilePath().isEmpty()) {
+                continue;
+            }
+            String key = attachments.lookup(bill.getPdfFilePath());
+            if (key != null && Files.isRegularFile(PdfAttachmentIndex.storagePath(key))) {
+                referenced.add(key);
+            } else {
+                Map<String, Object> dangling = new LinkedHashMap<>();
+                dangling.put("serialNo", bill.getSerialNo());
+                dangling.put("invoiceNumber", bill.getInvoiceNumber());
+                dangling.put("pdfFilePath", bill.getPdfFilePath());
+                report.danglingReferences.add(dangling);
+            }
+        }
+
+        // Sweep: unreferenced files past the grace period
+        SortedMap<String, Path> files = listStoredFiles();
+        state.orphanSince.keySet().retainAll(files.keySet());
+        state.scrubbedVersion.keySet().retainAll(files.keySet());
+        state.scrubbedHash.keySet().retainAll(files.keySet());
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            String key = entry.getKey();
+            Path file = entry.getValue();
+            long size = sizeOf(file);
+            report.totalFiles++;
+            report.totalBytes += size;
+            if (referenced.contains(key) || isPendingUpload(key)) {
+                report.referencedFiles++;
+                state.orphanSince.remove(key);
+                continue;
+            }
+            report.orphanedFiles++;
+            report.orphanedBytes += size;
+            long since = state.orphanSince.computeIfAbsent(key, k -> report.startedAt);
+            boolean expired = report.startedAt - since >= graceMillis
+                && report.startedAt - lastModifiedOf(file) >= graceMillis;
+            if (expired && !dryRun) {
+                try {
+                    Files.deleteIfExists(file);
+                    attachments.remove(key);
+                    state.orphanSince.remove(key);
+                    state.scrubbedVersion.remove(key);
+                    state.scrubbedHash.remove(key);
+                    report.deletedFiles.add(key);
+                    report.bytesReclaimed += size;
+                } catch (IOException e) {
+                    System.err.println("ERROR: Failed to delete orphaned PDF " + key + ": " + e.getMessage());
+                }
+            } else if (expired) {
+                report.deletedFiles.add(key);
+                report.bytesReclaimed += size;
+            }
+        }
+        if (!dryRun) {
+            files.keySet().removeAll(report.deletedFiles);
+        }
+
+        scrub(files, scrubBatchSize, report);
+        sweepThumbnails(files, report.startedAt - graceMillis, report);
+
+        if (!dryRun) {
+            state.runs++;
+            state.filesDeleted += report.deletedFiles.size();
+            state.bytesReclaimed += report.bytesReclaimed;
+        }
+        state.filesScrubbed += report.scrubbedFiles;
+        state.checksumMismatches += report.checksumMismatches.size();
+        report.totals.put("runs", state.runs);
+        report.totals.put("filesDeleted", state.filesDeleted);
+        report.totals.put("bytesReclaimed", state.bytesReclaimed);
+        report.totals.put("filesScrubbed", state.filesScrubbed);
+        report.totals.put("checksumMismatches", state.checksumMismatches);
+        report.durationMillis = System.currentTimeMillis() - report.startedAt;
+        saveState();
+        lastReport = report;
+
+        System.out.println("DEBUG: Storage maintenance" + (dryRun ? " (dry run)" : "") + ": " + report.totalFiles + " files, "
+            + report.orphanedFiles + " orphaned, " + report.deletedFiles.size() + " swept, " + report.deletedThumbnails.size()
+            + " thumbnails swept (" + report.bytesReclaimed + " bytes), "
+            + report.scrubbedFiles + " scrubbed, " + report.checksumMismatches.size() + " checksum mismatches, "
+            + report.danglingReferences.size() + " dangling references in " + report.durationMillis + " ms");
+        return report;
+    }
+
+    /**
+     * Re-hash the next batch of files after the scrub cursor, wrapping around at the end
+     */
+    private void scrub(SortedMap<String, Path> files, int batchSize, Report report) {
+        if (files.isEmpty() || batchSize <= 0) {
+            return;
+        }
+        List<String> batch = new ArrayList<>();
+        for (String key : files.tailMap(state.scrubCursor).keySet()) {
+            if (batch.size() >= batchSize) break;
+            if (!key.equals(state.scrubCursor)) batch.add(key);
+        }
+        for (String key : files.keySet()) {
+            if (batch.size() >= batchSize || batch.contains(key)) break;
+            batch.add(key);
+        }
+
+        for (String key : batch) {
+            // Skipped and unreadable files count as visited too, or a batch of them would stall the scrub
+            state.scrubCursor = key;
+            Path file = files.get(key);
+            if (isTempFile(key)) {
+                continue;
+            }
+            String actual;
+            try {
+                actual = PdfBlobStore.sha256Of(file);
+            } catch (IOException e) {
+                System.err.println("ERROR: Failed to scrub PDF " + key + ": " + e.getMessage());
+                continue;
+            }
+            report.scrubbedFiles++;
+
+            String expected = PdfBlobStore.hashOf(key);
+            if (expected == null) {
+                String version = sizeOf(file) + ":" + lastModifiedOf(file);
+                if (version.equals(state.scrubbedVersion.get(key))) {
+                    expected = state.scrubbedHash.get(key);
+                } else {
+                    // New or legitimately rewritten file: remember its current content
+                    state.scrubbedVersion.put(key, version);
+                    state.scrubbedHash.put(key, actual);
+                }
+            }
+            if (expected != null && !expected.equals(actual)) {
+                Map<String, String> mismatch = new LinkedHashMap<>();
+                mismatch.put("path", key);
+                mismatch.put("expectedSha256", expected);
+                mismatch.put("actualSha256", actual);
+                report.checksumMismatches.add(mismatch);
+                System.err.println("ERROR: Checksum mismatch for PDF " + key);
+            }
+        }
+    }
+
+    /**
+     * Delete thumbnails whose PDF is gone. Thumbnails are keyed by content hash, which for files
+     * outside the blob store is only known once the scrub has hashed them, so the sweep waits
+     * until every such file has a recorded hash rather than delete thumbnails still in use.
+     */
+    private void sweepThumbnails(SortedMap<String, Path> files, long modifiedBefore, Report report) {
+        Set<String> storedHashes = new HashSet<>();
+        for (String key : files.keySet()) {
+            if (isTempFile(key)) {
+                continue;
+            }
+            String hash = PdfBlobStore.hashOf(key);
+            if (hash == null) {
+                hash = state.scrubbedHash.get(key);
+            }
+            if (hash == null) {
+                System.out.println("DEBUG: Skipping thumbnail sweep until " + key + " has been scrubbed");
+                return;
+            }
+            storedHashes.add(hash);
+        }
+        report.bytesReclaimed += PdfThumbnailService.getInstance()
+            .sweep(storedHashes, modifiedBefore, report.deletedThumbnails, report.dryRun);
+    }
+
+    /**
+     * Every PDF under the pdfs directory by canonical key, plus leftover partial uploads
+     */
+    private SortedMap<String, Path> listStoredFiles() {
+        SortedMap<String, Path> files = new TreeMap<>();
+        Path root = Paths.get(PdfAttachmentIndex.PDF_ROOT);
+        if (!Files.isDirectory(root)) {
+            return files;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile).forEach(file -> {
+                String name = file.getFileName().toString().toLowerCase();
+                if (name.endsWith(".pdf") || name.endsWith(".part")) {
+                    files.put(root.relativize(file).toString().replace('\\', '/'), file);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to scan PDF storage: " + e.getMessage());
+        }
+        return files;
+    }
+
+    private static boolean isTempFile(String key) {
+        return key.startsWith(PdfBlobStore.BLOB_DIR + "/tmp/");
+    }
+
+    /**
+     * Chunked uploads in progress are owned by ResumableUploadManager, which expires them itself
+     */
+    private static boolean isPendingUpload(String key) {
+        return key.startsWith(PdfBlobStore.BLOB_DIR + "/tmp/chunked-");
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModifiedOf(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void loadState() {
+        File file = new File(STATE_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            state = (State) ois.readObject();
+        } catch (Exception e) {
+            System.err.println("ERROR: Failed to load storage maintenance state: " + e.getMessage());
+            state = new State();
+        }
+    }
+
+    private void saveState() {
+        File dataDir = new File(DATA_DIR);
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(STATE_FILE))) {
+            oos.writeObject(state);
+        } catch (IOException e) {
+            System.err.println("ERROR: Failed to save storage maintenance state: " + e.getMessage());
+        }
+    }
+}
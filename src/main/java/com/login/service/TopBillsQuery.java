@@ -0,0 +1,97 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Top-N bills per group (vendor, network, location...) without sorting the whole dataset.
+ * Each partition keeps a bounded min-heap of size N per group, and the partial heaps are
+ * merged at the end, for O(n log N) work overall.
+ */
+public class TopBillsQuery {
+    
+    // Largest bill first; ties broken by serial number so results are stable
+    private static final Comparator<BillRecord> BY_AMOUNT_DESC =
+        Comparator.comparingDouble(BillRecord::getBillWithTax).reversed()
+            .thenComparingInt(BillRecord::getSerialNo);
+    
+    // Below this many records a single partition is faster than forking
+    private static final int MIN_PARTITION_SIZE = 4096;
+    
+    private final Function<BillRecord, String> groupKey;
+    private final Predicate<BillRecord> filter;
+    private final int limit;
+    
+    public TopBillsQuery(Function<BillRecord, String> groupKey, Predicate<BillRecord> filter, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.groupKey = groupKey;
+        this.filter = filter;
+        this.limit = limit;
+    }
+    
+    /**
+     * Run the query; each group's bills are returned largest first
+     */
+    public Map<String, List<BillRecord>> execute(List<BillRecord> records) {
+        int size = records.size();
+        int partitions = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_PARTITION_SIZE));
+        
+        Map<String, PriorityQueue<BillRecord>> merged = IntStream.range(0, partitions)
+            .parallel()
+            .mapToObj(p -> collectPartition(records, (int) ((long) p * size / partitions), (int) ((long) (p + 1) * size / partitions)))
+            .reduce(this::mergeHeaps)
+            .orElseGet(HashMap::new);
+        
+        Map<String, List<BillRecord>> result = new TreeMap<>();
+        for (Map.Entry<String, PriorityQueue<BillRecord>> entry : merged.entrySet()) {
+            List<BillRecord> top = new ArrayList<>(entry.getValue());
+            top.sort(BY_AMOUNT_DESC);
+            result.put(entry.getKey(), top);
+        }
+        return result;
+    }
+    
+    private Map<String, PriorityQueue<BillRecord>> collectPartition(List<BillRecord> records, int from, int to) {
+        Map<String, PriorityQueue<BillRecord>> heaps = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            BillRecord record = records.get(i);
+            if (filter.test(record)) {
+                offer(heaps, groupOf(record), record);
+            }
+        }
+        return heaps;
+    }
+    
+    private Map<String, PriorityQueue<BillRecord>> mergeHeaps(Map<String, PriorityQueue<BillRecord>> left,
+                                                           Map<String, PriorityQueue<BillRecord>> right) {
+        for (Map.Entry<String, PriorityQueue<BillRecord>> entry : right.entrySet()) {
+            for (BillRecord record : entry.getValue()) {
+                offer(left, entry.getKey(), record);
+            }
+        }
+        return left;
+    }
+    
+    /**
+     * Keep only the N largest bills of a group; the heap head is the smallest kept bill
+     */
+    private void offer(Map<String, PriorityQueue<BillRecord>> heaps, String group, BillRecord record) {
+        PriorityQueue<BillRecord> heap = heaps.computeIfAbsent(group, g -> new PriorityQueue<>(limit + 1, BY_AMOUNT_DESC.reversed()));
+        if (heap.size() < limit) {
+            heap.offer(record);
+        } else if (BY_AMOUNT_DESC.compare(record, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(record);
+        }
+    }
+    
+    private String groupOf(BillRecord record) {
+        String key = groupKey.apply(record);
+        return key != null ? key : "Unknown";
+    }
+}
@@ -1,7 +1,14 @@
 package com.login.ui;
 
 import com.login.service.BillDataService;
+import com.login.service.BillImportService;
+import com.login.service.BillingGapDetector;
+import com.login.service.FiscalCalendar;
+import com.login.service.InvoiceTextParser;
 import com.login.service.NetworkVendorManager;
+import com.login.service.PdfAttachmentIndex;
+import com.login.service.PdfBlobStore;
+import com.login.service.PdfTextExtractionService;
 import com.login.service.UserService;
 import com.login.model.BillRecord;
 import com.login.model.User;
@@ -26,7 +33,9 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import com.toedter.calendar.JDateChooser;
 import java.awt.Desktop;
@@ -123,6 +132,7 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
         this.userService = UserService.getInstance();
         this.billDataService = new BillDataService(currentUser);
         this.networkManager = NetworkVendorManager.getInstance();
+        PdfAttachmentIndex.getInstance().rebuildIfNeeded(billDataService.getAllBillRecords());
         
         // Register as listener for network/vendor changes
         networkManager.addChangeListener(this);
@@ -548,6 +558,15 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
         });
         filterRow.add(refreshButton);
         
+        // Bulk import from CSV/XLSX
+        JButton importButton = new JButton("Import Bills...");
+        importButton.setPreferredSize(new Dimension(140, 35));
+        importButton.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        importButton.setFocusPainted(false);
+        importButton.setToolTipText("Add bills from a CSV or Excel (.xlsx) file with a header row");
+        importButton.addActionListener(e -> importBillsFromFile(importButton));
+        filterRow.add(importButton);
+        
         // Second row - Additional filters (Cost Center, GL Code, Commit Item)
         JPanel additionalFilterRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 5));
         additionalFilterRow.setBackground(new Color(248, 249, 250));
@@ -2400,6 +2419,34 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
             record.setStatus((String) statusComboBox.getSelectedItem());
             record.setRemarks(remarksTextArea.getText().trim());
             
+            // Flag an invoice number already entered for this vendor
+            List<Integer> duplicates = billDataService.findDuplicateInvoices(record);
+            if (!duplicates.isEmpty()) {
+                int choice = JOptionPane.showConfirmDialog(this,
+                    "Invoice " + record.getInvoiceNumber() + " from " + record.getVendor() +
+                    " already exists (bill #" + duplicates.stream().map(String::valueOf).collect(Collectors.joining(", #")) + ")." +
+                    "\n\nSave this record anyway?",
+                    "Duplicate Invoice", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) {
+                    return;
+                }
+            }
+            
+            // Warn about bills from the same vendor and location with an overlapping service period
+            List<BillRecord> overlaps = billDataService.findBillingOverlaps(record);
+            if (!overlaps.isEmpty()) {
+                String serials = overlaps.stream()
+                    .map(r -> "#" + r.getSerialNo() + " (" + r.getInvoiceNumber() + ")")
+                    .collect(Collectors.joining(", "));
+                int choice = JOptionPane.showConfirmDialog(this,
+                    "The billing period overlaps existing bills for this vendor and location:\n" + serials +
+                    "\n\nSave this record anyway?",
+                    "Possible Duplicate Billing", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) {
+                    return;
+                }
+            }
+            
             // Handle PDF upload
             if (selectedPdfPath != null) {
                 String pdfFileName = copyPdfToStorage(selectedPdfPath, record.getInvoiceNumber());
@@ -2418,6 +2465,12 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
                 JOptionPane.showMessageDialog(this, "Bill record added successfully!", 
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             }
+            if (selectedPdfPath != null) {
+                PdfAttachmentIndex.getInstance().register(record.getSerialNo(), record.getPdfFilePath());
+                // The prefill only read the picked file; index the stored copy so its text is searchable
+                String key = record.getPdfFilePath();
+                PdfTextExtractionService.getInstance().submit(key, PdfAttachmentIndex.storagePath(key));
+            }
             
             // Clear form and refresh table
             clearForm();
@@ -2503,6 +2556,9 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
                 clearPdfButton.setEnabled(true);
             }
             
+            // Read the invoice in the background to suggest values for empty fields
+            prefillFromPdf(selectedFile);
+            
             // Show success message
             JOptionPane.showMessageDialog(this, 
                 String.format("PDF file selected successfully!\n\nFile: %s\nSize: %s", fileName, sizeText),
@@ -2510,6 +2566,111 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
         }
     }
     
+    /**
+     * Pick a CSV or XLSX file and import its rows in the background, then show the per-row errors
+     * and reload the table
+     */
+    private void importBillsFromFile(JButton importButton) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Bills");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Bill spreadsheets (*.csv, *.xlsx)", "csv", "xlsx"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        importButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        
+        new SwingWorker<BillImportService.ImportResult, Void>() {
+            @Override
+            protected BillImportService.ImportResult doInBackground() throws Exception {
+                // A separate service instance, so the table keeps reading its own records meanwhile
+                BillDataService importService = new BillDataService(currentUser);
+                try (InputStream input = Files.newInputStream(file.toPath())) {
+                    return BillImportService.getInstance().importBills(input, file.getName(), importService,
+                        false, false, BillImportService.DEFAULT_BATCH_SIZE);
+                }
+            }
+            
+            @Override
+            protected void done() {
+                importButton.setEnabled(true);
+                setCursor(Cursor.getDefaultCursor());
+                BillImportService.ImportResult result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("ERROR: Bulk import failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(BillTrackerDashboard.this,
+                        "Import failed: " + cause.getMessage(), "Import Bills", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                
+                billDataService = new BillDataService(currentUser);
+                populateYearComboBox();
+                populateViewCostCenterComboBox();
+                populateViewGlCodeComboBox();
+                populateViewCommitItemComboBox();
+                loadTableData();
+                
+                StringBuilder summary = new StringBuilder(String.format(
+                    "Imported %d of %d rows in %.1f s.", result.getImported(), result.getTotalRows(),
+                    result.getDurationMillis() / 1000.0));
+                if (result.getFailed() > 0) {
+                    summary.append(String.format("%n%d rows were skipped:%n", result.getFailed()));
+                    for (BillImportService.RowError error : result.getErrors()) {
+                        summary.append(String.format("%nRow %d: %s", error.getRow(), error.getMessage()));
+                    }
+                    if (result.isErrorsTruncated()) {
+                        summary.append(String.format("%n..."));
+                    }
+                }
+                JTextArea text = new JTextArea(summary.toString(), Math.min(20, result.getErrors().size() + 3), 60);
+                text.setEditable(false);
+                JOptionPane.showMessageDialog(BillTrackerDashboard.this, new JScrollPane(text), "Import Bills",
+                    result.getFailed() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            }
+        }.execute();
+    }
+    
+    /**
+     * Extract the selected PDF's text on the extraction worker pool and fill in form fields that
+     * are still empty with the invoice number, amounts and service period found in it
+     */
+    private void prefillFromPdf(File pdfFile) {
+        String pdfPath = pdfFile.getAbsolutePath();
+        PdfTextExtractionService.getInstance().extract(pdfFile.toPath())
+            .thenAccept(result -> SwingUtilities.invokeLater(() -> {
+                // The user may have picked another file meanwhile
+                if (!pdfPath.equals(selectedPdfPath)) {
+                    return;
+                }
+                InvoiceTextParser.InvoiceFields fields = result.getFields();
+                if (fields.getInvoiceNumber() != null && invoiceNumberField.getText().trim().isEmpty()) {
+                    invoiceNumberField.setText(fields.getInvoiceNumber());
+                }
+                if (fields.getTotalAmount() != null && billWithTaxField.getText().trim().isEmpty()) {
+                    billWithTaxField.setText(String.format("%.2f", fields.getTotalAmount()));
+                }
+                if (fields.getAmountWithoutTax() != null && billWithoutTaxField.getText().trim().isEmpty()) {
+                    billWithoutTaxField.setText(String.format("%.2f", fields.getAmountWithoutTax()));
+                }
+                if (fields.getFromDate() != null && fromDateChooser.getDate() == null) {
+                    fromDateChooser.setDate(java.sql.Date.valueOf(fields.getFromDate()));
+                }
+                if (fields.getToDate() != null && toDateChooser.getDate() == null) {
+                    toDateChooser.setDate(java.sql.Date.valueOf(fields.getToDate()));
+                }
+                System.out.println("DEBUG: Prefilled bill form from PDF text in " + result.getExtractionMillis() + " ms");
+            }))
+            .exceptionally(error -> {
+                System.out.println("DEBUG: Could not read PDF text for prefill: " + error.getMessage());
+                return null;
+            });
+    }
+    
     /**
      * Clear selected PDF file
      */
@@ -2553,43 +2714,19 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
             throw new IOException("Cannot read source PDF file: " + sourcePath);
         }
         
-        // Create secure filename with timestamp and sanitized invoice number
-        String sanitizedInvoiceNumber = invoiceNumber.replaceAll("[^a-zA-Z0-9-_]", "_");
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String originalFileName = sourceFile.getName();
-        String fileExtension = originalFileName.substring(originalFileName.lastIndexOf('.'));
-        String fileName = timestamp + "_" + sanitizedInvoiceNumber + "_" + 
-                         originalFileName.substring(0, originalFileName.lastIndexOf('.')) + fileExtension;
-        
-        // Create shared PDF directory for all users
-        File sharedPdfDir = new File("pdfs", "shared");
-        if (!sharedPdfDir.exists()) {
-            boolean created = sharedPdfDir.mkdirs();
-            if (!created) {
-                throw new IOException("Failed to create PDF storage directory: " + sharedPdfDir.getAbsolutePath());
-            }
-        }
-        
-        File destFile = new File(sharedPdfDir, fileName);
-        
-        try {
-            // Copy file with progress feedback
-            long fileSize = sourceFile.length();
-            Files.copy(sourceFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // Store by content hash so re-attaching the same invoice PDF costs no extra disk
+        try (InputStream in = Files.newInputStream(sourceFile.toPath())) {
+            PdfBlobStore.StoredBlob blob = PdfBlobStore.getInstance().store(in);
             
             // Verify copy was successful
-            if (!destFile.exists() || destFile.length() != fileSize) {
+            if (blob.getSize() != sourceFile.length()) {
                 throw new IOException("PDF file copy verification failed");
             }
             
             // Return relative path for storage in database
-            return "shared/" + fileName;
+            return blob.getKey();
             
         } catch (IOException e) {
-            // Clean up partial copy on failure
-            if (destFile.exists()) {
-                destFile.delete();
-            }
             throw new IOException("Failed to copy PDF file: " + e.getMessage(), e);
         }
     }
@@ -2687,7 +2824,8 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
         // Handle PDF file display for editing - Enhanced
         if (record.getPdfFilePath() != null && !record.getPdfFilePath().trim().isEmpty()) {
             String pdfPath = record.getPdfFilePath();
-            File pdfFile = new File("pdfs", pdfPath);
+            Path indexedPath = PdfAttachmentIndex.getInstance().resolveForBill(record);
+            File pdfFile = indexedPath != null ? indexedPath.toFile() : new File("pdfs", pdfPath);
             
             if (pdfFile.exists()) {
                 // Display file name and size
@@ -2755,7 +2893,8 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
                 .orElse(null);
             
             if (record != null && record.getPdfFilePath() != null) {
-                File pdfFile = new File("pdfs", record.getPdfFilePath());
+                Path indexedPath = PdfAttachmentIndex.getInstance().resolveForBill(record);
+                File pdfFile = indexedPath != null ? indexedPath.toFile() : new File("pdfs", record.getPdfFilePath());
                 if (pdfFile.exists()) {
                     if (Desktop.isDesktopSupported()) {
                         Desktop.getDesktop().open(pdfFile);
@@ -2792,7 +2931,8 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
                 .orElse(null);
             
             if (record != null && record.getPdfFilePath() != null) {
-                File pdfFile = new File("pdfs", record.getPdfFilePath());
+                Path indexedPath = PdfAttachmentIndex.getInstance().resolveForBill(record);
+                File pdfFile = indexedPath != null ? indexedPath.toFile() : new File("pdfs", record.getPdfFilePath());
                 if (pdfFile.exists()) {
                     JFileChooser fileChooser = new JFileChooser();
                     fileChooser.setSelectedFile(new File(record.getInvoiceNumber() + "_invoice.pdf"));
@@ -3296,8 +3436,66 @@ public class BillTrackerDashboard extends JFrame implements NetworkVendorManager
         });
         filterPanel.add(refreshButton, gbc);
         
+        gbc.gridx = 3;
+        JButton missingBillsButton = new JButton("Missing Bills");
+        missingBillsButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        missingBillsButton.setFocusPainted(false);
+        missingBillsButton.setPreferredSize(new Dimension(120, 30));
+        missingBillsButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        missingBillsButton.setToolTipText("Show vendors and locations with no bill for a fiscal quarter");
+        missingBillsButton.addActionListener(e -> showMissingBillsDialog());
+        filterPanel.add(missingBillsButton, gbc);
+        
         return filterPanel;
     }
+    
+    /**
+     * Show (network, vendor, location) combinations with no bill for a fiscal period such as Q2-FY2025
+     */
+    private void showMissingBillsDialog() {
+        String defaultPeriod = FiscalCalendar.periodLabel(FiscalCalendar.currentFiscalYear(), 1);
+        String period = (String) JOptionPane.showInputDialog(this,
+            "Fiscal period (e.g. Q2-FY2025):", "Missing Bills",
+            JOptionPane.QUESTION_MESSAGE, null, null, defaultPeriod);
+        if (period == null) {
+            return;
+        }
+        
+        int[] parsed = FiscalCalendar.parsePeriod(period);
+        if (parsed == null) {
+            JOptionPane.showMessageDialog(this,
+                "Please enter the period as Q<quarter>-FY<year>, e.g. Q2-FY2025",
+                "Invalid Period", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        String selectedNetwork = analyticsNetworkComboBox != null ?
+            (String) analyticsNetworkComboBox.getSelectedItem() : null;
+        List<BillingGapDetector.MissingBill> missing =
+            billDataService.findMissingBills(selectedNetwork, parsed[0], parsed[1]);
+        
+        if (missing.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                "No missing bills for " + period.trim().toUpperCase() + ".",
+                "Missing Bills", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        DefaultTableModel model = new DefaultTableModel(new String[]{"Network", "Vendor", "Location", "Period"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (BillingGapDetector.MissingBill bill : missing) {
+            model.addRow(new Object[]{bill.getNetwork(), bill.getVendor(), bill.getLocation(), bill.getPeriod()});
+        }
+        JTable table = new JTable(model);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 400));
+        JOptionPane.showMessageDialog(this, scrollPane,
+            missing.size() + " missing bill(s) for " + period.trim().toUpperCase(), JOptionPane.WARNING_MESSAGE);
+    }
 
     /**
      * Create the analytics content panel with filters and table
@@ -1,8 +1,15 @@
 // Indian Oil Bill Tracker - Frontend JavaScript
+const CHUNKED_UPLOAD_THRESHOLD = 8 * 1024 * 1024; // PDFs larger than this are uploaded in resumable chunks
+const CHUNK_UPLOAD_ATTEMPTS = 5;
+const THUMBNAIL_RETRY_ATTEMPTS = 3;
+const PDF_EXTRACTION_POLL_ATTEMPTS = 10;
+
 class IOCBillTracker {
     constructor() {
         this.currentUser = null;
         this.bills = [];
+        this.billsVersion = null; // Version token ("epoch:version") of bills.dat that this.bills reflects
+        this.configVersions = {}; // Last "config" and "networks" event versions the configuration reflects
         this.filteredBills = [];
         this.networks = [];
         this.vendors = [];
@@ -208,6 +215,8 @@ class IOCBillTracker {
 
         // Export
         document.getElementById('exportBtn')?.addEventListener('click', () => this.exportData());
+        document.getElementById('exportCsvBtn')?.addEventListener('click', () => this.exportData('csv'));
+        document.getElementById('exportParquetBtn')?.addEventListener('click', () => this.exportData('parquet'));
 
         // Network management
         document.getElementById('addNetworkForm')?.addEventListener('submit', (e) => {
@@ -264,6 +273,11 @@ class IOCBillTracker {
         document.getElementById('updateBillWithoutTax')?.addEventListener('input', (e) => {
             this.calculateBillWithTax(e.target.value);
         });
+
+        // A PDF picked while editing is attached right away so its invoice text can fill empty fields
+        document.getElementById('updatePdfFile')?.addEventListener('change', (e) => {
+            this.attachPickedPdf(e.target).catch(console.error);
+        });
     }
 
     showRegisterForm() {
@@ -384,12 +398,19 @@ class IOCBillTracker {
             console.log('🔐 Checking authentication status...');
             console.log('🔐 Current cookies:', document.cookie);
             
-            const user = await this.apiCall('/api/auth/me');
+            // One round trip for the profile and all startup data. Only a 401 means not signed in;
+            // if bootstrap fails otherwise, /me decides and the data is loaded without it
+            const bootstrap = await this.fetchBootstrap();
+            const user = bootstrap ? bootstrap.user : await this.apiCall('/api/auth/me');
             console.log('🔐 Authentication successful:', user);
             
             this.currentUser = user;
             this.showMainContent();
-            await this.loadInitialData();
+            if (bootstrap) {
+                await this.loadInitialData(bootstrap);
+            } else {
+                await this.loadInitialData();
+            }
         } catch (error) {
             console.log('🔐 Authentication failed:', error.message);
             console.log('🔐 Available cookies:', document.cookie);
@@ -397,7 +418,30 @@ class IOCBillTracker {
         }
     }
 
+    // Bootstrap data, or null when the server could not assemble it; throws only on 401
+    async fetchBootstrap() {
+        let response;
+        try {
+            response = await fetch(`${this.baseUrl}/api/bootstrap`, { credentials: 'include' });
+        } catch (error) {
+            console.error('❌ Bootstrap request failed:', error);
+            return null;
+        }
+        if (response.status === 401) {
+            throw new Error('Not authenticated');
+        }
+        const contentType = response.headers.get('content-type') || '';
+        if (!response.ok || !contentType.includes('application/json')) {
+            console.error('❌ Bootstrap failed:', response.status, response.statusText);
+            return null;
+        }
+        const data = await response.json().catch(() => null);
+        return data && data.user ? data : null;
+    }
+
     showLoginSection() {
+        this.disconnectEvents();
+        
         // Force logout API call to clear server session
         fetch('/api/auth/logout', { method: 'POST', credentials: 'include' }).catch(() => {});
         
@@ -484,18 +528,115 @@ class IOCBillTracker {
         });
     }
 
-    async loadInitialData() {
-        await Promise.all([
-            this.loadBills(),
-            this.loadNetworkData(),
-            this.loadLocations()
-        ]);
+    // Start from /api/bootstrap (profile, config, locations, first page of bills, analytics)
+    // instead of one request per piece
+    async loadInitialData(bootstrap) {
+        try {
+            const data = bootstrap || await this.apiCall('/api/bootstrap');
+            if (!data || data.error) {
+                throw new Error((data && data.error) || 'Empty bootstrap response');
+            }
+            this.applyConfiguration(data.config || {});
+            this.configVersions = { ...((data.config && data.config.versions) || {}) };
+            this.locations = Array.isArray(data.locations) ? data.locations : [];
+            
+            const page = data.bills || {};
+            this.bills = Array.isArray(page.items) ? page.items : [];
+            this.filteredBills = [...this.bills];
+            if (page.complete) {
+                this.billsVersion = page.version;
+            } else {
+                // Show the first page now and fetch the full list in the background
+                console.log(`📊 Bootstrap sent ${this.bills.length} of ${page.total} bills, loading the rest`);
+                this.billsVersion = null;
+                this.loadBills().then(() => this.applyFilters()).catch(console.error);
+            }
+        } catch (error) {
+            console.error('Bootstrap failed, loading pieces separately:', error);
+            await Promise.all([
+                this.loadBills(),
+                this.loadNetworkData(),
+                this.loadLocations()
+            ]);
+        }
         this.populateFilters();
         this.applyFilters();
+        this.connectEvents();
         // Debug logging
         this.testEditAndDownload();
     }
 
+    // Server-sent events tell us when bills or configuration changed on any desk (or in the
+    // desktop client); each event carries the new version and we fetch only the delta
+    connectEvents() {
+        if (this.events || typeof EventSource === 'undefined') {
+            return;
+        }
+        this.events = new EventSource(`${this.baseUrl}/api/events`, { withCredentials: true });
+        this.events.addEventListener('bills', (e) => {
+            const { version } = JSON.parse(e.data);
+            if (version !== this.billsVersion) {
+                this.refreshBillsFromEvent();
+            }
+        });
+        // Every subscribe resends the current versions, so only reload what actually moved
+        const reloadConfig = (e) => {
+            const { version } = JSON.parse(e.data);
+            if (version !== this.configVersions[e.type]) {
+                this.configVersions[e.type] = version;
+                this.refreshConfigFromEvent();
+            }
+        };
+        this.events.addEventListener('config', reloadConfig);
+        this.events.addEventListener('networks', reloadConfig);
+        this.events.onerror = () => {
+            // EventSource reconnects by itself; on reconnect the server resends current versions
+            console.log('🔌 Event stream interrupted, reconnecting...');
+        };
+    }
+
+    disconnectEvents() {
+        if (this.events) {
+            this.events.close();
+            this.events = null;
+        }
+    }
+
+    // Coalesce bursts of events into at most one refresh in flight plus one queued
+    async refreshBillsFromEvent() {
+        if (this.refreshingBills) {
+            this.billsRefreshQueued = true;
+            return;
+        }
+        this.refreshingBills = true;
+        try {
+            do {
+                this.billsRefreshQueued = false;
+                await this.loadBills();
+                this.applyFilters();
+            } while (this.billsRefreshQueued);
+        } finally {
+            this.refreshingBills = false;
+        }
+    }
+
+    // Same coalescing as bills: at most one /api/bills/config in flight plus one queued
+    async refreshConfigFromEvent() {
+        if (this.refreshingConfig) {
+            this.configRefreshQueued = true;
+            return;
+        }
+        this.refreshingConfig = true;
+        try {
+            do {
+                this.configRefreshQueued = false;
+                await this.loadNetworkData();
+            } while (this.configRefreshQueued);
+        } finally {
+            this.refreshingConfig = false;
+        }
+    }
+
     handleTabSwitch(targetId) {
         switch (targetId) {
             case '#view-panel':
@@ -513,23 +654,30 @@ class IOCBillTracker {
         }
     }
 
+    // Fetches only the bills changed since the version already held; the server sends the
+    // full list instead ("resync") on the first call or when its change log does not reach back
     async loadBills() {
         try {
             console.log('🔄 Starting loadBills()...');
-            const response = await this.apiCall('/api/bills');
-            console.log('📊 Bills API response:', response); // Debug log
-            console.log('📊 Response type:', typeof response, 'Is array:', Array.isArray(response));
+            const response = await this.apiCall(`/api/bills/changes?since=${encodeURIComponent(this.billsVersion || '')}`);
+            console.log('📊 Bills changes response:', response); // Debug log
             
-            // Check if response is an error object or an array
-            if (response && response.error) {
-                console.log('❌ Bills API returned error:', response.error);
+            // Check if response is an error object
+            if (!response || response.error) {
+                console.log('❌ Bills API returned error:', response && response.error);
                 this.bills = [];
                 this.filteredBills = [];
-                this.showAlert('Could not load bills: ' + response.error, 'warning');
+                this.billsVersion = null;
+                this.showAlert('Could not load bills: ' + (response && response.error), 'warning');
                 return;
             }
             
-            this.bills = Array.isArray(response) ? response : [];
+            if (response.resync) {
+                this.bills = Array.isArray(response.bills) ? response.bills : [];
+            } else {
+                this.applyBillChanges(response.updated || [], response.deleted || []);
+            }
+            this.billsVersion = response.version;
             this.filteredBills = [...this.bills];
             console.log('✅ Loaded bills:', this.bills.length, 'bills'); // Debug log
             console.log('📊 First few bills:', this.bills.slice(0, 3)); // Show first 3 bills
@@ -550,9 +698,26 @@ class IOCBillTracker {
             // Ensure bills is always an array even on error
             this.bills = [];
             this.filteredBills = [];
+            this.billsVersion = null;
         }
     }
 
+    // Merge a delta into this.bills, keyed by serial number; deleted serial numbers are tombstones
+    applyBillChanges(updated, deleted) {
+        const bySerialNo = new Map(this.bills.map(bill => [bill.serialNo, bill]));
+        deleted.forEach(serialNo => bySerialNo.delete(serialNo));
+        updated.forEach(bill => bySerialNo.set(bill.serialNo, bill));
+        this.bills = [...bySerialNo.values()].sort((a, b) => a.serialNo - b.serialNo);
+        console.log(`🔄 Applied bill changes: ${updated.length} updated, ${deleted.length} deleted`);
+    }
+
+    applyConfiguration(config) {
+        this.networks = config.networks || [];
+        this.vendors = config.vendors || [];
+        this.quarters = config.quarters || [];
+        this.networkConfig = config.networkConfig || {};
+    }
+
     async loadNetworkData() {
         try {
             const config = await this.apiCall('/api/bills/config');
@@ -567,10 +732,7 @@ class IOCBillTracker {
                 return;
             }
             
-            this.networks = config.networks || [];
-            this.vendors = config.vendors || [];
-            this.quarters = config.quarters || [];
-            this.networkConfig = config.networkConfig || {};
+            this.applyConfiguration(config);
         } catch (error) {
             console.error('Error loading network data:', error);
             this.networks = [];
@@ -829,7 +991,10 @@ class IOCBillTracker {
                 <td>${bill.costCenter || ''}</td>
                 <td>
                     ${bill.pdfFilePath ? 
-                        `<button class="btn btn-sm btn-outline-primary" onclick="tracker.downloadPdf('${bill.pdfFilePath.replace(/'/g, "\\'")}')" title="Download PDF">
+                        `<img class="pdf-thumbnail me-1" loading="lazy" alt="" src="${this.thumbnailUrl(bill)}"
+                              onclick="tracker.viewPdf('${bill.pdfFilePath.replace(/'/g, "\\'")}')"
+                              onerror="tracker.retryThumbnail(this)" title="Preview PDF">
+                        <button class="btn btn-sm btn-outline-primary" onclick="tracker.downloadPdf('${bill.pdfFilePath.replace(/'/g, "\\'")}')" title="Download PDF">
                             <i class="fas fa-download"></i>
                         </button>` : 
                         `<span class="text-muted">No PDF</span>`
@@ -1155,6 +1320,20 @@ class IOCBillTracker {
                     },
                     body: JSON.stringify(formData)
                 });
+                
+                // Same invoice number already entered for this vendor - ask before saving again
+                if (data && data.error === 'duplicate_invoice') {
+                    if (!confirm(data.message + '\n\nSave this bill anyway?')) {
+                        return;
+                    }
+                    data = await this.apiCall('/api/bills?allowDuplicate=true', {
+                        method: 'POST',
+                        headers: {
+                            'Content-Type': 'application/json',
+                        },
+                        body: JSON.stringify(formData)
+                    });
+                }
             }
 
             console.log('Save bill response data:', data);
@@ -1173,6 +1352,10 @@ class IOCBillTracker {
                 
                 this.showAlert(isEditing ? 'Bill updated successfully!' : 'Bill added successfully!', 'success');
                 
+                if (data.overlappingBills && data.overlappingBills.length > 0) {
+                    this.showAlert(`Billing period overlaps existing bills for this vendor and location: #${data.overlappingBills.join(', #')}`, 'warning');
+                }
+                
                 // Reset form and button
                 document.getElementById('updateBillForm').reset();
                 saveButton.innerHTML = '<i class="fas fa-save me-2"></i>Save Entry';
@@ -2224,6 +2407,10 @@ class IOCBillTracker {
         // Clear the temporary storage
         delete window.editingBillData;
 
+        if (bill.pdfFilePath) {
+            this.prefillFromPdfExtraction(serialNo).catch(console.error);
+        }
+
         this.showAlert('Editing bill #' + serialNo + '. All existing data has been loaded. Make your changes and click "Update Entry".', 'info');
     }
 
@@ -2250,6 +2437,36 @@ class IOCBillTracker {
         }
     }
 
+    // Content-addressed PDFs have an immutable, cacheable URL; older ones go through the path lookup
+    pdfUrl(pdfPath, base) {
+        const blob = pdfPath.replace(/\\/g, '/').match(/(?:^|\/)blobs\/[0-9a-f]{2}\/[0-9a-f]{2}\/([0-9a-f]{64})\.pdf$/);
+        if (blob) {
+            return `${base}/api/bills/blobs/${blob[1]}`;
+        }
+        return `${base}/api/bills/pdf/${encodeURIComponent(pdfPath)}`;
+    }
+
+    // Blob thumbnails are addressed by the PDF hash; other attachments redirect there once rendered
+    thumbnailUrl(bill) {
+        const blob = bill.pdfFilePath.replace(/\\/g, '/').match(/(?:^|\/)blobs\/[0-9a-f]{2}\/[0-9a-f]{2}\/([0-9a-f]{64})\.pdf$/);
+        if (blob) {
+            return `${this.baseUrl}/api/bills/thumbnails/${blob[1]}`;
+        }
+        return `${this.baseUrl}/api/bills/${bill.serialNo}/thumbnail`;
+    }
+
+    // The server answers 202 while a thumbnail is being rendered; try again a few times, then hide it
+    retryThumbnail(img) {
+        const attempts = Number(img.dataset.attempts || 0);
+        if (attempts >= THUMBNAIL_RETRY_ATTEMPTS) {
+            img.style.display = 'none';
+            return;
+        }
+        img.dataset.attempts = attempts + 1;
+        const src = img.src.split('?')[0];
+        setTimeout(() => { img.src = `${src}?retry=${attempts + 1}`; }, 2000 * (attempts + 1));
+    }
+
     viewPdf(pdfPath) {
         if (pdfPath) {
             console.log('DEBUG: Viewing PDF with path:', pdfPath);
@@ -2264,7 +2481,7 @@ class IOCBillTracker {
             const encodedPath = encodeURIComponent(cleanPath);
             console.log('DEBUG: Encoded path:', encodedPath);
             
-            const url = `/api/bills/pdf/${encodedPath}`;
+            const url = this.pdfUrl(cleanPath, '');
             console.log('DEBUG: Final URL:', url);
             
             const link = document.createElement('a');
@@ -2289,7 +2506,7 @@ class IOCBillTracker {
             console.log('DEBUG: Extracted filename for download:', filename);
             
             // Create the download URL with proper base URL
-            const downloadUrl = `${this.baseUrl}/api/bills/pdf/${encodeURIComponent(cleanPath)}`;
+            const downloadUrl = this.pdfUrl(cleanPath, this.baseUrl);
             console.log('DEBUG: Download URL:', downloadUrl);
             
             // Use fetch to download with proper credentials and error handling
@@ -2459,6 +2676,132 @@ class IOCBillTracker {
         fileInput.click();
     }
 
+    // Upload a file in chunks, resuming an earlier attempt for the same file if the server still has it.
+    // Returns the response of the final "complete" request.
+    async uploadPdfInChunks(serialNo, file) {
+        const base = `${this.baseUrl}/api/bills/${serialNo}/uploads`;
+        const resumeKey = `pdfUpload:${serialNo}:${file.name}:${file.size}:${file.lastModified}`;
+        let status = null;
+
+        const savedId = localStorage.getItem(resumeKey);
+        if (savedId) {
+            const existing = await fetch(`${base}/${savedId}`, { credentials: 'include' });
+            if (existing.ok) {
+                status = await existing.json();
+                console.log(`📤 Resuming upload ${savedId}: ${status.receivedBytes} of ${status.size} bytes already received`);
+            }
+        }
+        if (!status) {
+            const init = await fetch(base, {
+                method: 'POST',
+                credentials: 'include',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ fileName: file.name, size: file.size })
+            });
+            if (!init.ok) {
+                return init;
+            }
+            status = await init.json();
+            localStorage.setItem(resumeKey, status.uploadId);
+        }
+
+        for (const chunk of status.missingChunks) {
+            const offset = chunk * status.chunkSize;
+            const body = file.slice(offset, Math.min(offset + status.chunkSize, file.size));
+            for (let attempt = 1; ; attempt++) {
+                try {
+                    const put = await fetch(`${base}/${status.uploadId}?offset=${offset}`, {
+                        method: 'PUT',
+                        credentials: 'include',
+                        headers: { 'Content-Type': 'application/octet-stream' },
+                        body
+                    });
+                    if (put.ok) {
+                        break;
+                    }
+                    if (put.status < 500 || attempt >= CHUNK_UPLOAD_ATTEMPTS) {
+                        return put;
+                    }
+                } catch (error) {
+                    if (attempt >= CHUNK_UPLOAD_ATTEMPTS) {
+                        throw error;
+                    }
+                }
+                await new Promise(resolve => setTimeout(resolve, 1000 * attempt));
+            }
+            this.showAlert(`Uploading PDF... ${Math.round(Math.min(offset + status.chunkSize, file.size) * 100 / file.size)}%`, 'info');
+        }
+
+        const response = await fetch(`${base}/${status.uploadId}/complete`, { method: 'POST', credentials: 'include' });
+        if (response.status !== 409) {
+            localStorage.removeItem(resumeKey);
+        }
+        return response;
+    }
+
+    // Attach the PDF picked in the form to the bill being edited and prefill from its text. A new
+    // bill has no serial number until it is saved, so its PDF is uploaded with the save as before.
+    async attachPickedPdf(input) {
+        const file = input.files[0];
+        const saveButton = document.querySelector('#updateBillForm button[type="submit"]');
+        const serialNo = saveButton && saveButton.dataset.editingSerialNo;
+        if (!file || !serialNo) {
+            return;
+        }
+        if (await this.handlePdfUpload(serialNo, file)) {
+            // Already attached, so saving the form does not upload it again
+            input.value = '';
+            document.getElementById('currentPdfName').textContent = file.name;
+            document.getElementById('currentPdfInfo').style.display = 'block';
+            await this.prefillFromPdfExtraction(serialNo);
+        }
+    }
+
+    // Fill the form fields that are still empty with the invoice fields the server parsed from the
+    // bill's PDF, polling while the extraction is queued (202)
+    async prefillFromPdfExtraction(serialNo) {
+        for (let attempt = 0; attempt < PDF_EXTRACTION_POLL_ATTEMPTS; attempt++) {
+            const response = await fetch(`${this.baseUrl}/api/bills/${serialNo}/pdf-extraction`, { credentials: 'include' });
+            if (response.status === 202) {
+                await new Promise(resolve => setTimeout(resolve, 1500));
+                continue;
+            }
+            if (!response.ok) {
+                console.log('DEBUG: No PDF extraction for bill', serialNo, response.status);
+                return;
+            }
+            const fields = (await response.json()).fields || {};
+            // The user may have moved on to another bill meanwhile
+            const saveButton = document.querySelector('#updateBillForm button[type="submit"]');
+            if (!saveButton || saveButton.dataset.editingSerialNo !== String(serialNo)) {
+                return;
+            }
+            const values = {
+                updateInvoiceNumber: fields.invoiceNumber,
+                updateBillWithTax: fields.totalAmount != null ? fields.totalAmount.toFixed(2) : null,
+                updateBillWithoutTax: fields.amountWithoutTax != null ? fields.amountWithoutTax.toFixed(2) : null,
+                updateFromDate: fields.fromDate,
+                updateToDate: fields.toDate
+            };
+            const filled = Object.keys(values).filter(id => {
+                const element = document.getElementById(id);
+                if (!element || values[id] == null || element.value) {
+                    return false;
+                }
+                element.value = values[id];
+                return true;
+            });
+            if (filled.includes('updateFromDate') || filled.includes('updateToDate')) {
+                this.updateBillingPeriodFromDates();
+            }
+            if (filled.length > 0) {
+                console.log('DEBUG: Prefilled from PDF text:', filled);
+                this.showAlert(`Filled ${filled.length} empty field(s) from the PDF. Please check them before saving.`, 'info');
+            }
+            return;
+        }
+    }
+
     async handlePdfUpload(serialNo, file) {
         console.log('🔄 handlePdfUpload called with:', serialNo, file ? file.name : 'no file', 'Size:', file ? file.size : 'n/a', 'Type:', file ? file.type : 'n/a');
         
@@ -2494,34 +2837,30 @@ class IOCBillTracker {
         // Show upload progress indicator
         this.showAlert('Uploading PDF...', 'info');
         
-        // Create form data - ensure file is properly appended
-        const formData = new FormData();
-        formData.append('file', file, file.name);
-        
-        // Log what's in the FormData for debugging
-        console.log('📦 FormData contents:');
-        for (let [key, value] of formData.entries()) {
-            console.log(`  ${key}:`, value instanceof File ? `File: ${value.name}, size: ${value.size}, type: ${value.type}` : value);
-        }
-
         try {
-            // Create a direct form submission instead of using fetch API
-            const fullUrl = `${this.baseUrl}/api/bills/${serialNo}/upload-pdf`;
-            console.log('🔄 Full upload URL:', fullUrl);
-            
-            // Use proper fetch with explicit timeout
-            const controller = new AbortController();
-            const timeoutId = setTimeout(() => controller.abort(), 60000); // 1 minute timeout
-            
-            console.log('📤 Sending PDF upload request...');
-            const response = await fetch(fullUrl, {
-                method: 'POST',
-                body: formData,
-                credentials: 'include',
-                signal: controller.signal,
-                // Do not set Content-Type - browser will set it with proper boundary
-            });
-            clearTimeout(timeoutId);
+            let response;
+            if (file.size > CHUNKED_UPLOAD_THRESHOLD) {
+                // Large scans go up in resumable chunks so a dropped connection does not restart from zero
+                response = await this.uploadPdfInChunks(serialNo, file);
+            } else {
+                // Send the file as the raw request body so the server streams it straight into storage
+                const fullUrl = `${this.baseUrl}/api/bills/${serialNo}/pdf`;
+                console.log('🔄 Full upload URL:', fullUrl);
+                
+                // Use proper fetch with explicit timeout
+                const controller = new AbortController();
+                const timeoutId = setTimeout(() => controller.abort(), 60000); // 1 minute timeout
+                
+                console.log(`📤 Sending PDF upload request: ${file.name}, size: ${file.size}`);
+                response = await fetch(fullUrl, {
+                    method: 'PUT',
+                    body: file,
+                    credentials: 'include',
+                    signal: controller.signal,
+                    headers: { 'Content-Type': 'application/pdf' }
+                });
+                clearTimeout(timeoutId);
+            }
 
             console.log('📡 Upload response status:', response.status, response.statusText);
             
@@ -2565,6 +2904,7 @@ class IOCBillTracker {
                 this.showAlert('PDF uploaded successfully!', 'success');
                 await this.loadBills(); // Reload bills to get updated PDF path
                 this.applyFilters(); // Refresh the view
+                return true;
             } else {
                 this.showAlert('Failed to upload PDF: ' + (data.error || data.message || 'Unknown error'), 'danger');
             }
@@ -2583,187 +2923,32 @@ class IOCBillTracker {
         }
     }
 
-    exportData() {
-        try {
-            // Create workbook
-            const wb = XLSX.utils.book_new();
-            
-            // Prepare data for Excel
-            const headers = [
-                'Serial No', 'Network', 'Vendor', 'Quarter', 'Location', 'Invoice Number',
-                'Bill (With Tax)', 'Bill (Without Tax)', 'SES 1', 'SES 2', 'Billing Period',
-                'From Date', 'To Date', 'GL Code', 'Commit Item', 'Cost Center', 'Status', 'Remarks'
-            ];
-            
-            // Create data array with headers
-            const data = [headers];
-            
-            // Add bill data
-            this.filteredBills.forEach(bill => {
-                data.push([
-                    bill.serialNo || '',
-                    bill.network || '',
-                    bill.vendor || '',
-                    bill.quarterString || bill.quarter || '',
-                    bill.location || '',
-                    bill.invoiceNumber || '',
-                    bill.billWithTax || 0,
-                    bill.billWithoutTax || 0,
-                    bill.ses1 || '',
-                    bill.ses2 || '',
-                    bill.billingPeriod || '',
-                    bill.fromDate || '',
-                    bill.toDate || '',
-                    bill.glCode || '',
-                    bill.commitItem || '',
-                    bill.costCenter || '',
-                    bill.status || 'Pending',
-                    bill.remarks || ''
-                ]);
-            });
-            
-            // Create worksheet
-            const ws = XLSX.utils.aoa_to_sheet(data);
-            
-            // Set column widths
-            const colWidths = [
-                { wch: 10 }, // Serial No
-                { wch: 15 }, // Network
-                { wch: 20 }, // Vendor
-                { wch: 12 }, // Quarter
-                { wch: 25 }, // Location
-                { wch: 20 }, // Invoice Number
-                { wch: 15 }, // Bill (With Tax)
-                { wch: 15 }, // Bill (Without Tax)
-                { wch: 10 }, // SES 1
-                { wch: 10 }, // SES 2
-                { wch: 15 }, // Billing Period
-                { wch: 12 }, // From Date
-                { wch: 12 }, // To Date
-                { wch: 12 }, // GL Code
-                { wch: 15 }, // Commit Item
-                { wch: 15 }, // Cost Center
-                { wch: 12 }, // Status
-                { wch: 30 }  // Remarks
-            ];
-            ws['!cols'] = colWidths;
-            
-            // Style the header row
-            const headerRange = XLSX.utils.decode_range(ws['!ref']);
-            for (let col = headerRange.s.c; col <= headerRange.e.c; col++) {
-                const cellAddress = XLSX.utils.encode_cell({ r: 0, c: col });
-                if (!ws[cellAddress]) continue;
-                
-                ws[cellAddress].s = {
-                    font: { bold: true, color: { rgb: "FFFFFF" } },
-                    fill: { fgColor: { rgb: "366092" } },
-                    alignment: { horizontal: "center", vertical: "center" }
-                };
-            }
-            
-            // Add worksheet to workbook
-            XLSX.utils.book_append_sheet(wb, ws, "Bills Data");
-            
-            // Create analytics summary sheet if there are bills
-            if (this.filteredBills.length > 0) {
-                const analyticsData = this.createAnalyticsForExport();
-                const analyticsWs = XLSX.utils.aoa_to_sheet(analyticsData);
-                
-                // Set column widths for analytics
-                analyticsWs['!cols'] = [
-                    { wch: 8 },  // Year
-                    { wch: 15 }, // Network
-                    { wch: 20 }, // Vendor
-                    { wch: 18 }, // Total With Tax
-                    { wch: 18 }, // Total Without Tax
-                    { wch: 15 }, // GL Codes
-                    { wch: 15 }, // Commit Items
-                    { wch: 15 }  // Cost Centers
-                ];
-                
-                // Style the analytics header
-                if (analyticsWs['!ref']) {
-                    const analyticsHeaderRange = XLSX.utils.decode_range(analyticsWs['!ref']);
-                    for (let col = analyticsHeaderRange.s.c; col <= analyticsHeaderRange.e.c; col++) {
-                        const cellAddress = XLSX.utils.encode_cell({ r: 0, c: col });
-                        if (!analyticsWs[cellAddress]) continue;
-                        
-                        analyticsWs[cellAddress].s = {
-                            font: { bold: true, color: { rgb: "FFFFFF" } },
-                            fill: { fgColor: { rgb: "28a745" } },
-                            alignment: { horizontal: "center", vertical: "center" }
-                        };
-                    }
-                }
-                
-                XLSX.utils.book_append_sheet(wb, analyticsWs, "Analytics Summary");
-            }
-            
-            // Generate filename with timestamp
-            const timestamp = new Date().toISOString().split('T')[0];
-            const filename = `BSNL_Bills_Export_${timestamp}.xlsx`;
-            
-            // Save the file
-            XLSX.writeFile(wb, filename);
-            
-            this.showAlert(`Excel file "${filename}" has been downloaded successfully!`, 'success');
-            
-        } catch (error) {
-            console.error('Export error:', error);
-            this.showAlert('Error exporting data to Excel. Please try again.', 'danger');
-        }
-    }
-
-    createAnalyticsForExport() {
-        const analyticsHeaders = [
-            'Year', 'Network', 'Vendor', 'Total With Tax', 'Total Without Tax', 
-            'GL Codes', 'Commit Items', 'Cost Centers'
-        ];
-        
-        const analyticsData = [analyticsHeaders];
-        
-        // Calculate analytics
-        const summary = {};
-        this.filteredBills.forEach(bill => {
-            const year = this.extractYearFromBill(bill) || 'Unknown';
-            const key = `${year}-${bill.network || 'Unknown'}-${bill.vendor || 'Unknown'}`;
-            
-            if (!summary[key]) {
-                summary[key] = {
-                    year: year,
-                    network: bill.network || 'Unknown',
-                    vendor: bill.vendor || 'Unknown',
-                    totalWithTax: 0,
-                    totalWithoutTax: 0,
-                    glCodes: new Set(),
-                    commitItems: new Set(),
-                    costCenters: new Set()
-                };
-            }
-            
-            summary[key].totalWithTax += (bill.billWithTax || 0);
-            summary[key].totalWithoutTax += (bill.billWithoutTax || 0);
-            
-            if (bill.glCode) summary[key].glCodes.add(bill.glCode);
-            if (bill.commitItem) summary[key].commitItems.add(bill.commitItem);
-            if (bill.costCenter) summary[key].costCenters.add(bill.costCenter);
-        });
-        
-        // Convert summary to rows
-        Object.values(summary).forEach(item => {
-            analyticsData.push([
-                item.year,
-                item.network,
-                item.vendor,
-                item.totalWithTax.toFixed(2),
-                item.totalWithoutTax.toFixed(2),
-                Array.from(item.glCodes).join(', '),
-                Array.from(item.commitItems).join(', '),
-                Array.from(item.costCenters).join(', ')
-            ]);
+    exportData(format = 'xlsx') {
+        // The server streams the file for the current view filters; the browser only downloads it
+        const filters = {
+            search: document.getElementById('searchFilter')?.value || '',
+            year: document.getElementById('yearFilter')?.value || '',
+            network: document.getElementById('networkFilter')?.value || '',
+            vendor: document.getElementById('vendorFilter')?.value || '',
+            quarter: document.getElementById('quarterFilter')?.value || '',
+            location: document.getElementById('locationFilter')?.value || '',
+            status: document.getElementById('statusFilter')?.value || '',
+            glCode: document.getElementById('glCodeFilter')?.value || '',
+            costCenter: document.getElementById('costCenterFilter')?.value || '',
+            commitItem: document.getElementById('commitItemFilter')?.value || ''
+        };
+        const params = new URLSearchParams();
+        Object.entries(filters).forEach(([name, value]) => {
+            if (value) params.append(name, value);
         });
-        
-        return analyticsData;
+
+        const link = document.createElement('a');
+        link.href = `/api/bills/export.${format}?${params}`;
+        document.body.appendChild(link);
+        link.click();
+        link.remove();
+
+        this.showAlert(`Exporting ${this.filteredBills.length} bills to ${{ csv: 'CSV', parquet: 'Parquet' }[format] || 'Excel'}...`, 'success');
     }
 
     showAlert(message, type) {
@@ -0,0 +1,86 @@
+package com.login.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeEventBroadcasterTest {
+
+    private final ChangeEventBroadcaster broadcaster = new ChangeEventBroadcaster();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void blockedClientsDoNotHoldUpTheOthers() throws InterruptedException {
+        List<BlockedEmitter> stuck = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            BlockedEmitter emitter = new BlockedEmitter();
+            broadcaster.subscribe("stuck" + i, emitter);
+            stuck.add(emitter);
+        }
+        for (BlockedEmitter emitter : stuck) {
+            assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+        }
+
+        // One event per topic on subscribe
+        CountDownLatch received = new CountDownLatch(3);
+        broadcaster.subscribe("healthy", new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                received.countDown();
+            }
+        });
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stalledClientIsFailedAndItsSendInterrupted() throws InterruptedException {
+        BlockedEmitter emitter = new BlockedEmitter();
+        broadcaster.subscribe("stuck", emitter);
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+        assertEquals(1, broadcaster.getClientCount());
+
+        broadcaster.checkClients(System.currentTimeMillis() + 60 * 1000L);
+
+        assertEquals(0, broadcaster.getClientCount());
+        assertTrue(emitter.interrupted.await(5, TimeUnit.SECONDS));
+        assertNotNull(emitter.failure);
+    }
+
+    /**
+     * A browser that stopped reading: every send blocks until the test ends or the thread is interrupted
+     */
+    private class BlockedEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable error) {
+            failure = error;
+            super.completeWithError(error);
+        }
+    }
+}
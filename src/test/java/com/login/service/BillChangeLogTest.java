@@ -0,0 +1,100 @@
+package com.login.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillChangeLogTest {
+
+    private final BillChangeLog log = new BillChangeLog();
+
+    @Test
+    void contiguousSavesAreMerged() {
+        log.record(1, 2, List.of(3));
+        log.record(2, 3, List.of(5, 6));
+        log.record(3, 4, List.of(3));
+
+        assertEquals(Set.of(3, 5, 6), log.changedSince(1, 4));
+        assertEquals(Set.of(3), log.changedSince(3, 4));
+        assertEquals(Set.of(), log.changedSince(4, 4));
+    }
+
+    @Test
+    void staleSaveAlsoResendsWhatItOverwrote() {
+        log.record(1, 2, List.of(10));
+        log.record(2, 3, List.of(11));
+        // Loaded at version 1, saved after the two saves above: its write replaced 10 and 11 too
+        log.record(1, 4, List.of(12));
+
+        assertEquals(Set.of(10, 11, 12), log.changedSince(3, 4));
+        assertEquals(Set.of(10, 11, 12), log.changedSince(2, 4));
+        assertEquals(Set.of(10, 11, 12), log.changedSince(1, 4));
+    }
+
+    @Test
+    void staleSaveOverAnUndescribedSaveForcesResync() {
+        log.record(1, 2, null);
+        log.record(2, 3, List.of(11));
+        log.record(1, 4, List.of(12));
+
+        // Whatever it reverted of the 1 -> 2 save cannot be named, even for a client already past it
+        assertNull(log.changedSince(3, 4));
+        assertNull(log.changedSince(2, 4));
+        assertEquals(Set.of(11), log.changedSince(2, 3));
+    }
+
+    @Test
+    void gapsAndUndescribedSavesForceResync() {
+        log.record(1, 2, List.of(1));
+        // Version 3 was written by the desktop client and has no entry
+        log.record(3, 4, List.of(2));
+
+        assertNull(log.changedSince(1, 4));
+        assertEquals(Set.of(2), log.changedSince(3, 4));
+
+        log.record(4, 5, null);
+        assertNull(log.changedSince(4, 5));
+        // Nothing was logged beyond version 5
+        assertNull(log.changedSince(5, 6));
+    }
+
+    @Test
+    void unknownVersionsForceResync() {
+        log.record(1, 2, List.of(1));
+
+        assertNull(log.changedSince(0, 2));
+        assertNull(log.changedSince(3, 2));
+    }
+
+    @Test
+    void evictedEntriesForceResync() {
+        for (long version = 1; version <= 600; version++) {
+            log.record(version, version + 1, List.of((int) version));
+        }
+
+        assertNull(log.changedSince(1, 601));
+        assertNull(log.changedSince(100, 601));
+        assertEquals(Set.of(599, 600), log.changedSince(599, 601));
+    }
+
+    @Test
+    void outOfOrderRecordsAreKeptSorted() {
+        log.record(2, 3, List.of(2));
+        log.record(1, 2, List.of(1));
+
+        assertEquals(Set.of(1, 2), log.changedSince(1, 3));
+    }
+
+    @Test
+    void tokensOnlyMatchThisProcess() {
+        String token = BillChangeLog.token(42);
+
+        assertEquals(42, BillChangeLog.versionOf(token));
+        assertEquals(0, BillChangeLog.versionOf("0:42"));
+        assertEquals(0, BillChangeLog.versionOf(token.substring(0, token.indexOf(':') + 1) + "x"));
+        assertEquals(0, BillChangeLog.versionOf("42"));
+        assertEquals(0, BillChangeLog.versionOf(null));
+    }
+}
@@ -0,0 +1,125 @@
+package com.login.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillImportServiceTest {
+
+    private static final String WORKBOOK =
+        "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"" +
+        " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>" +
+        "<sheet name=\"Bills\" sheetId=\"1\" r:id=\"rId7\"/><sheet name=\"Notes\" sheetId=\"2\" r:id=\"rId1\"/>" +
+        "</sheets></workbook>";
+    private static final String RELATIONSHIPS =
+        "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+        "<Relationship Id=\"rId1\" Type=\"worksheet\" Target=\"worksheets/sheet2.xml\"/>" +
+        "<Relationship Id=\"rId7\" Type=\"worksheet\" Target=\"worksheets/sheet10.xml\"/>" +
+        "</Relationships>";
+
+    @Test
+    void csvHandlesQuotesEmbeddedNewlinesAndBom() throws IOException {
+        String csv = "\uFEFFNetwork,Remarks\r\n" +
+                     "BSNL,\"said \"\"hi\"\", then left\"\r\n" +
+                     "P2P,\"line one\nline two\"\n" +
+                     "ILL,";
+        try (BillImportService.CsvRowReader reader = new BillImportService.CsvRowReader(new StringReader(csv))) {
+            assertArrayEquals(new String[]{"Network", "Remarks"}, reader.next());
+            assertArrayEquals(new String[]{"BSNL", "said \"hi\", then left"}, reader.next());
+            assertArrayEquals(new String[]{"P2P", "line one\nline two"}, reader.next());
+            assertArrayEquals(new String[]{"ILL", ""}, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void csvWithoutTrailingNewlineEndsCleanly() throws IOException {
+        try (BillImportService.CsvRowReader reader = new BillImportService.CsvRowReader(new StringReader("a,b\n"))) {
+            assertArrayEquals(new String[]{"a", "b"}, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void xlsxReadsSharedAndInlineStringsAndSparseRows() throws IOException {
+        String sharedStrings = "<sst><si><t>Network</t></si><si><r><t>Inv</t></r><r><t>oice</t></r></si>" +
+                               "<si><t>BSNL</t><rPh><t>ignored</t></rPh></si></sst>";
+        String sheet = "<worksheet><sheetData>" +
+            "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c></row>" +
+            "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>2</v></c><c r=\"C2\" t=\"inlineStr\"><is><t>INV-9</t></is></c>" +
+            "<c r=\"D2\"><f>1+1</f><v>2.0</v></c></row>" +
+            "<row r=\"4\"><c r=\"B4\" t=\"b\"><v>1</v></c></row>" +
+            "</sheetData></worksheet>";
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("xl/workbook.xml", WORKBOOK);
+        parts.put("xl/_rels/workbook.xml.rels", RELATIONSHIPS);
+        parts.put("xl/sharedStrings.xml", sharedStrings);
+        parts.put("xl/worksheets/sheet10.xml", sheet);
+        parts.put("xl/worksheets/sheet2.xml", "<worksheet><sheetData><row r=\"1\"><c t=\"inlineStr\"><is><t>wrong sheet</t></is></c></row></sheetData></worksheet>");
+
+        try (BillImportService.XlsxRowReader reader = new BillImportService.XlsxRowReader(xlsx(parts))) {
+            assertArrayEquals(new String[]{"Network", "Invoice"}, reader.next());
+            assertArrayEquals(new String[]{"BSNL", null, "INV-9", "2"}, reader.next());
+            assertArrayEquals(new String[0], reader.next());
+            assertArrayEquals(new String[]{null, "TRUE"}, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void xlsxWithoutWorkbookIsRejected() throws IOException {
+        Map<String, String> parts = new LinkedHashMap<>();
+        parts.put("xl/worksheets/sheet1.xml", "<worksheet><sheetData/></worksheet>");
+        ByteArrayInputStream input = xlsx(parts);
+        assertThrows(IllegalArgumentException.class, () -> new BillImportService.XlsxRowReader(input));
+    }
+
+    @Test
+    void columnIndexCountsFromZero() {
+        assertEquals(0, BillImportService.XlsxRowReader.columnIndex("A1"));
+        assertEquals(25, BillImportService.XlsxRowReader.columnIndex("Z7"));
+        assertEquals(27, BillImportService.XlsxRowReader.columnIndex("AB12"));
+    }
+
+    @Test
+    void parseImportDateAcceptsIsoInvoiceAndExcelFormats() {
+        assertEquals(LocalDate.of(2024, 4, 1), BillImportService.parseImportDate("2024-04-01", "fromDate"));
+        assertEquals(LocalDate.of(2024, 4, 1), BillImportService.parseImportDate("2024-04-01T00:00:00", "fromDate"));
+        assertEquals(LocalDate.of(2024, 4, 1), BillImportService.parseImportDate("01/04/2024", "fromDate"));
+        assertEquals(LocalDate.of(2024, 4, 1), BillImportService.parseImportDate("45383", "fromDate"));
+        assertEquals(LocalDate.of(2024, 4, 1), BillImportService.parseImportDate("45383.5", "fromDate"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> BillImportService.parseImportDate("someday", "toDate"));
+        assertEquals("Invalid toDate: someday", e.getMessage());
+    }
+
+    @Test
+    void missingAmountWithoutTaxIsDerivedFromGst() {
+        assertEquals(1000.0, BillImportService.amountWithoutTax(1180.0));
+        assertEquals(84.75, BillImportService.amountWithoutTax(100.0));
+        assertEquals(0.0, BillImportService.amountWithoutTax(0.0));
+    }
+
+    private static ByteArrayInputStream xlsx(Map<String, String> parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> part : parts.entrySet()) {
+                zip.putNextEntry(new ZipEntry(part.getKey()));
+                zip.write(part.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+}
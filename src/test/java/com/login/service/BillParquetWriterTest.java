@@ -0,0 +1,327 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads the written file back with an independent Thrift compact decoder and checks the layout
+ * readers rely on: magic, footer length, row groups, chunk offsets and the encoded values
+ */
+class BillParquetWriterTest {
+
+    private static final String[] NETWORKS = {"BSNL", "P2P", "ILL", null};
+    private static final int COLUMN_COUNT = 21;
+    private static final int NETWORK_COLUMN = 2;
+    private static final int INVOICE_COLUMN = 5;
+
+    @Test
+    void footerAndRowGroupsDescribeTheFile() throws IOException {
+        List<BillRecord> bills = bills(250);
+        byte[] file = write(bills);
+
+        assertEquals("PAR1", new String(file, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("PAR1", new String(file, file.length - 4, 4, StandardCharsets.US_ASCII));
+        int footerLength = intLE(file, file.length - 8);
+        int footerStart = file.length - 8 - footerLength;
+        Thrift footer = new Thrift(file, footerStart);
+        Map<Integer, Object> meta = footer.struct();
+        assertEquals(file.length - 8, footer.pos, "footer length must cover the metadata exactly");
+
+        assertEquals(1L, meta.get(1));
+        assertEquals((long) bills.size(), meta.get(3));
+        List<Object> schema = list(meta, 2);
+        assertEquals(COLUMN_COUNT + 1, schema.size());
+        assertEquals((long) COLUMN_COUNT, struct(schema.get(0)).get(5));
+        assertEquals("network", text(struct(schema.get(NETWORK_COLUMN + 1)).get(4)));
+
+        Map<Integer, Integer> perYear = new TreeMap<>();
+        for (BillRecord bill : bills) {
+            perYear.merge(FiscalCalendar.fiscalYearOf(bill), 1, Integer::sum);
+        }
+        List<Object> rowGroups = list(meta, 4);
+        assertEquals(perYear.size(), rowGroups.size());
+
+        long offset = 4;
+        Iterator<Integer> counts = perYear.values().iterator();
+        for (Object group : rowGroups) {
+            Map<Integer, Object> rowGroup = struct(group);
+            long rows = counts.next();
+            assertEquals(rows, rowGroup.get(3));
+            List<Object> chunks = list(rowGroup, 1);
+            assertEquals(COLUMN_COUNT, chunks.size());
+            for (Object chunk : chunks) {
+                Map<Integer, Object> column = struct(struct(chunk).get(3));
+                assertEquals(rows, column.get(5));
+                long start = column.containsKey(11) ? (Long) column.get(11) : (Long) column.get(9);
+                // Chunks follow each other with no gaps, starting right after the leading magic
+                assertEquals(offset, start);
+                offset += (Long) column.get(7);
+            }
+        }
+        assertEquals(footerStart, offset);
+    }
+
+    @Test
+    void valuesRoundTripThroughPlainAndDictionaryPages() throws IOException {
+        List<BillRecord> bills = bills(250);
+        byte[] file = write(bills);
+        Map<Integer, Object> meta = new Thrift(file, file.length - 8 - intLE(file, file.length - 8)).struct();
+
+        List<BillRecord> ordered = new ArrayList<>(bills);
+        ordered.sort(Comparator.comparingInt(FiscalCalendar::fiscalYearOf));
+        int row = 0;
+        for (Object group : list(meta, 4)) {
+            List<Object> chunks = list(struct(group), 1);
+            int rows = (int) (long) (Long) struct(group).get(3);
+            List<BillRecord> groupBills = ordered.subList(row, row + rows);
+
+            Map<Integer, Object> serials = struct(struct(chunks.get(0)).get(3));
+            ByteBuffer serialPage = page(file, (Long) serials.get(9), 5);
+            for (BillRecord bill : groupBills) {
+                assertEquals(bill.getSerialNo(), serialPage.getInt());
+            }
+
+            Map<Integer, Object> networks = struct(struct(chunks.get(NETWORK_COLUMN)).get(3));
+            assertTrue(networks.containsKey(11), "network is dictionary-encoded");
+            ByteBuffer dictionaryPage = page(file, (Long) networks.get(11), 7);
+            List<String> dictionary = new ArrayList<>();
+            while (dictionaryPage.hasRemaining()) {
+                dictionary.add(plainString(dictionaryPage));
+            }
+            ByteBuffer dataPage = page(file, (Long) networks.get(9), 5);
+            int[] defined = definitionLevels(dataPage, rows);
+            int bitWidth = dataPage.get();
+            // Nulls have no index, only a zero definition level
+            int[] indices = bitPacked(dataPage, bitWidth, Arrays.stream(defined).sum());
+            int next = 0;
+            for (int i = 0; i < rows; i++) {
+                String expected = groupBills.get(i).getNetwork();
+                assertEquals(expected != null ? 1 : 0, defined[i]);
+                if (expected != null) {
+                    assertEquals(expected, dictionary.get(indices[next++]));
+                }
+            }
+            assertEquals(new HashSet<>(dictionary).size(), dictionary.size(), "dictionary values are unique");
+
+            Map<Integer, Object> invoices = struct(struct(chunks.get(INVOICE_COLUMN)).get(3));
+            assertFalse(invoices.containsKey(11), "invoice numbers are written plain");
+            ByteBuffer invoicePage = page(file, (Long) invoices.get(9), 5);
+            definitionLevels(invoicePage, rows);
+            for (BillRecord bill : groupBills) {
+                assertEquals(bill.getInvoiceNumber(), plainString(invoicePage));
+            }
+            row += rows;
+        }
+        assertEquals(bills.size(), row);
+    }
+
+    @Test
+    void emptyExportIsAValidFile() throws IOException {
+        byte[] file = write(new ArrayList<>());
+        Thrift footer = new Thrift(file, file.length - 8 - intLE(file, file.length - 8));
+        Map<Integer, Object> meta = footer.struct();
+        assertEquals(0L, meta.get(3));
+        assertTrue(list(meta, 4).isEmpty());
+        assertEquals(4, file.length - 8 - intLE(file, file.length - 8));
+    }
+
+    private static byte[] write(List<BillRecord> bills) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(bills.size(), new BillParquetWriter().write(bills, out));
+        return out.toByteArray();
+    }
+
+    /**
+     * Body of the page at an offset, after checking its header type field (5 data, 7 dictionary)
+     */
+    private static ByteBuffer page(byte[] file, long offset, int headerField) throws IOException {
+        Thrift reader = new Thrift(file, (int) offset);
+        Map<Integer, Object> header = reader.struct();
+        assertTrue(header.containsKey(headerField));
+        int compressed = (int) (long) (Long) header.get(3);
+        byte[] body;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(file, reader.pos, compressed))) {
+            body = in.readAllBytes();
+        }
+        assertEquals((long) body.length, header.get(2));
+        return ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int[] definitionLevels(ByteBuffer page, int count) {
+        int length = page.getInt();
+        int end = page.position() + length;
+        int[] levels = bitPacked(page, 1, count);
+        assertEquals(end, page.position());
+        return levels;
+    }
+
+    /**
+     * One bit-packed run of the RLE/bit-packing hybrid, which is all the writer produces
+     */
+    private static int[] bitPacked(ByteBuffer page, int bitWidth, int count) {
+        long header = varint(page);
+        assertEquals(1, header & 1, "bit-packed run");
+        int groups = (int) (header >>> 1);
+        assertEquals((count + 7) / 8, groups);
+        int[] values = new int[count];
+        long buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < groups * 8; i++) {
+            while (bits < bitWidth) {
+                buffer |= (long) (page.get() & 0xFF) << bits;
+                bits += 8;
+            }
+            if (i < count) {
+                values[i] = (int) (buffer & ((1L << bitWidth) - 1));
+            }
+            buffer >>>= bitWidth;
+            bits -= bitWidth;
+        }
+        return values;
+    }
+
+    private static String plainString(ByteBuffer page) {
+        byte[] bytes = new byte[page.getInt()];
+        page.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long varint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int intLE(byte[] bytes, int at) {
+        return ByteBuffer.wrap(bytes, at, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, Object> struct(Object value) {
+        return (Map<Integer, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Map<Integer, Object> struct, int field) {
+        return (List<Object>) struct.get(field);
+    }
+
+    private static String text(Object value) {
+        return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+
+    private static List<BillRecord> bills(int count) {
+        Random random = new Random(11);
+        List<BillRecord> bills = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BillRecord bill = new BillRecord();
+            bill.setSerialNo(i + 1);
+            bill.setNetwork(NETWORKS[random.nextInt(NETWORKS.length)]);
+            bill.setVendor("VENDOR " + random.nextInt(20));
+            bill.setInvoiceNumber("INV/" + i + "/é");
+            bill.setBillWithTax(random.nextInt(100000) / 100.0);
+            bill.setYear(2023 + random.nextInt(3));
+            if (random.nextInt(4) != 0) {
+                bill.setFromDate(LocalDate.of(2022, 1, 1).plusDays(random.nextInt(1100)));
+            }
+            bills.add(bill);
+        }
+        return bills;
+    }
+
+    /**
+     * Thrift compact protocol decoder: structs become field id -> value maps
+     */
+    private static final class Thrift {
+        private final byte[] bytes;
+        private int pos;
+
+        Thrift(byte[] bytes, int pos) {
+            this.bytes = bytes;
+            this.pos = pos;
+        }
+
+        Map<Integer, Object> struct() {
+            Map<Integer, Object> fields = new HashMap<>();
+            int lastId = 0;
+            while (true) {
+                int header = bytes[pos++] & 0xFF;
+                if (header == 0) {
+                    return fields;
+                }
+                int delta = header >>> 4;
+                int id = delta != 0 ? lastId + delta : (int) unzigzag(varint());
+                fields.put(id, value(header & 0x0F));
+                lastId = id;
+            }
+        }
+
+        private Object value(int type) {
+            switch (type) {
+                case 1: return Boolean.TRUE;
+                case 2: return Boolean.FALSE;
+                case 3: return (long) bytes[pos++];
+                case 4: case 5: case 6: return unzigzag(varint());
+                case 7:
+                    double value = ByteBuffer.wrap(bytes, pos, 8).order(ByteOrder.LITTLE_ENDIAN).getDouble();
+                    pos += 8;
+                    return value;
+                case 8:
+                    int length = (int) varint();
+                    byte[] binary = Arrays.copyOfRange(bytes, pos, pos + length);
+                    pos += length;
+                    return binary;
+                case 9: case 10: return list();
+                case 12: return struct();
+                default: throw new IllegalStateException("Unsupported compact type " + type + " at " + pos);
+            }
+        }
+
+        private List<Object> list() {
+            int header = bytes[pos++] & 0xFF;
+            int size = header >>> 4;
+            if (size == 15) {
+                size = (int) varint();
+            }
+            int type = header & 0x0F;
+            List<Object> items = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                items.add(type == 1 ? bytes[pos++] == 1 : value(type));
+            }
+            return items;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = bytes[pos++] & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
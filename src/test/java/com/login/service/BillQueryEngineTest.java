@@ -0,0 +1,115 @@
+package com.login.service;
+
+import com.login.model.BillRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillQueryEngineTest {
+
+    private static final String[] NETWORKS = {"BSNL", "P2P", "ILL", "AWS"};
+    private static final String[] VENDORS = {"RAILTEL", "POWER GRID", "JIO", "TATA", "AIRTEL"};
+    private static final String[] STATUSES = {"Pending", "Completed", "On Hold"};
+    private static final String[] COST_CENTERS = {"M75010-SRO", "M78010-TNSO", null};
+
+    private final List<BillRecord> bills = bills(3000, new Random(42));
+    private final BillQueryEngine engine = new BillQueryEngine(bills);
+
+    @Test
+    void everyAccessPathReturnsTheSameRows() {
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            BillQueryEngine.Criteria criteria = randomCriteria(random);
+            List<BillRecord> expected = run(BillQueryEngine.AccessPath.FULL_SCAN, Collections.emptyList(), criteria);
+
+            assertEquals(expected, engine.execute(criteria, bills), "planned: " + criteria);
+            List<String> columns = new ArrayList<>();
+            for (BillQueryEngine.Column column : criteria.getEqualities().keySet()) {
+                columns.add(column.name());
+                assertEquals(expected, run(BillQueryEngine.AccessPath.BITMAP_INTERSECTION, columns, criteria),
+                    "bitmaps " + columns + ": " + criteria);
+            }
+            if (criteria.hasAmountRange()) {
+                assertEquals(expected, run(BillQueryEngine.AccessPath.SORTED_INDEX_WALK,
+                    Collections.singletonList("BILL_WITH_TAX"), criteria), "sorted index: " + criteria);
+            }
+        }
+    }
+
+    @Test
+    void plannerPicksIndexesForSelectiveQueries() {
+        BillQueryEngine.Criteria byInvoice = new BillQueryEngine.Criteria()
+            .where(BillQueryEngine.Column.INVOICE_NUMBER, "INV-17");
+        assertEquals(BillQueryEngine.AccessPath.BITMAP_INTERSECTION, engine.plan(byInvoice).getAccessPath());
+
+        BillQueryEngine.Criteria narrowRange = new BillQueryEngine.Criteria().amountBetween(1000.0, 1010.0);
+        assertEquals(BillQueryEngine.AccessPath.SORTED_INDEX_WALK, engine.plan(narrowRange).getAccessPath());
+
+        assertEquals(BillQueryEngine.AccessPath.FULL_SCAN, engine.plan(new BillQueryEngine.Criteria()).getAccessPath());
+    }
+
+    @Test
+    void unknownValuesAndEmptyRangesReturnNothing() {
+        BillQueryEngine.Criteria unknown = new BillQueryEngine.Criteria()
+            .where(BillQueryEngine.Column.VENDOR, "NOBODY")
+            .where(BillQueryEngine.Column.NETWORK, "BSNL");
+        assertTrue(run(BillQueryEngine.AccessPath.BITMAP_INTERSECTION, Collections.singletonList("VENDOR"), unknown).isEmpty());
+        assertTrue(engine.execute(unknown, bills).isEmpty());
+
+        BillQueryEngine.Criteria inverted = new BillQueryEngine.Criteria().amountBetween(5000.0, 100.0);
+        assertTrue(run(BillQueryEngine.AccessPath.SORTED_INDEX_WALK, Collections.singletonList("BILL_WITH_TAX"), inverted).isEmpty());
+    }
+
+    @Test
+    void staleRecordListIsRefused() {
+        List<BillRecord> shorter = new ArrayList<>(bills.subList(1, bills.size()));
+        assertThrows(IllegalStateException.class, () -> engine.execute(new BillQueryEngine.Criteria(), shorter));
+    }
+
+    private List<BillRecord> run(BillQueryEngine.AccessPath path, List<String> columns, BillQueryEngine.Criteria criteria) {
+        BillQueryEngine.QueryPlan plan = new BillQueryEngine.QueryPlan(criteria.toString(), path, new ArrayList<>(columns),
+            0, new EnumMap<>(BillQueryEngine.AccessPath.class));
+        return engine.execute(plan, criteria, bills);
+    }
+
+    private static BillQueryEngine.Criteria randomCriteria(Random random) {
+        BillQueryEngine.Criteria criteria = new BillQueryEngine.Criteria();
+        if (random.nextBoolean()) criteria.where(BillQueryEngine.Column.NETWORK, pick(random, NETWORKS));
+        if (random.nextBoolean()) criteria.where(BillQueryEngine.Column.VENDOR, pick(random, VENDORS));
+        if (random.nextInt(3) == 0) criteria.where(BillQueryEngine.Column.STATUS, pick(random, STATUSES));
+        if (random.nextInt(3) == 0) criteria.where(BillQueryEngine.Column.YEAR, 2022 + random.nextInt(4));
+        if (random.nextInt(4) == 0) criteria.where(BillQueryEngine.Column.COST_CENTER, pick(random, COST_CENTERS));
+        if (random.nextInt(10) == 0) criteria.where(BillQueryEngine.Column.INVOICE_NUMBER, "INV-" + random.nextInt(3000));
+        if (random.nextBoolean()) {
+            Double min = random.nextBoolean() ? (double) random.nextInt(50000) : null;
+            Double max = random.nextBoolean() ? (double) random.nextInt(50000) + (min != null ? min : 0) : null;
+            criteria.amountBetween(min, max);
+        }
+        return criteria;
+    }
+
+    private static List<BillRecord> bills(int count, Random random) {
+        List<BillRecord> bills = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BillRecord bill = new BillRecord();
+            bill.setSerialNo(i + 1);
+            bill.setNetwork(pick(random, NETWORKS));
+            bill.setVendor(pick(random, VENDORS));
+            bill.setStatus(pick(random, STATUSES));
+            bill.setCostCenter(pick(random, COST_CENTERS));
+            bill.setInvoiceNumber("INV-" + i);
+            bill.setYear(2022 + random.nextInt(4));
+            bill.setQuarter(1 + random.nextInt(4));
+            // Repeated amounts exercise ties in the sorted index
+            bill.setBillWithTax(random.nextInt(5) == 0 ? 1180.0 : Math.round(random.nextDouble() * 100000) / 100.0 * 10);
+            bills.add(bill);
+        }
+        return bills;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}